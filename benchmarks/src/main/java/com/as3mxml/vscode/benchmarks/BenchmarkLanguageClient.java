@@ -0,0 +1,72 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.benchmarks;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.as3mxml.vscode.services.ActionScriptLanguageClient;
+
+import org.eclipse.lsp4j.MessageActionItem;
+import org.eclipse.lsp4j.MessageParams;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.ShowMessageRequestParams;
+
+/**
+ * A client that ignores everything that the language server sends to it.
+ */
+public class BenchmarkLanguageClient implements ActionScriptLanguageClient
+{
+    @Override
+    public void telemetryEvent(Object object)
+    {
+    }
+
+    @Override
+    public void publishDiagnostics(PublishDiagnosticsParams diagnostics)
+    {
+    }
+
+    @Override
+    public void showMessage(MessageParams messageParams)
+    {
+    }
+
+    @Override
+    public CompletableFuture<MessageActionItem> showMessageRequest(ShowMessageRequestParams requestParams)
+    {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void logMessage(MessageParams message)
+    {
+    }
+
+    @Override
+    public void clearCompilerShellOutput()
+    {
+    }
+
+    @Override
+    public void logCompilerShellOutput(String message)
+    {
+    }
+
+    @Override
+    public void preWarmProgress(String message)
+    {
+    }
+}
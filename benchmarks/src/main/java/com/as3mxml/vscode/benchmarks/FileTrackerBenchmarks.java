@@ -0,0 +1,102 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.as3mxml.vscode.utils.FileTracker;
+
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures applying the incremental changes that are sent while typing to
+ * an open file of different sizes.
+ *
+ * Each invocation types one character in the middle of the file, and then
+ * deletes it, so the file's length never changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTrackerBenchmarks
+{
+    @Param({"100", "1000", "10000"})
+    public int lineCount;
+
+    private FileTracker fileTracker;
+    private Path path;
+    private List<TextDocumentContentChangeEvent> typeChanges;
+    private List<TextDocumentContentChangeEvent> deleteChanges;
+    private int version = 1;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        fileTracker = new FileTracker(new Workspace());
+        //the file is never read from the file system
+        path = Paths.get(System.getProperty("java.io.tmpdir"), "FileTrackerBenchmark.as");
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lineCount; i++)
+        {
+            builder.append("\t\t\tvar value" + i + ":int = " + i + ";\n");
+        }
+        fileTracker.openFile(path, builder.toString(), version);
+
+        Position start = new Position(lineCount / 2, 3);
+        Position end = new Position(lineCount / 2, 4);
+        typeChanges = Arrays.asList(new TextDocumentContentChangeEvent(new Range(start, start), 0, "x"));
+        deleteChanges = Arrays.asList(new TextDocumentContentChangeEvent(new Range(start, end), 1, ""));
+    }
+
+    @Benchmark
+    public void changeFile()
+    {
+        fileTracker.changeFile(path, typeChanges, ++version);
+        fileTracker.changeFile(path, deleteChanges, ++version);
+    }
+
+    @Benchmark
+    public String changeFileAndGetText()
+    {
+        //the compiler reads the whole file after every change
+        fileTracker.changeFile(path, typeChanges, ++version);
+        fileTracker.changeFile(path, deleteChanges, ++version);
+        return fileTracker.getText(path);
+    }
+}
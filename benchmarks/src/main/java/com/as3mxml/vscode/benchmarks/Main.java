@@ -0,0 +1,56 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Contains the entry point for the benchmarks JAR. Accepts the same command
+ * line options as JMH, but always enables the GC profiler so that the
+ * allocation rate is reported next to the throughput of each benchmark.
+ *
+ * The royalelib system property must be set to the frameworks directory of
+ * an SDK, the same as when the language server is launched by the editor.
+ */
+public class Main
+{
+    private static final int MISSING_FRAMEWORK_LIB = 200;
+    private static final String PROPERTY_FRAMEWORK_LIB = "royalelib";
+
+    public static void main(String[] args) throws Exception
+    {
+        String frameworkLib = System.getProperty(PROPERTY_FRAMEWORK_LIB);
+        if (frameworkLib == null)
+        {
+            System.err.println("The " + PROPERTY_FRAMEWORK_LIB + " system property must be set to an SDK's frameworks directory.");
+            System.exit(MISSING_FRAMEWORK_LIB);
+        }
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(commandLineOptions)
+            .addProfiler(GCProfiler.class)
+            //each fork needs to find the same SDK. this replaces the
+            //jvmArgsAppend of each benchmark's @Fork, so the heap size from
+            //ProviderBenchmarks must be repeated here.
+            .jvmArgsAppend("-Xms1g", "-Xmx4g", "-D" + PROPERTY_FRAMEWORK_LIB + "=" + frameworkLib)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.as3mxml.vscode.ActionScriptServices;
+import com.as3mxml.vscode.project.ASConfigProjectConfigStrategy;
+
+import org.eclipse.lsp4j.ClientCapabilities;
+import org.eclipse.lsp4j.CompletionCapabilities;
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionItemCapabilities;
+import org.eclipse.lsp4j.CompletionList;
+import org.eclipse.lsp4j.CompletionParams;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.DocumentSymbolCapabilities;
+import org.eclipse.lsp4j.DocumentSymbolParams;
+import org.eclipse.lsp4j.Hover;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.ReferenceContext;
+import org.eclipse.lsp4j.ReferenceParams;
+import org.eclipse.lsp4j.RenameParams;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.TextDocumentClientCapabilities;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.eclipse.lsp4j.WorkspaceEdit;
+import org.eclipse.lsp4j.WorkspaceFolder;
+import org.eclipse.lsp4j.WorkspaceSymbolParams;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the requests that users wait for most often, against generated
+ * projects of different sizes.
+ *
+ * The providers depend on the projects that ActionScriptServices creates
+ * for each workspace folder, so requests are sent through the same public
+ * methods that lsp4j calls. This includes the time spent waiting for the
+ * scheduler, which is usually insignificant because nothing else is running.
+ * None of these requests modify the project, so the same project is reused
+ * for every invocation.
+ *
+ * Document symbols are cached for each version of a document, and completion
+ * may filter the previous result if only the prefix changed. The user
+ * usually edits the document between these requests, so a new version of
+ * the probe file, with the same text, is sent before each invocation of
+ * those benchmarks. Otherwise, they would measure only the caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+public class ProviderBenchmarks
+{
+    @Param({"100", "1000", "5000", "20000"})
+    public int classCount;
+
+    private SyntheticProject project;
+    private ActionScriptServices services;
+    private TextDocumentIdentifier probeDocument;
+    private Position memberAccessPosition;
+    private Position methodPosition;
+    private Position typePosition;
+    private int probeVersion = 1;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        project = SyntheticProject.generate(classCount);
+
+        services = new ActionScriptServices();
+        services.setClientCapabilities(createClientCapabilities());
+        services.setLanguageClient(new BenchmarkLanguageClient());
+        services.setProjectConfigStrategyFactory(folder -> new ASConfigProjectConfigStrategy(folder));
+        WorkspaceFolder folder = new WorkspaceFolder(project.getRoot().toUri().toString());
+        services.addWorkspaceFolder(folder);
+        services.setInitialized();
+
+        String probeUri = project.getProbePath().toUri().toString();
+        TextDocumentItem probeItem = new TextDocumentItem(probeUri, "actionscript", probeVersion, project.getProbeText());
+        services.didOpen(new DidOpenTextDocumentParams(probeItem));
+        probeDocument = new TextDocumentIdentifier(probeUri);
+
+        //after "first."
+        memberAccessPosition = project.getProbePosition("first.method0", 6);
+        //on "method0"
+        methodPosition = project.getProbePosition("first.method0", 8);
+        //on "Class0" in the parameter type
+        typePosition = project.getProbePosition("first:Class0", 8);
+
+        //make sure that the first invocation doesn't include building the
+        //compilation units that every request needs
+        references();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        services.shutdown();
+        project.delete();
+    }
+
+    @Benchmark
+    public Either<List<CompletionItem>, CompletionList> completion(ChangedProbe changedProbe) throws Exception
+    {
+        CompletionParams params = new CompletionParams(probeDocument, memberAccessPosition);
+        return services.completion(params).get();
+    }
+
+    @Benchmark
+    public Hover hover() throws Exception
+    {
+        TextDocumentPositionParams params = new TextDocumentPositionParams(probeDocument, methodPosition);
+        return services.hover(params).get();
+    }
+
+    @Benchmark
+    public List<? extends Location> references() throws Exception
+    {
+        ReferenceParams params = new ReferenceParams(new ReferenceContext(true));
+        params.setTextDocument(probeDocument);
+        params.setPosition(methodPosition);
+        return services.references(params).get();
+    }
+
+    @Benchmark
+    public WorkspaceEdit rename() throws Exception
+    {
+        //the edit is returned to the client, but never applied
+        RenameParams params = new RenameParams(probeDocument, methodPosition, "renamedMethod0");
+        return services.rename(params).get();
+    }
+
+    @Benchmark
+    public List<? extends SymbolInformation> workspaceSymbol() throws Exception
+    {
+        WorkspaceSymbolParams params = new WorkspaceSymbolParams("Class1");
+        return services.symbol(params).get();
+    }
+
+    @Benchmark
+    public List<Either<SymbolInformation, DocumentSymbol>> documentSymbol(ChangedProbe changedProbe) throws Exception
+    {
+        DocumentSymbolParams params = new DocumentSymbolParams(probeDocument);
+        return services.documentSymbol(params).get();
+    }
+
+    @Benchmark
+    public Hover hoverType() throws Exception
+    {
+        TextDocumentPositionParams params = new TextDocumentPositionParams(probeDocument, typePosition);
+        return services.hover(params).get();
+    }
+
+    /**
+     * Sends the probe file's text again as a new version before each
+     * invocation.
+     */
+    private void changeProbe()
+    {
+        probeVersion++;
+        VersionedTextDocumentIdentifier document = new VersionedTextDocumentIdentifier(probeDocument.getUri(), probeVersion);
+        TextDocumentContentChangeEvent change = new TextDocumentContentChangeEvent(project.getProbeText());
+        services.didChange(new DidChangeTextDocumentParams(document, Collections.singletonList(change)));
+    }
+
+    @State(Scope.Benchmark)
+    public static class ChangedProbe
+    {
+        @Setup(Level.Invocation)
+        public void setup(ProviderBenchmarks benchmarks)
+        {
+            benchmarks.changeProbe();
+        }
+    }
+
+    private ClientCapabilities createClientCapabilities()
+    {
+        //the same capabilities that affect results in Visual Studio Code
+        CompletionCapabilities completion = new CompletionCapabilities(new CompletionItemCapabilities(true));
+        DocumentSymbolCapabilities documentSymbol = new DocumentSymbolCapabilities();
+        documentSymbol.setHierarchicalDocumentSymbolSupport(true);
+        TextDocumentClientCapabilities textDocument = new TextDocumentClientCapabilities();
+        textDocument.setCompletion(completion);
+        textDocument.setDocumentSymbol(documentSymbol);
+        ClientCapabilities capabilities = new ClientCapabilities();
+        capabilities.setTextDocument(textDocument);
+        return capabilities;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.eclipse.lsp4j.Position;
+
+/**
+ * Generates an ActionScript and MXML project with a configurable number of
+ * classes in a temporary directory.
+ *
+ * Classes are grouped into packages of 100. Every class in a package extends
+ * the package's first class, and every class calls method0() on Class0, so
+ * the number of references to method0() grows with the size of the project.
+ * Every tenth class is an MXML component instead of an ActionScript class.
+ *
+ * The Probe class, in the top-level package, is the main class. It is the
+ * file that benchmarks open and send requests for.
+ */
+public class SyntheticProject
+{
+    public static final String PROBE_FILE_NAME = "Probe.as";
+
+    private static final int CLASSES_PER_PACKAGE = 100;
+    private static final int MXML_INTERVAL = 10;
+    private static final String ROOT_PACKAGE = "bench";
+    private static final String SOURCE_FOLDER = "src";
+
+    public static SyntheticProject generate(int classCount) throws IOException
+    {
+        Path root = Files.createTempDirectory("as3mxml-benchmark-");
+        SyntheticProject project = new SyntheticProject(root, classCount);
+        project.writeFiles();
+        return project;
+    }
+
+    private SyntheticProject(Path root, int classCount)
+    {
+        this.root = root;
+        this.classCount = classCount;
+    }
+
+    private Path root;
+    private int classCount;
+    private String probeText;
+
+    public Path getRoot()
+    {
+        return root;
+    }
+
+    public Path getProbePath()
+    {
+        return root.resolve(SOURCE_FOLDER).resolve(PROBE_FILE_NAME);
+    }
+
+    public String getProbeText()
+    {
+        return probeText;
+    }
+
+    /**
+     * Returns the position of the first occurrence of the specified text in
+     * the Probe class, plus an offset.
+     */
+    public Position getProbePosition(String text, int offset)
+    {
+        int index = probeText.indexOf(text);
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("Text not found in " + PROBE_FILE_NAME + ": " + text);
+        }
+        index += offset;
+        int line = 0;
+        int lineStart = 0;
+        for (int i = 0; i < index; i++)
+        {
+            if (probeText.charAt(i) == '\n')
+            {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new Position(line, index - lineStart);
+    }
+
+    public void delete() throws IOException
+    {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+            {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException
+            {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void writeFiles() throws IOException
+    {
+        Path sourcePath = root.resolve(SOURCE_FOLDER);
+        for (int i = 0; i < classCount; i++)
+        {
+            String packageName = getPackageName(i);
+            Path packagePath = sourcePath.resolve(packageName.replace('.', '/'));
+            if ((i % CLASSES_PER_PACKAGE) == 0)
+            {
+                Files.createDirectories(packagePath);
+            }
+            if (isMXML(i))
+            {
+                write(packagePath.resolve("Class" + i + ".mxml"), createMXMLClass(i));
+            }
+            else
+            {
+                write(packagePath.resolve("Class" + i + ".as"), createASClass(i));
+            }
+        }
+        probeText = createProbe();
+        write(getProbePath(), probeText);
+        write(root.resolve("asconfig.json"), createASConfig());
+    }
+
+    private String getPackageName(int index)
+    {
+        return ROOT_PACKAGE + ".pkg" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    private boolean isMXML(int index)
+    {
+        //the first class in each package is the base class of the others,
+        //so it is always ActionScript
+        return (index % CLASSES_PER_PACKAGE) != 0 && (index % MXML_INTERVAL) == 0;
+    }
+
+    private String getBaseClassName(int index)
+    {
+        int baseIndex = index - (index % CLASSES_PER_PACKAGE);
+        if (baseIndex == index)
+        {
+            return null;
+        }
+        return "Class" + baseIndex;
+    }
+
+    private String createASClass(int index)
+    {
+        String baseClassName = getBaseClassName(index);
+        StringBuilder builder = new StringBuilder();
+        builder.append("package " + getPackageName(index) + "\n");
+        builder.append("{\n");
+        builder.append("\timport " + ROOT_PACKAGE + ".pkg0.Class0;\n");
+        builder.append("\n");
+        builder.append("\t/**\n");
+        builder.append("\t * Generated class " + index + ".\n");
+        builder.append("\t */\n");
+        builder.append("\tpublic class Class" + index);
+        if (baseClassName != null)
+        {
+            builder.append(" extends " + baseClassName);
+        }
+        builder.append("\n");
+        builder.append("\t{\n");
+        builder.append("\t\tpublic var field" + index + ":int = " + index + ";\n");
+        builder.append("\n");
+        builder.append("\t\tprivate var _property" + index + ":String;\n");
+        builder.append("\n");
+        builder.append("\t\tpublic function get property" + index + "():String\n");
+        builder.append("\t\t{\n");
+        builder.append("\t\t\treturn _property" + index + ";\n");
+        builder.append("\t\t}\n");
+        builder.append("\n");
+        builder.append("\t\tpublic function set property" + index + "(value:String):void\n");
+        builder.append("\t\t{\n");
+        builder.append("\t\t\t_property" + index + " = value;\n");
+        builder.append("\t\t}\n");
+        builder.append("\n");
+        builder.append("\t\t/**\n");
+        builder.append("\t\t * Generated method " + index + ".\n");
+        builder.append("\t\t */\n");
+        builder.append("\t\tpublic function method" + index + "(value:Class0):int\n");
+        builder.append("\t\t{\n");
+        if (index == 0)
+        {
+            builder.append("\t\t\treturn field0;\n");
+        }
+        else
+        {
+            builder.append("\t\t\treturn value.method0(null) + field" + index + ";\n");
+        }
+        builder.append("\t\t}\n");
+        builder.append("\t}\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private String createMXMLClass(int index)
+    {
+        //the base class is generated, so the component doesn't depend on
+        //any particular framework
+        String baseClassName = getBaseClassName(index);
+        String packageName = getPackageName(index);
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        builder.append("<local:" + baseClassName + " xmlns:fx=\"http://ns.adobe.com/mxml/2009\"\n");
+        builder.append("\txmlns:local=\"" + packageName + ".*\">\n");
+        builder.append("\t<fx:Script>\n");
+        builder.append("\t\t<![CDATA[\n");
+        builder.append("\t\t\timport " + ROOT_PACKAGE + ".pkg0.Class0;\n");
+        builder.append("\n");
+        builder.append("\t\t\tpublic var field" + index + ":int = " + index + ";\n");
+        builder.append("\n");
+        builder.append("\t\t\tpublic function method" + index + "(value:Class0):int\n");
+        builder.append("\t\t\t{\n");
+        builder.append("\t\t\t\treturn value.method0(null) + field" + index + ";\n");
+        builder.append("\t\t\t}\n");
+        builder.append("\t\t]]>\n");
+        builder.append("\t</fx:Script>\n");
+        builder.append("</local:" + baseClassName + ">\n");
+        return builder.toString();
+    }
+
+    private String createProbe()
+    {
+        int lastIndex = classCount - 1;
+        if (isMXML(lastIndex))
+        {
+            //MXML components don't have the generated getter and setter
+            lastIndex--;
+        }
+        String lastClassName = getPackageName(lastIndex) + ".Class" + lastIndex;
+        StringBuilder builder = new StringBuilder();
+        builder.append("package\n");
+        builder.append("{\n");
+        builder.append("\timport " + ROOT_PACKAGE + ".pkg0.Class0;\n");
+        builder.append("\timport " + lastClassName + ";\n");
+        builder.append("\n");
+        builder.append("\tpublic class Probe\n");
+        builder.append("\t{\n");
+        builder.append("\t\tpublic function probe(first:Class0, last:Class" + lastIndex + "):void\n");
+        builder.append("\t\t{\n");
+        builder.append("\t\t\tfirst.method0(first);\n");
+        builder.append("\t\t\tlast.property" + lastIndex + " = \"probe\";\n");
+        builder.append("\t\t\tlast.method" + lastIndex + "(first);\n");
+        builder.append("\t\t}\n");
+        builder.append("\t}\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private String createASConfig()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\n");
+        builder.append("\t\"compilerOptions\": {\n");
+        builder.append("\t\t\"source-path\": [\n");
+        builder.append("\t\t\t\"" + SOURCE_FOLDER + "\"\n");
+        builder.append("\t\t]\n");
+        builder.append("\t},\n");
+        builder.append("\t\"files\": [\n");
+        builder.append("\t\t\"" + SOURCE_FOLDER + "/" + PROBE_FILE_NAME + "\"\n");
+        builder.append("\t]\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private void write(Path path, String text) throws IOException
+    {
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -39,11 +40,19 @@ import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.as3mxml.asconfigc.ASConfigC;
@@ -75,15 +84,33 @@ import com.as3mxml.vscode.providers.WorkspaceSymbolProvider;
 import com.as3mxml.vscode.services.ActionScriptLanguageClient;
 import com.as3mxml.vscode.utils.ASTUtils;
 import com.as3mxml.vscode.utils.ActionScriptSDKUtils;
+import com.as3mxml.vscode.utils.CompilationUnitMemoryGovernor;
+import com.as3mxml.vscode.utils.CompilationUnitProblemCache;
 import com.as3mxml.vscode.utils.CompilationUnitUtils;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
 import com.as3mxml.vscode.utils.CompilerProblemFilter;
 import com.as3mxml.vscode.utils.CompilerProjectUtils;
+import com.as3mxml.vscode.utils.CompletionListFilter;
+import com.as3mxml.vscode.utils.DiagnosticsPublisher;
+import com.as3mxml.vscode.utils.DocumentSnapshot;
+import com.as3mxml.vscode.utils.DocumentSymbolCache;
+import com.as3mxml.vscode.utils.FileEventCoalescer;
 import com.as3mxml.vscode.utils.FileTracker;
+import com.as3mxml.vscode.utils.IdentifierIndex;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
+import com.as3mxml.vscode.utils.PreWarmTask;
+import com.as3mxml.vscode.utils.PriorityScheduler;
+import com.as3mxml.vscode.utils.PriorityScheduler.Priority;
 import com.as3mxml.vscode.utils.ProblemTracker;
 import com.as3mxml.vscode.utils.RealTimeProblemsChecker;
+import com.as3mxml.vscode.utils.RequestMetrics;
+import com.as3mxml.vscode.utils.RequestMetrics.RequestTimer;
+import com.as3mxml.vscode.utils.SWCMetadataCache;
+import com.as3mxml.vscode.utils.SupersedingRequestTracker;
+import com.as3mxml.vscode.utils.SupersedingRequestTracker.SupersedableRequest;
+import com.as3mxml.vscode.utils.TextRope;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
+import com.as3mxml.vscode.utils.WorkspaceSymbolIndex;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
@@ -162,6 +189,7 @@ import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
 import org.eclipse.lsp4j.WorkspaceEdit;
 import org.eclipse.lsp4j.WorkspaceFolder;
 import org.eclipse.lsp4j.WorkspaceSymbolParams;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
@@ -184,12 +212,25 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     private static final String FRAMEWORKS_RELATIVE_PATH_CHILD = "./frameworks";
     private static final String SOURCE_DEFAULTS = "defaults";
     private static final String SOURCE_CONFIG = "config.as";
+    private static final int PROBLEM_CHECK_BATCH_SIZE_PER_THREAD = 4;
+    private static final long SOURCE_PATH_WATCHER_SETTLE_DELAY = 200;
+    private static final long SOURCE_PATH_WATCHER_MAX_DELAY = 2000;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
 
     private ActionScriptLanguageClient languageClient;
     private IProjectConfigStrategyFactory projectConfigStrategyFactory;
     private String oldFrameworkSDKPath;
     private Workspace compilerWorkspace;
     private WorkspaceFolderManager workspaceFolderManager;
+    private SWCMetadataCache swcMetadataCache;
+    private CompletionListFilter completionListFilter = new CompletionListFilter();
+    private WorkspaceSymbolIndex workspaceSymbolIndex = new WorkspaceSymbolIndex();
+    private IdentifierIndex identifierIndex = new IdentifierIndex();
+    private DocumentSymbolCache documentSymbolCache = new DocumentSymbolCache();
+    private SupersedingRequestTracker supersedingRequests = new SupersedingRequestTracker();
+    private PriorityScheduler scheduler = new PriorityScheduler();
+    private DiagnosticsPublisher diagnosticsPublisher = new DiagnosticsPublisher();
+    private RequestMetrics requestMetrics = new RequestMetrics(scheduler, supersedingRequests, diagnosticsPublisher);
     private WatchService sourcePathWatcher;
     private Thread sourcePathWatcherThread;
     private ClientCapabilities clientCapabilities;
@@ -202,6 +243,17 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     private Future<?> realTimeProblemsFuture;
     private Set<URI> notOnSourcePathSet = new HashSet<>();
     private boolean realTimeProblems = true;
+    private long realTimeProblemsDelay = RealTimeProblemsChecker.DEFAULT_QUIET_PERIOD;
+    private int problemCheckThreads = 0;
+    private ForkJoinPool problemCheckPool;
+    //folders that have a project check queued, but not started yet
+    private Set<WorkspaceFolderData> foldersWithQueuedProblemCheck = new HashSet<>();
+    //only one project is checked at a time
+    private Object projectProblemCheckLock = new Object();
+    private boolean preWarm = false;
+    private PreWarmTask preWarmTask;
+    //in bytes. if 0, compilation units are never evicted
+    private long heapBudget = 0;
     private boolean showFileOutsideSourcePath = true;
     private SimpleProjectConfigStrategy fallbackConfig;
     private CompilerShell compilerShell;
@@ -212,7 +264,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         compilerWorkspace = new Workspace();
         compilerWorkspace.setASDocDelegate(new VSCodeASDocDelegate());
         fileTracker = new FileTracker(compilerWorkspace);
-        workspaceFolderManager = new WorkspaceFolderManager(fileTracker);
+        swcMetadataCache = new SWCMetadataCache();
+        workspaceFolderManager = new WorkspaceFolderManager(fileTracker, swcMetadataCache);
         updateFrameworkSDK();
     }
 
@@ -240,8 +293,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     {
         IProjectConfigStrategy config = projectConfigStrategyFactory.create(folder);
         WorkspaceFolderData folderData = workspaceFolderManager.addWorkspaceFolder(folder, config);
-        folderData.codeProblemTracker.setLanguageClient(languageClient);
-        folderData.configProblemTracker.setLanguageClient(languageClient);
+        folderData.codeProblemTracker.setDiagnosticsPublisher(diagnosticsPublisher);
+        folderData.configProblemTracker.setDiagnosticsPublisher(diagnosticsPublisher);
         
         //let's get the code intelligence up and running!
         Path path = getMainCompilationUnitPath(folderData);
@@ -253,6 +306,11 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         }
 
         checkProjectForProblems(folderData);
+
+        if (initialized && preWarm)
+        {
+            startPreWarm();
+        }
     }
 
     public void removeWorkspaceFolder(WorkspaceFolder folder)
@@ -288,6 +346,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     public void setLanguageClient(ActionScriptLanguageClient value)
     {
         languageClient = value;
+        diagnosticsPublisher.setLanguageClient(languageClient);
     }
 
     public void shutdown()
@@ -304,6 +363,31 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             realTimeProblemsFuture.cancel(true);
             realTimeProblemsFuture = null;
         }
+        cancelPreWarm();
+        shutdownProblemCheckPool();
+        swcMetadataCache.flush();
+    }
+
+    /**
+     * Returns a cancel checker that also cancels a request if the document
+     * changes before the request finishes, because its result would be for
+     * an older version of the document. If the document isn't open, the
+     * original checker is returned.
+     */
+    private CancelChecker createDocumentCancelChecker(CancelChecker cancelToken, DocumentSnapshot snapshot)
+    {
+        if (snapshot == null)
+        {
+            return cancelToken;
+        }
+        return () ->
+        {
+            cancelToken.checkCanceled();
+            if (!fileTracker.isLatest(snapshot))
+            {
+                throw new CancellationException();
+            }
+        };
     }
 
     /**
@@ -314,10 +398,40 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<Either<List<CompletionItem>, CompletionList>> completion(CompletionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
-        {
+        SupersedableRequest request = supersedingRequests.start("textDocument/completion", params.getTextDocument().getUri());
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/completion");
+        return computeAsync(timer, Priority.INTERACTIVE, lspCancelToken ->
+        {
+            //cancel automatically if a newer request for the same document
+            //arrives, or if the document changes, before this one finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(request.createCancelChecker(lspCancelToken), snapshot);
             cancelToken.checkCanceled();
 
+            //while an identifier is being typed, a long list from a previous
+            //request can be narrowed down without building anything
+            String prefix = null;
+            int prefixStart = -1;
+            if (snapshot != null)
+            {
+                TextRope text = snapshot.getText();
+                int offset = text.getOffsetFromPosition(params.getPosition());
+                if (offset >= 0 && offset <= text.length())
+                {
+                    prefixStart = offset;
+                    while (prefixStart > 0 && Character.isJavaIdentifierPart(text.charAt(prefixStart - 1)))
+                    {
+                        prefixStart--;
+                    }
+                    prefix = text.subSequence(prefixStart, offset).toString();
+                    CompletionList filteredResult = completionListFilter.filterCandidates(snapshot, prefixStart, prefix);
+                    if (filteredResult != null)
+                    {
+                        return Either.forRight(filteredResult);
+                    }
+                }
+            }
+
             //make sure that the latest changes have been passed to
             //workspace.fileChanged() before proceeding
             if(realTimeProblemsChecker != null)
@@ -326,14 +440,22 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 CompletionProvider provider = new CompletionProvider(workspaceFolderManager,
                         fileTracker, completionSupportsSnippets, frameworkSDKIsRoyale);
-                return provider.completion(params, cancelToken);
+                Either<List<CompletionItem>, CompletionList> result = provider.completion(params, cancelToken);
+                if (prefix == null || !result.isRight())
+                {
+                    completionListFilter.clear();
+                    return result;
+                }
+                return Either.forRight(completionListFilter.filter(snapshot, prefixStart, prefix, result.getRight()));
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -356,8 +478,14 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<Hover> hover(TextDocumentPositionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
-        {
+        SupersedableRequest request = supersedingRequests.start("textDocument/hover", params.getTextDocument().getUri());
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/hover");
+        return computeAsync(timer, Priority.INTERACTIVE, lspCancelToken ->
+        {
+            //cancel automatically if a newer request for the same document
+            //arrives, or if the document changes, before this one finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(request.createCancelChecker(lspCancelToken), snapshot);
             cancelToken.checkCanceled();
 
             //make sure that the latest changes have been passed to
@@ -368,6 +496,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 HoverProvider provider = new HoverProvider(workspaceFolderManager, fileTracker);
@@ -375,6 +504,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -389,8 +519,14 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<SignatureHelp> signatureHelp(TextDocumentPositionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
-        {
+        SupersedableRequest request = supersedingRequests.start("textDocument/signatureHelp", params.getTextDocument().getUri());
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/signatureHelp");
+        return computeAsync(timer, Priority.INTERACTIVE, lspCancelToken ->
+        {
+            //cancel automatically if a newer request for the same document
+            //arrives, or if the document changes, before this one finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(request.createCancelChecker(lspCancelToken), snapshot);
             cancelToken.checkCanceled();
 
             //make sure that the latest changes have been passed to
@@ -401,6 +537,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 SignatureHelpProvider provider = new SignatureHelpProvider(workspaceFolderManager, fileTracker);
@@ -408,6 +545,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -420,8 +558,13 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> definition(TextDocumentPositionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/definition");
+        return computeAsync(timer, Priority.INTERACTIVE, lspCancelToken ->
         {
+            //cancel automatically if the document changes before the request
+            //finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(lspCancelToken, snapshot);
             cancelToken.checkCanceled();
 
             //make sure that the latest changes have been passed to
@@ -432,6 +575,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 DefinitionProvider provider = new DefinitionProvider(workspaceFolderManager, fileTracker);
@@ -439,6 +583,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -450,8 +595,13 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
      */
     public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> typeDefinition(TextDocumentPositionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/typeDefinition");
+        return computeAsync(timer, Priority.INTERACTIVE, lspCancelToken ->
         {
+            //cancel automatically if the document changes before the request
+            //finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(lspCancelToken, snapshot);
             cancelToken.checkCanceled();
 
             //make sure that the latest changes have been passed to
@@ -462,6 +612,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 TypeDefinitionProvider provider = new TypeDefinitionProvider(workspaceFolderManager, fileTracker);
@@ -469,6 +620,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -479,7 +631,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
      */
     public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> implementation(TextDocumentPositionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        RequestTimer timer = requestMetrics.start("textDocument/implementation");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -491,6 +644,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 ImplementationProvider provider = new ImplementationProvider(workspaceFolderManager, fileTracker);
@@ -498,6 +652,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -511,7 +666,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<List<? extends Location>> references(ReferenceParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        RequestTimer timer = requestMetrics.start("textDocument/references");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -523,13 +679,15 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
-                ReferencesProvider provider = new ReferencesProvider(workspaceFolderManager, fileTracker);
+                ReferencesProvider provider = new ReferencesProvider(workspaceFolderManager, fileTracker, identifierIndex);
                 return provider.references(params, cancelToken);
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -549,7 +707,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
      */
     public CompletableFuture<List<? extends SymbolInformation>> symbol(WorkspaceSymbolParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        RequestTimer timer = requestMetrics.start("workspace/symbol");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -561,13 +720,15 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
-                WorkspaceSymbolProvider provider = new WorkspaceSymbolProvider(workspaceFolderManager);
+                WorkspaceSymbolProvider provider = new WorkspaceSymbolProvider(workspaceFolderManager, workspaceSymbolIndex);
                 return provider.workspaceSymbol(params, cancelToken);
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -580,10 +741,32 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> documentSymbol(DocumentSymbolParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/documentSymbol");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, lspCancelToken ->
         {
+            //cancel automatically if the document changes before the request
+            //finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(lspCancelToken, snapshot);
             cancelToken.checkCanceled();
 
+            boolean hierarchicalDocumentSymbolSupport = false;
+            try
+            {
+                hierarchicalDocumentSymbolSupport = clientCapabilities.getTextDocument().getDocumentSymbol().getHierarchicalDocumentSymbolSupport();
+            }
+            catch(NullPointerException e)
+            {
+                //ignore
+            }
+            //the same version of a document is often requested repeatedly,
+            //and it doesn't need to wait for the compiler again
+            List<Either<SymbolInformation, DocumentSymbol>> cachedSymbols = documentSymbolCache.get(snapshot, hierarchicalDocumentSymbolSupport);
+            if (cachedSymbols != null)
+            {
+                return cachedSymbols;
+            }
+
             //make sure that the latest changes have been passed to
             //workspace.fileChanged() before proceeding
             if(realTimeProblemsChecker != null)
@@ -592,22 +775,23 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
-                boolean hierarchicalDocumentSymbolSupport = false;
-                try
-                {
-                    hierarchicalDocumentSymbolSupport = clientCapabilities.getTextDocument().getDocumentSymbol().getHierarchicalDocumentSymbolSupport();
-                }
-                catch(NullPointerException e)
+                DocumentSymbolProvider provider = new DocumentSymbolProvider(workspaceFolderManager, hierarchicalDocumentSymbolSupport);
+                List<Either<SymbolInformation, DocumentSymbol>> result = provider.documentSymbol(params, cancelToken);
+                //the provider checks for cancellation before returning, so
+                //the result belongs to the snapshot's version. an empty result
+                //may mean that the project isn't ready yet, so it isn't saved
+                if (result.size() > 0)
                 {
-                    //ignore
+                    documentSymbolCache.put(snapshot, hierarchicalDocumentSymbolSupport, result);
                 }
-                DocumentSymbolProvider provider = new DocumentSymbolProvider(workspaceFolderManager, hierarchicalDocumentSymbolSupport);
-                return provider.documentSymbol(params, cancelToken);
+                return result;
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -619,8 +803,13 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<List<Either<Command, CodeAction>>> codeAction(CodeActionParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(LanguageServerCompilerUtils.getPathFromLanguageServerURI(params.getTextDocument().getUri()));
+        RequestTimer timer = requestMetrics.start("textDocument/codeAction");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, lspCancelToken ->
         {
+            //cancel automatically if the document changes before the request
+            //finishes
+            CancelChecker cancelToken = createDocumentCancelChecker(lspCancelToken, snapshot);
             cancelToken.checkCanceled();
 
             //make sure that the latest changes have been passed to
@@ -631,6 +820,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
                 CodeActionProvider provider = new CodeActionProvider(workspaceFolderManager, fileTracker);
@@ -638,6 +828,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
@@ -694,7 +885,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     @Override
     public CompletableFuture<WorkspaceEdit> rename(RenameParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        RequestTimer timer = requestMetrics.start("textDocument/rename");
+        return computeAsync(timer, Priority.NEAR_INTERACTIVE, cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -706,9 +898,10 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
 
             compilerWorkspace.startBuilding();
+            timer.startBuilding();
             try
             {
-                RenameProvider provider = new RenameProvider(workspaceFolderManager, fileTracker);
+                RenameProvider provider = new RenameProvider(workspaceFolderManager, fileTracker, identifierIndex);
                 WorkspaceEdit result = provider.rename(params, cancelToken);
                 if(result == null)
                 {
@@ -725,24 +918,88 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             }
             finally
             {
+                timer.doneBuilding();
                 compilerWorkspace.doneBuilding();
             }
         });
     }
 
+    private CompilationUnitMemoryGovernor.Statistics getMemoryStatistics()
+    {
+        CompilationUnitMemoryGovernor.Statistics result = new CompilationUnitMemoryGovernor.Statistics();
+        for (WorkspaceFolderData folderData : getAllWorkspaceFolderData())
+        {
+            result.add(folderData.memoryGovernor.getStatistics());
+        }
+        return result;
+    }
+
+    private Map<String,Object> getMemoryReport()
+    {
+        CompilationUnitMemoryGovernor.Statistics statistics = getMemoryStatistics();
+        Runtime runtime = Runtime.getRuntime();
+        Map<String,Object> result = new LinkedHashMap<>();
+        result.put("heapBudget", heapBudget);
+        result.put("usedHeap", runtime.totalMemory() - runtime.freeMemory());
+        result.put("liveHeap", CompilationUnitMemoryGovernor.getLiveHeap());
+        result.put("trackedUnits", statistics.trackedUnits);
+        result.put("evictedUnits", statistics.evictedUnits);
+        result.put("hits", statistics.hitCount);
+        result.put("misses", statistics.missCount);
+        result.put("evictions", statistics.evictionCount);
+        return result;
+    }
+
+    private String formatMemoryReport()
+    {
+        CompilationUnitMemoryGovernor.Statistics statistics = getMemoryStatistics();
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder builder = new StringBuilder();
+        builder.append("Memory: used=");
+        builder.append((runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MEGABYTE);
+        builder.append("MB live=");
+        builder.append(CompilationUnitMemoryGovernor.getLiveHeap() / BYTES_PER_MEGABYTE);
+        builder.append("MB budget=");
+        builder.append(heapBudget / BYTES_PER_MEGABYTE);
+        builder.append("MB tracked=");
+        builder.append(statistics.trackedUnits);
+        builder.append(" evicted=");
+        builder.append(statistics.evictedUnits);
+        builder.append(" hits=");
+        builder.append(statistics.hitCount);
+        builder.append(" misses=");
+        builder.append(statistics.missCount);
+        builder.append(" evictions=");
+        builder.append(statistics.evictionCount);
+        builder.append("\n");
+        return builder.toString();
+    }
+
     /**
      * Called when one of the commands registered in ActionScriptLanguageServer
      * is executed.
      */
     public CompletableFuture<Object> executeCommand(ExecuteCommandParams params)
     {
+        if(params.getCommand().equals(ICommandConstants.LOG_METRICS))
+        {
+            System.err.print(requestMetrics.formatReport());
+            System.err.print(formatMemoryReport());
+            Map<String,Object> report = requestMetrics.getReport();
+            report.put("memory", getMemoryReport());
+            return CompletableFuture.completedFuture(report);
+        }
+        //commands are queued by the provider, so the time spent waiting in
+        //the queue is included in the execution time
+        RequestTimer timer = requestMetrics.start("workspace/executeCommand");
+        timer.started();
         if(params.getCommand().equals(ICommandConstants.QUICK_COMPILE))
         {
-            return executeQuickCompileCommand(params);
+            return timer.track(executeQuickCompileCommand(params));
         }
         ExecuteCommandProvider provider = new ExecuteCommandProvider(workspaceFolderManager,
-                fileTracker, compilerWorkspace, languageClient);
-        return provider.executeCommand(params);
+                fileTracker, compilerWorkspace, scheduler, languageClient);
+        return timer.track(provider.executeCommand(params));
     }
 
     /**
@@ -776,7 +1033,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         //case we need it later.
         //example: if we modify to source-path compiler option
         String text = textDocument.getText();
-        fileTracker.openFile(path, text);
+        fileTracker.openFile(path, text, textDocument.getVersion());
+        fileTextChanged(path);
 
         WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderDataForSourceFile(path);
         if (folderData == null)
@@ -802,6 +1060,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         String normalizedPath = FilenameNormalization.normalize(path.toAbsolutePath().toString());
         IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedPath);
         compilerWorkspace.fileChanged(fileSpec);
+        compilerFileChanged(path);
 
         //if it's an included file, switch to the parent file
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
@@ -835,7 +1094,12 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         {
             return;
         }
-        fileTracker.changeFile(path, params.getContentChanges());
+        //the version is optional in some older clients
+        int version = (textDocument.getVersion() != null) ? textDocument.getVersion() : DocumentSnapshot.UNKNOWN_VERSION;
+        fileTracker.changeFile(path, params.getContentChanges(), version);
+        //caches built from the compiler are invalidated later, when the
+        //compiler workspace receives the new contents
+        fileTextChanged(path);
 
         WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderDataForSourceFile(path);
         if (folderData == null)
@@ -851,25 +1115,18 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             return;
         }
 
+        Path changedPath = path;
         String normalizedChangedPathAsString = FilenameNormalization.normalize(path.toAbsolutePath().toString());
         IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedChangedPathAsString);
 
-        //if we're checking a compilation unit for problems in real time, and
-        //the path of this new change is the same, we'll re-check for problems
-        //when its done
+        //if we're already checking this file for problems in real time, the
+        //checker will pass the new contents to workspace.fileChanged() after
+        //the user stops typing for a moment
         //this is the fastest way to check for problems while the user is typing
-        
-        if(realTimeProblems && realTimeProblemsChecker != null)
+        if(realTimeProblems && realTimeProblemsChecker != null
+                && realTimeProblemsChecker.queueFileChange(fileSpec))
         {
-            synchronized(realTimeProblemsChecker)
-            {
-                IFileSpecification otherFileSpec = realTimeProblemsChecker.getFileSpecification();
-                if(otherFileSpec != null && otherFileSpec.getPath().equals(normalizedChangedPathAsString))
-                {
-                    realTimeProblemsChecker.setFileSpecification(fileSpec);
-                    return;
-                }
-            }
+            return;
         }
 
         ICompilationUnit unit = null;
@@ -892,6 +1149,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         }
 
         compilerWorkspace.fileChanged(fileSpec);
+        compilerFileChanged(changedPath);
 
         if(unit == null)
         {
@@ -904,8 +1162,11 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         {
             if(realTimeProblemsChecker == null)
             {
-                realTimeProblemsChecker = new RealTimeProblemsChecker(languageClient, compilerProblemFilter);
-                realTimeProblemsFuture = compilerWorkspace.getExecutorService().submit(realTimeProblemsChecker);
+                realTimeProblemsChecker = new RealTimeProblemsChecker(diagnosticsPublisher, compilerProblemFilter);
+                realTimeProblemsChecker.requestMetrics = requestMetrics;
+                realTimeProblemsChecker.fileChangedListener = this::compilerFileChanged;
+                realTimeProblemsChecker.setQuietPeriod(realTimeProblemsDelay);
+                realTimeProblemsFuture = scheduler.startDaemon("as3mxml-real-time-problems", realTimeProblemsChecker);
             }
             if(folderData.equals(workspaceFolderManager.getFallbackFolderData()))
             {
@@ -949,6 +1210,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         }
 
         fileTracker.closeFile(path);
+        supersedingRequests.documentClosed(textDocumentUri);
+        fileContentChanged(path);
 
         boolean clearProblems = false;
 
@@ -1001,10 +1264,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             ArrayList<Diagnostic> diagnostics = new ArrayList<>();
             publish.setDiagnostics(diagnostics);
             publish.setUri(uri.toString());
-            if (languageClient != null)
-            {
-                languageClient.publishDiagnostics(publish);
-            }
+            diagnosticsPublisher.publish(publish);
             return;
         }
 
@@ -1078,8 +1338,38 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     public void didChangeWatchedFiles(DidChangeWatchedFilesParams params, boolean checkForProblems)
     {
         Set<WorkspaceFolderData> foldersToCheck = new HashSet<>();
+        boolean configChanged = applyWatchedFileChanges(params.getChanges(), foldersToCheck);
+        if (checkForProblems)
+        {
+            for (WorkspaceFolderData folderData : foldersToCheck)
+            {
+                checkProjectForProblems(folderData);
+            }
+            if (configChanged && initialized && preWarm)
+            {
+                startPreWarm();
+            }
+        }
+    }
 
-        for (FileEvent event : params.getChanges())
+    /**
+     * Passes added, removed, and changed files to the compiler workspace, and
+     * adds the workspace folders that need to be checked for problems to the
+     * set. Returns true if a project's configuration changed.
+     */
+    private boolean applyWatchedFileChanges(List<FileEvent> changes, Set<WorkspaceFolderData> foldersToCheck)
+    {
+        boolean configChanged = false;
+        Set<String> createdUris = new HashSet<>();
+        for (FileEvent event : changes)
+        {
+            if (FileChangeType.Created.equals(event.getType()))
+            {
+                createdUris.add(event.getUri());
+            }
+        }
+
+        for (FileEvent event : changes)
         {
             Path changedPath = LanguageServerCompilerUtils.getPathFromLanguageServerURI(event.getUri());
             if (changedPath == null)
@@ -1095,6 +1385,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 if(changedPath.equals(config.getConfigFilePath()))
                 {
                     config.forceChanged();
+                    configChanged = true;
                     foldersToCheck.add(folderData);
                 }
             }
@@ -1104,6 +1395,9 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             String normalizedChangedPathAsString = FilenameNormalization.normalize(changedPath.toAbsolutePath().toString());
             if (normalizedChangedPathAsString.endsWith(SWC_EXTENSION))
             {
+                //metadata is keyed by the SWC's contents, so this just
+                //forgets the old contents
+                swcMetadataCache.fileChanged(changedPath);
                 List<WorkspaceFolderData> allFolderData = workspaceFolderManager.getAllWorkspaceFolderDataForSWCFile(changedPath);
                 if (allFolderData.size() > 0)
                 {
@@ -1116,6 +1410,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                     {
                         folderData.config.forceChanged();
                     }
+                    configChanged = true;
                     foldersToCheck.addAll(allFolderData);
                 }
             }
@@ -1131,6 +1426,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 {
                     IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedChangedPathAsString);
                     compilerWorkspace.fileRemoved(fileSpec);
+                    sourceFileAddedOrRemoved(Paths.get(normalizedChangedPathAsString));
+                    compilationUnitsAddedOrRemoved();
                     //deleting a file may change errors in other existing files,
                     //so we need to do a full check
                     foldersToCheck.addAll(allFolderData);
@@ -1139,6 +1436,8 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 {
                     IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedChangedPathAsString);
                     compilerWorkspace.fileAdded(fileSpec);
+                    sourceFileAddedOrRemoved(Paths.get(normalizedChangedPathAsString));
+                    compilationUnitsAddedOrRemoved();
                     //creating a file may change errors in other existing files,
                     //so we need to do a full check
                     foldersToCheck.addAll(allFolderData);
@@ -1147,6 +1446,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 {
                     IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedChangedPathAsString);
                     compilerWorkspace.fileChanged(fileSpec);
+                    fileContentChanged(changedPath);
                     foldersToCheck.addAll(allFolderData);
                 }
             }
@@ -1160,10 +1460,16 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                         public FileVisitResult visitFile(Path subPath, BasicFileAttributes attrs)
                         {
                             String normalizedSubPath = FilenameNormalization.normalize(subPath.toAbsolutePath().toString());
-                            if (normalizedSubPath.endsWith(AS_EXTENSION) || normalizedSubPath.endsWith(MXML_EXTENSION))
+                            if ((normalizedSubPath.endsWith(AS_EXTENSION) || normalizedSubPath.endsWith(MXML_EXTENSION))
+                                    //a batch of changes may also contain a
+                                    //separate event for this file
+                                    && !createdUris.contains(subPath.toUri().toString()))
                             {
                                 IFileSpecification fileSpec = fileTracker.getFileSpecification(normalizedSubPath);
                                 compilerWorkspace.fileAdded(fileSpec);
+                                sourceFileAddedOrRemoved(Paths.get(normalizedSubPath));
+                                compilationUnitsAddedOrRemoved();
+                                foldersToCheck.addAll(workspaceFolderManager.getAllWorkspaceFolderDataForSourceFile(subPath));
                             }
                             return FileVisitResult.CONTINUE;
                         }
@@ -1238,16 +1544,17 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                     fileToRemove = FilenameNormalization.normalize(pathToRemove.toAbsolutePath().toString());
                     IFileSpecification fileSpec = fileTracker.getFileSpecification(fileToRemove);
                     compilerWorkspace.fileRemoved(fileSpec);
+                    sourceFileAddedOrRemoved(Paths.get(fileToRemove));
+                    compilationUnitsAddedOrRemoved();
                 }
             }
         }
-        if (checkForProblems)
+        if (configChanged)
         {
-            for (WorkspaceFolderData folderData : foldersToCheck)
-            {
-                checkProjectForProblems(folderData);
-            }
+            //the affected projects will be recreated
+            cancelPreWarm();
         }
+        return configChanged;
     }
 
 	@Override
@@ -1258,10 +1565,21 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
 			return;
 		}
 		JsonObject settings = (JsonObject) params.getSettings();
+		//don't compete with projects that may need to be recreated
+		cancelPreWarm();
 		this.updateSDK(settings);
 		this.updateRealTimeProblems(settings);
+		this.updateRealTimeProblemsDelay(settings);
+		this.updateProblemCheckThreads(settings);
         this.updateSourcePathWarning(settings);
         this.updateJVMArgs(settings);
+        this.updatePreWarm(settings);
+        this.updateCompletionMaxItems(settings);
+        this.updateHeapBudget(settings);
+        if (initialized && preWarm)
+        {
+            startPreWarm();
+        }
 	}
 
 	@Override
@@ -1294,6 +1612,11 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         //this is the first time that we can notify the client about any
         //diagnostics
         checkForProblemsNow(false);
+
+        if (preWarm)
+        {
+            startPreWarm();
+        }
     }
 
     /**
@@ -1302,6 +1625,15 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
     public void checkForProblemsNow(boolean forceChange)
     {
         updateFrameworkSDK();
+        documentSymbolCache.invalidateAll();
+        for (WorkspaceFolderData folderData : getAllWorkspaceFolderData())
+        {
+            folderData.unitProblemCache.invalidateAll();
+            folderData.completionMemberCache.invalidateAll();
+            folderData.definitionIndex.invalidateAll();
+            folderData.memoryGovernor.invalidateAll();
+            folderData.unusedImportCache.invalidateAll();
+        }
         for (WorkspaceFolder folder : workspaceFolderManager.getWorkspaceFolders())
         {
             WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderData(folder);
@@ -1539,75 +1871,41 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         {
             public void run()
             {
+                FileEventCoalescer pendingChanges = new FileEventCoalescer();
+                Set<WorkspaceFolderData> foldersToCheckForProblems = new HashSet<WorkspaceFolderData>();
                 while(true)
                 {
-                    WatchKey watchKey = null;
                     try
                     {
                         //pause the thread while there are no changes pending,
                         //for better performance
-                        watchKey = sourcePathWatcher.take();
+                        WatchKey watchKey = sourcePathWatcher.take();
+                        long batchDeadline = System.currentTimeMillis() + SOURCE_PATH_WATCHER_MAX_DELAY;
+                        while (watchKey != null)
+                        {
+                            pollSourcePathWatchKey(watchKey, pendingChanges, foldersToCheckForProblems);
+                            //something like switching branches may change
+                            //thousands of files over a few seconds, so wait
+                            //until the changes settle, and handle them all
+                            //together
+                            long remaining = batchDeadline - System.currentTimeMillis();
+                            if (remaining <= 0)
+                            {
+                                break;
+                            }
+                            watchKey = sourcePathWatcher.poll(Math.min(SOURCE_PATH_WATCHER_SETTLE_DELAY, remaining), TimeUnit.MILLISECONDS);
+                        }
                     }
-                    catch(InterruptedException e)
+                    catch(InterruptedException | ClosedWatchServiceException e)
                     {
                         return;
                     }
-                    Set<WorkspaceFolderData> foldersToCheckForProblems = new HashSet<WorkspaceFolderData>();
-                    while (watchKey != null)
+                    if (!pendingChanges.isEmpty())
                     {
-                        for (WorkspaceFolder folder : workspaceFolderManager.getWorkspaceFolders())
-                        {
-                            WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderData(folder);
-                            if(!folderData.sourceOrLibraryPathWatchKeys.containsKey(watchKey))
-                            {
-                                continue;
-                            }
-                            foldersToCheckForProblems.add(folderData);
-                            List<FileEvent> changes = new ArrayList<>();
-                            Path path = folderData.sourceOrLibraryPathWatchKeys.get(watchKey);
-                            for (WatchEvent<?> event : watchKey.pollEvents())
-                            {
-                                WatchEvent.Kind<?> kind = event.kind();
-                                Path childPath = (Path) event.context();
-                                childPath = path.resolve(childPath);
-                                if(java.nio.file.Files.isDirectory(childPath))
-                                {
-                                    if(kind.equals(StandardWatchEventKinds.ENTRY_CREATE))
-                                    {
-                                        //if a new directory has been created under
-                                        //an existing that we're already watching,
-                                        //then start watching the new one too.
-                                        watchNewSourceOrLibraryPath(childPath, folderData);
-                                    }
-                                }
-                                FileChangeType changeType = FileChangeType.Changed;
-                                if(kind.equals(StandardWatchEventKinds.ENTRY_CREATE))
-                                {
-                                    changeType = FileChangeType.Created;
-                                }
-                                else if(kind.equals(StandardWatchEventKinds.ENTRY_DELETE))
-                                {
-                                    changeType = FileChangeType.Deleted;
-                                }
-                                changes.add(new FileEvent(childPath.toUri().toString(), changeType));
-                            }
-                            boolean valid = watchKey.reset();
-                            if (!valid)
-                            {
-                                folderData.sourceOrLibraryPathWatchKeys.remove(watchKey);
-                            }
-                            //convert to DidChangeWatchedFilesParams and pass
-                            //to didChangeWatchedFiles, as if a notification
-                            //had been sent from the client.
-                            DidChangeWatchedFilesParams params = new DidChangeWatchedFilesParams();
-                            params.setChanges(changes);
-                            didChangeWatchedFiles(params, false);
-                        }
-                        //keep handling new changes until we run out
-                        watchKey = sourcePathWatcher.poll();
+                        applyWatchedFileChanges(pendingChanges.drain(), foldersToCheckForProblems);
                     }
-                    //if we get here, watchKey is null, so there are no more
-                    //pending changes. now, we can check for problems.
+                    //now that the compiler workspace has every change, check
+                    //each affected folder only once
                     for (WorkspaceFolderData folderData : foldersToCheckForProblems)
                     {
                         checkProjectForProblems(folderData);
@@ -1619,6 +1917,90 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         sourcePathWatcherThread.start();
     }
 
+    private void pollSourcePathWatchKey(WatchKey watchKey, FileEventCoalescer pendingChanges, Set<WorkspaceFolderData> foldersToCheck)
+    {
+        //the same directory may be on the source path of multiple folders
+        Path path = null;
+        List<WorkspaceFolderData> watchingFolders = new ArrayList<>();
+        for (WorkspaceFolder folder : workspaceFolderManager.getWorkspaceFolders())
+        {
+            WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderData(folder);
+            Path watchedPath = folderData.sourceOrLibraryPathWatchKeys.get(watchKey);
+            if (watchedPath == null)
+            {
+                continue;
+            }
+            path = watchedPath;
+            watchingFolders.add(folderData);
+        }
+        if (path == null)
+        {
+            //the folder was removed
+            watchKey.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : watchKey.pollEvents())
+        {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind.equals(StandardWatchEventKinds.OVERFLOW))
+            {
+                //some events were lost, so the only way to be sure that the
+                //project matches the file system is to start fresh
+                for (WorkspaceFolderData folderData : watchingFolders)
+                {
+                    folderData.config.forceChanged();
+                }
+                foldersToCheck.addAll(watchingFolders);
+                continue;
+            }
+            Path childPath = (Path) event.context();
+            childPath = path.resolve(childPath);
+            boolean isDirectory = false;
+            Object fileKey = null;
+            if(!kind.equals(StandardWatchEventKinds.ENTRY_DELETE))
+            {
+                try
+                {
+                    BasicFileAttributes attributes = java.nio.file.Files.readAttributes(childPath, BasicFileAttributes.class);
+                    isDirectory = attributes.isDirectory();
+                    fileKey = attributes.fileKey();
+                }
+                catch(IOException e)
+                {
+                    //it may have been deleted already, and there will be
+                    //another event for that
+                }
+            }
+            if(kind.equals(StandardWatchEventKinds.ENTRY_CREATE) && isDirectory)
+            {
+                //if a new directory has been created under an existing that
+                //we're already watching, then start watching the new one too.
+                for (WorkspaceFolderData folderData : watchingFolders)
+                {
+                    watchNewSourceOrLibraryPath(childPath, folderData);
+                }
+            }
+            FileChangeType changeType = FileChangeType.Changed;
+            if(kind.equals(StandardWatchEventKinds.ENTRY_CREATE))
+            {
+                changeType = FileChangeType.Created;
+            }
+            else if(kind.equals(StandardWatchEventKinds.ENTRY_DELETE))
+            {
+                changeType = FileChangeType.Deleted;
+            }
+            pendingChanges.add(childPath, changeType, isDirectory, fileKey);
+        }
+        boolean valid = watchKey.reset();
+        if (!valid)
+        {
+            for (WorkspaceFolderData folderData : watchingFolders)
+            {
+                folderData.sourceOrLibraryPathWatchKeys.remove(watchKey);
+            }
+        }
+    }
+
     private void refreshProjectOptions(WorkspaceFolderData folderData)
     {
         IProjectConfigStrategy currentConfig = folderData.config;
@@ -1893,15 +2275,118 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         return project;
     }
 
-    private void checkProjectForProblems(WorkspaceFolderData folderData)
+    private List<WorkspaceFolderData> getAllWorkspaceFolderData()
     {
-        //make sure that the latest changes have been passed to
-        //workspace.fileChanged() before proceeding
-        if(realTimeProblemsChecker != null)
+        List<WorkspaceFolderData> result = new ArrayList<>();
+        for (WorkspaceFolder folder : workspaceFolderManager.getWorkspaceFolders())
+        {
+            WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderData(folder);
+            if (folderData != null)
+            {
+                result.add(folderData);
+            }
+        }
+        WorkspaceFolderData fallbackFolderData = workspaceFolderManager.getFallbackFolderData();
+        if (fallbackFolderData != null)
         {
-            realTimeProblemsChecker.updateNow();
+            result.add(fallbackFolderData);
         }
+        return result;
+    }
+
+    /**
+     * Called when the contents of a file change, but the file was not added
+     * or removed.
+     */
+    private void fileContentChanged(Path path)
+    {
+        fileTextChanged(path);
+        compilerFileChanged(path);
+    }
+
+    /**
+     * Called when the text of a file changes, which may happen before the
+     * compiler workspace receives the new contents. Invalidates only caches
+     * that are built from the text.
+     */
+    private void fileTextChanged(Path path)
+    {
+        identifierIndex.invalidateFile(path);
+    }
 
+    /**
+     * Called after the compiler workspace receives the new contents of a file.
+     * Invalidates caches that are built from compilation units.
+     */
+    private void compilerFileChanged(Path path)
+    {
+        workspaceSymbolIndex.invalidateFile(path);
+        documentSymbolCache.fileChanged(path);
+        for (WorkspaceFolderData folderData : getAllWorkspaceFolderData())
+        {
+            folderData.unitProblemCache.fileChanged(path);
+            folderData.completionMemberCache.fileChanged(path);
+            folderData.definitionIndex.fileChanged(path);
+            //the symbols and problems from an included file belong to the file
+            //that includes it
+            IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
+            if (includeFileData != null)
+            {
+                Path parentPath = Paths.get(includeFileData.parentPath);
+                workspaceSymbolIndex.invalidateFile(parentPath);
+                documentSymbolCache.fileChanged(parentPath);
+                folderData.unitProblemCache.fileChanged(parentPath);
+                folderData.completionMemberCache.fileChanged(parentPath);
+                folderData.definitionIndex.fileChanged(parentPath);
+            }
+        }
+    }
+
+    /**
+     * Called when a source file is added to or removed from the compiler
+     * workspace, before compilationUnitsAddedOrRemoved().
+     */
+    private void sourceFileAddedOrRemoved(Path path)
+    {
+        identifierIndex.invalidateFile(path);
+        for (WorkspaceFolderData folderData : getAllWorkspaceFolderData())
+        {
+            folderData.definitionIndex.fileChanged(path);
+        }
+    }
+
+    /**
+     * Called after files are added to or removed from the compiler workspace.
+     */
+    private void compilationUnitsAddedOrRemoved()
+    {
+        workspaceSymbolIndex.unitsAddedOrRemoved();
+        for (WorkspaceFolderData folderData : getAllWorkspaceFolderData())
+        {
+            //a new file may resolve problems in units that don't have a
+            //dependency on it yet, so check every unit
+            folderData.unitProblemCache.invalidateAll();
+            folderData.completionMemberCache.invalidateAll();
+            folderData.memoryGovernor.invalidateAll();
+            if (folderData.project == null)
+            {
+                continue;
+            }
+            //adding or removing a file may replace a compilation unit without
+            //changing the number of units, so the index can't detect it
+            folderData.project.invalidateCompilationUnitIndex();
+        }
+    }
+
+    /**
+     * Makes sure that the folder's project is up-to-date, and then queues a
+     * check of the entire project as background work, so that the thread
+     * that received the message or file system event doesn't wait for it.
+     * If a check for the same folder is already queued, it isn't queued
+     * again.
+     */
+    private void checkProjectForProblems(WorkspaceFolderData folderData)
+    {
         getProject(folderData);
         ILspProject project = folderData.project;
         ProjectOptions options = folderData.options;
@@ -1914,6 +2399,60 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             return;
         }
 
+        synchronized (foldersWithQueuedProblemCheck)
+        {
+            if (!foldersWithQueuedProblemCheck.add(folderData))
+            {
+                //the queued check will see the latest changes too
+                return;
+            }
+        }
+        scheduler.submit(Priority.BACKGROUND, () ->
+        {
+            synchronized (projectProblemCheckLock)
+            {
+                synchronized (foldersWithQueuedProblemCheck)
+                {
+                    //changes after this point need another check
+                    foldersWithQueuedProblemCheck.remove(folderData);
+                }
+                try
+                {
+                    checkProjectForProblemsNow(folderData);
+                }
+                catch (CancellationException e)
+                {
+                    //the thread was interrupted, so the problems are incomplete
+                    //and they aren't published
+                }
+                catch (Exception e)
+                {
+                    System.err.println("Exception while checking project for problems: " + folderData.folder.getUri());
+                    e.printStackTrace(System.err);
+                }
+            }
+        });
+    }
+
+    private void checkProjectForProblemsNow(WorkspaceFolderData folderData)
+    {
+        //make sure that the latest changes have been passed to
+        //workspace.fileChanged() before proceeding
+        RealTimeProblemsChecker checker = realTimeProblemsChecker;
+        if(checker != null)
+        {
+            checker.updateNow();
+        }
+
+        ILspProject project = folderData.project;
+        ProjectOptions options = folderData.options;
+        if(project == null || options == null)
+        {
+            //the configuration changed after the check was queued, and the
+            //folder will be checked again if a new project is created
+            return;
+        }
+
         ProblemQuery problemQuery = workspaceFolderDataToProblemQuery(folderData);
         compilerWorkspace.startBuilding();
         try
@@ -1945,7 +2484,16 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         {
             compilerWorkspace.doneBuilding();
         }
+        if (folderData.project != project)
+        {
+            //the project was replaced while it was being checked, so these
+            //problems are already stale
+            return;
+        }
         publishDiagnosticsForProblemQuery(problemQuery, folderData.codeProblemTracker, folderData, true);
+        //the units that were just checked are the most recently used, so
+        //they're the last to be evicted
+        folderData.memoryGovernor.evictIfNeeded(heapBudget, compilerWorkspace, fileTracker);
     }
 
     private void publishDiagnosticsForProblemQuery(ProblemQuery problemQuery, ProblemTracker problemTracker, WorkspaceFolderData folderData, boolean releaseStale)
@@ -2001,10 +2549,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         {
             problemTracker.makeStale();
         }
-        if (languageClient != null)
-        {
-            filesMap.values().forEach(languageClient::publishDiagnostics);
-        }
+        filesMap.values().forEach(diagnosticsPublisher::publish);
     }
 
     private ProblemQuery workspaceFolderDataToProblemQuery(WorkspaceFolderData folderData)
@@ -2019,18 +2564,18 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
 
     private void populateCompilationUnits(ILspProject project)
     {
-        List<ICompilerProblem> problems = new ArrayList<>();
-        boolean continueCheckingForErrors = true;
-        while (continueCheckingForErrors)
+        Set<ICompilationUnit> builtUnits = new HashSet<>();
+        while (true)
         {
+            //at this point, we want to build all compilation units,
+            //including the ones that aren't considered reachable yet.
+            //we'll filter out the unreachable units later
+            List<ICompilationUnit> unitsToBuild = new ArrayList<>();
             try
             {
-                //at this point, we want to build all compilation units,
-                //including the ones that aren't considered reachable yet.
-                //we'll filter out the unreachable units later
                 for (ICompilationUnit unit : project.getCompilationUnits())
                 {
-                    if (unit == null)
+                    if (unit == null || builtUnits.contains(unit))
                     {
                         continue;
                     }
@@ -2040,23 +2585,211 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                         //compiled compilation units won't have problems
                         continue;
                     }
-                    //reuse the existing list so that we don't allocate a list
-                    //for every compilation unit
-                    problems.clear();
-
-                    checkCompilationUnitForAllProblems(unit, project, problems);
-                    problems.clear();
+                    unitsToBuild.add(unit);
                 }
-                continueCheckingForErrors = false;
             }
             catch (ConcurrentModificationException e)
             {
-                //when we finished building one of the compilation
-                //units, more were added to the collection, so we need
-                //to start over because we can't iterate over a modified
-                //collection.
+                //more compilation units were added to the collection while
+                //we were copying it, so we need to start over because we
+                //can't iterate over a modified collection.
+                continue;
+            }
+            if (unitsToBuild.size() == 0)
+            {
+                break;
+            }
+            //building some compilation units may add more to the collection,
+            //so keep going until there are no new units
+            builtUnits.addAll(unitsToBuild);
+            buildCompilationUnits(unitsToBuild);
+        }
+    }
+
+    private synchronized ForkJoinPool getProblemCheckPool()
+    {
+        if (problemCheckPool == null)
+        {
+            int parallelism = problemCheckThreads;
+            if (parallelism <= 0)
+            {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            }
+            problemCheckPool = new ForkJoinPool(parallelism);
+        }
+        return problemCheckPool;
+    }
+
+    private synchronized void shutdownProblemCheckPool()
+    {
+        if (problemCheckPool == null)
+        {
+            return;
+        }
+        //tasks that were already submitted will still run
+        problemCheckPool.shutdown();
+        problemCheckPool = null;
+    }
+
+    /**
+     * Like CompletableFutures.computeAsync(), but queues the request with
+     * the specified priority and records its timing.
+     */
+    private <R> CompletableFuture<R> computeAsync(RequestTimer timer, Priority priority, Function<CancelChecker,R> code)
+    {
+        CompletableFuture<R> future = CompletableFutures.computeAsync(scheduler.getExecutor(priority), cancelToken ->
+        {
+            timer.started();
+            try
+            {
+                R result = code.apply(cancelToken);
+                timer.completed();
+                return result;
+            }
+            catch (CancellationException e)
+            {
+                timer.canceled();
+                throw e;
+            }
+            catch (RuntimeException | Error e)
+            {
+                timer.failed();
+                throw e;
+            }
+        });
+        return timer.track(future);
+    }
+
+    /**
+     * Starts resolving SWC definitions and building root files in the
+     * background, replacing any pre-warm that is already running. Projects
+     * must have already been created, which happens when a workspace folder
+     * is added.
+     */
+    private synchronized void startPreWarm()
+    {
+        cancelPreWarm();
+        preWarmTask = new PreWarmTask(getAllWorkspaceFolderData(), compilerWorkspace, scheduler, languageClient);
+        scheduler.submit(Priority.BACKGROUND, preWarmTask);
+    }
+
+    private synchronized void cancelPreWarm()
+    {
+        if (preWarmTask == null)
+        {
+            return;
+        }
+        //canceled cooperatively, between compilation units, instead of
+        //interrupting the compiler
+        preWarmTask.cancel();
+        preWarmTask = null;
+    }
+
+    private void buildCompilationUnits(List<ICompilationUnit> units)
+    {
+        runForEachCompilationUnit(units, unit ->
+        {
+            //the problems aren't needed here. they're collected later, for
+            //reachable units only.
+            List<ICompilerProblem> problems = new ArrayList<>();
+            buildCompilationUnit(unit, problems);
+            return problems;
+        });
+    }
+
+    /**
+     * Checks the compilation units for problems in parallel. The problems in
+     * the result are in the same order as the units.
+     */
+    private List<List<ICompilerProblem>> checkCompilationUnitsForAllProblems(List<ICompilationUnit> units, WorkspaceFolderData folderData)
+    {
+        return runForEachCompilationUnit(units, unit ->
+        {
+            List<ICompilerProblem> problems = new ArrayList<>();
+            checkCompilationUnitForAllProblems(unit, folderData, problems);
+            return problems;
+        });
+    }
+
+    /**
+     * Runs the task for each compilation unit, in parallel if possible. The
+     * results are in the same order as the units. If the current thread is
+     * interrupted while waiting, throws a CancellationException, and the
+     * thread's interrupted status is restored.
+     */
+    private List<List<ICompilerProblem>> runForEachCompilationUnit(List<ICompilationUnit> units, Function<ICompilationUnit,List<ICompilerProblem>> task)
+    {
+        List<List<ICompilerProblem>> result = new ArrayList<>(units.size());
+        ForkJoinPool pool = getProblemCheckPool();
+        if (units.size() < 2 || pool.getParallelism() == 1)
+        {
+            for (ICompilationUnit unit : units)
+            {
+                //let any requests that the user is waiting for go first
+                scheduler.yieldToForeground();
+                result.add(task.apply(unit));
+            }
+            return result;
+        }
+        //units are submitted in batches so that requests that the user is
+        //waiting for can go first between batches
+        int end = 0;
+        for (int start = 0; start < units.size(); start = end)
+        {
+            scheduler.yieldToForeground();
+            //the pool is replaced when the maximum number of threads changes
+            pool = getProblemCheckPool();
+            int batchSize = pool.getParallelism() * PROBLEM_CHECK_BATCH_SIZE_PER_THREAD;
+            end = Math.min(start + batchSize, units.size());
+            List<Callable<List<ICompilerProblem>>> callables = new ArrayList<>(end - start);
+            for (ICompilationUnit unit : units.subList(start, end))
+            {
+                callables.add(() -> task.apply(unit));
+            }
+            List<Future<List<ICompilerProblem>>> futures = null;
+            try
+            {
+                futures = pool.invokeAll(callables);
+            }
+            catch (RejectedExecutionException e)
+            {
+                //the pool was shut down after we got it, so check this batch
+                //on the current thread instead
+                for (ICompilationUnit unit : units.subList(start, end))
+                {
+                    result.add(task.apply(unit));
+                }
+                continue;
+            }
+            for (Future<List<ICompilerProblem>> future : futures)
+            {
+                try
+                {
+                    result.add(future.get());
+                }
+                catch (InterruptedException e)
+                {
+                    //the results would be incomplete, so stop instead of
+                    //waiting for the rest
+                    Thread.currentThread().interrupt();
+                    for (Future<List<ICompilerProblem>> otherFuture : futures)
+                    {
+                        otherFuture.cancel(true);
+                    }
+                    throw new CancellationException("Interrupted while checking compilation units");
+                }
+                catch (ExecutionException e)
+                {
+                    System.err.println("Exception while checking compilation unit for problems: " + e);
+                    e.printStackTrace(System.err);
+
+                    List<ICompilerProblem> problems = new ArrayList<>();
+                    problems.add(new InternalCompilerProblem(e));
+                    result.add(problems);
+                }
             }
         }
+        return result;
     }
 
     private void checkReachableCompilationUnitsForErrors(ProblemQuery problemQuery, WorkspaceFolderData folderData)
@@ -2129,10 +2862,19 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
             roots.add(openUnit);
         }
 
-        //start fresh when checking all compilation units
-        folderData.includedFiles.clear();
+        //units that haven't changed since the last check, and that don't
+        //depend on anything that has changed, can reuse their problems
+        CompilationUnitProblemCache unitProblemCache = folderData.unitProblemCache;
+        Set<ICompilationUnit> unitsToCheck = unitProblemCache.startCheck(project);
+        if (unitsToCheck == null)
+        {
+            //start fresh when checking all compilation units
+            folderData.includedFiles.clear();
+        }
 
-        List<ICompilerProblem> problems = new ArrayList<>();
+        List<ICompilationUnit> checkedUnits = new ArrayList<>();
+        List<ICompilationUnit> unitsToCheckNow = new ArrayList<>();
+        Map<ICompilationUnit,List<ICompilerProblem>> problemsByUnit = new HashMap<>();
         List<ICompilationUnit> reachableUnits = new ArrayList<>();
         //there shouldn't be any concurrent modification exceptions when looping
         //over the reachable units, but to be safe, copy all of the compilation
@@ -2163,10 +2905,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 PublishDiagnosticsParams publish = new PublishDiagnosticsParams();
                 publish.setDiagnostics(new ArrayList<>());
                 publish.setUri(unitUri.toString());
-                if (languageClient != null)
-                {
-                    languageClient.publishDiagnostics(publish);
-                }
+                diagnosticsPublisher.publish(publish);
             }
 
             //we don't check for errors in the fallback project
@@ -2199,24 +2938,92 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 continue;
             }
 
-            //reuse the existing list so that we don't allocate a list
-            //for every compilation unit
-            problems.clear();
+            checkedUnits.add(unit);
+            if (unitsToCheck != null && !unitsToCheck.contains(unit))
+            {
+                List<ICompilerProblem> cachedProblems = unitProblemCache.getProblems(unit);
+                if (cachedProblems != null)
+                {
+                    problemsByUnit.put(unit, cachedProblems);
+                    continue;
+                }
+            }
+            folderData.memoryGovernor.recordAccess(unit);
+            unitsToCheckNow.add(unit);
+        }
 
-            //we should have already built, so this will be fast
-            //if we hadn't built, we would not have all of the roots
-            checkCompilationUnitForAllProblems(unit, project, problems);
-            problemQuery.addAll(problems);
-            //clear for the next compilation unit
-            problems.clear();
+        //we should have already built, so this will be fast
+        //if we hadn't built, we would not have all of the roots
+        List<List<ICompilerProblem>> newProblems = null;
+        try
+        {
+            newProblems = checkCompilationUnitsForAllProblems(unitsToCheckNow, folderData);
+        }
+        catch (CancellationException e)
+        {
+            //the changed paths were already consumed by startCheck(), so the
+            //cached problems can't be trusted anymore
+            unitProblemCache.invalidateAll();
+            throw e;
+        }
+        for (int i = 0; i < unitsToCheckNow.size(); i++)
+        {
+            ICompilationUnit unit = unitsToCheckNow.get(i);
+            List<ICompilerProblem> problems = newProblems.get(i);
+            problemsByUnit.put(unit, problems);
+            unitProblemCache.setProblems(unit, problems);
 
             //just to be safe, find all of the included files
             //after we've checked for problems
+            //the includes from the previous check may have been removed, and
+            //their offset cues shouldn't be added twice
+            String unitPath = unit.getAbsoluteFilename();
+            folderData.includedFiles.values().removeIf(includeFileData -> unitPath.equals(includeFileData.parentPath));
             CompilationUnitUtils.findIncludedFiles(unit, folderData.includedFiles);
         }
+
+        //add the problems in the same order as the units, no matter which
+        //thread finished first
+        for (ICompilationUnit unit : checkedUnits)
+        {
+            problemQuery.addAll(problemsByUnit.get(unit));
+        }
+        //forget about units that are no longer reachable
+        unitProblemCache.retainUnits(reachableUnits);
     }
 
-    private void checkCompilationUnitForAllProblems(ICompilationUnit unit, ILspProject project, List<ICompilerProblem> problems)
+    private void buildCompilationUnit(ICompilationUnit unit, List<ICompilerProblem> problems)
+    {
+        try
+        {
+            if(initialized)
+            {
+                //if we pass in null, it's designed to ignore certain errors
+                //that don't matter for IDE code intelligence.
+                unit.waitForBuildFinish(problems, null);
+            }
+            else
+            {
+                //we can't publish diagnostics yet, but we can start the build
+                //process in the background so that it's faster when we're ready
+                //to publish diagnostics after initialization
+                unit.getSyntaxTreeRequest();
+                unit.getFileScopeRequest();
+                unit.getOutgoingDependenciesRequest();
+                unit.getABCBytesRequest();
+            }
+        }
+        catch (Exception e)
+        {
+            System.err.println("Exception during waitForBuildFinish(): " + e);
+            e.printStackTrace(System.err);
+
+            InternalCompilerProblem problem = new InternalCompilerProblem(e);
+            problems.add(problem);
+        }
+    }
+
+    private void checkCompilationUnitForAllProblems(ICompilationUnit unit, WorkspaceFolderData folderData, List<ICompilerProblem> problems)
     {
         try
         {
@@ -2226,13 +3033,13 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
                 //that don't matter for IDE code intelligence.
                 unit.waitForBuildFinish(problems, null);
 
-                //note: we check for unused imports only for full builds because
-                //it's a little too expensive to do it for real-time problems
+                //the real-time checker may have already requested the
+                //dependencies for the same build of this unit
                 IASNode ast = ASTUtils.getCompilationUnitAST(unit);
                 if(ast != null)
                 {
-                    Set<String> requiredImports = project.getQNamesOfDependencies(unit);
-                    ASTUtils.findUnusedImportProblems(ast, requiredImports, problems);
+                    folderData.unusedImportCache.findUnusedImportProblems(unit, ast, true,
+                            unit.getOutgoingDependenciesRequest().get(), folderData.project, problems);
                     //TODO: enable after royale-compiler provides the correct range
                     //ASTUtils.findDisabledConfigConditionBlockProblems(ast, problems);
                 }
@@ -2354,6 +3161,124 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
         }
 	}
 
+	private void updateRealTimeProblemsDelay(JsonObject settings)
+	{
+		if (!settings.has("as3mxml"))
+		{
+			return;
+		}
+		JsonObject as3mxml = settings.get("as3mxml").getAsJsonObject();
+		if (!as3mxml.has("problems"))
+		{
+			return;
+		}
+		JsonObject problems = as3mxml.get("problems").getAsJsonObject();
+		if (!problems.has("realTimeDelay"))
+		{
+			return;
+		}
+		long newRealTimeProblemsDelay = problems.get("realTimeDelay").getAsLong();
+		if(realTimeProblemsDelay == newRealTimeProblemsDelay)
+		{
+			return;
+		}
+		realTimeProblemsDelay = newRealTimeProblemsDelay;
+		if(realTimeProblemsChecker != null)
+		{
+			realTimeProblemsChecker.setQuietPeriod(realTimeProblemsDelay);
+		}
+	}
+
+	private void updateProblemCheckThreads(JsonObject settings)
+	{
+		if (!settings.has("as3mxml"))
+		{
+			return;
+		}
+		JsonObject as3mxml = settings.get("as3mxml").getAsJsonObject();
+		if (!as3mxml.has("problems"))
+		{
+			return;
+		}
+		JsonObject problems = as3mxml.get("problems").getAsJsonObject();
+		if (!problems.has("maxThreads"))
+		{
+			return;
+		}
+		int newProblemCheckThreads = problems.get("maxThreads").getAsInt();
+		if(problemCheckThreads == newProblemCheckThreads)
+		{
+			return;
+		}
+		problemCheckThreads = newProblemCheckThreads;
+		//a new pool will be created with the new size the next time that we
+		//check for problems. a check that is still using the old pool will
+		//finish its current batch, and it will get the new pool for the next.
+		shutdownProblemCheckPool();
+	}
+
+	private void updatePreWarm(JsonObject settings)
+	{
+		if (!settings.has("as3mxml"))
+		{
+			return;
+		}
+		JsonObject as3mxml = settings.get("as3mxml").getAsJsonObject();
+		if (!as3mxml.has("languageServer"))
+		{
+			return;
+		}
+		JsonObject languageServer = as3mxml.get("languageServer").getAsJsonObject();
+		if (!languageServer.has("preWarm"))
+		{
+			return;
+		}
+		preWarm = languageServer.get("preWarm").getAsBoolean();
+	}
+
+	private void updateCompletionMaxItems(JsonObject settings)
+	{
+		if (!settings.has("as3mxml"))
+		{
+			return;
+		}
+		JsonObject as3mxml = settings.get("as3mxml").getAsJsonObject();
+		if (!as3mxml.has("completion"))
+		{
+			return;
+		}
+		JsonObject completion = as3mxml.get("completion").getAsJsonObject();
+		if (!completion.has("maxItems"))
+		{
+			return;
+		}
+		int newMaxItems = completion.get("maxItems").getAsInt();
+		if (completionListFilter.getMaxItems() == newMaxItems)
+		{
+			return;
+		}
+		completionListFilter.setMaxItems(newMaxItems);
+	}
+
+	private void updateHeapBudget(JsonObject settings)
+	{
+		if (!settings.has("as3mxml"))
+		{
+			return;
+		}
+		JsonObject as3mxml = settings.get("as3mxml").getAsJsonObject();
+		if (!as3mxml.has("languageServer"))
+		{
+			return;
+		}
+		JsonObject languageServer = as3mxml.get("languageServer").getAsJsonObject();
+		if (!languageServer.has("heapBudget"))
+		{
+			return;
+		}
+		heapBudget = languageServer.get("heapBudget").getAsLong() * BYTES_PER_MEGABYTE;
+	}
+
 	private void updateSourcePathWarning(JsonObject settings)
 	{
 		if (!settings.has("as3mxml"))
@@ -2419,7 +3344,7 @@ public class ActionScriptServices implements TextDocumentService, WorkspaceServi
 
     private CompletableFuture<Object> executeQuickCompileCommand(ExecuteCommandParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        return CompletableFutures.computeAsync(scheduler.getExecutor(Priority.BACKGROUND), cancelToken ->
         {
             List<Object> args = params.getArguments();
             String uri = ((JsonPrimitive) args.get(0)).getAsString();
@@ -22,4 +22,5 @@ public interface ICommandConstants
 	public static final String ORGANIZE_IMPORTS_IN_URI = "as3mxml.organizeImportsInUri";
 	public static final String ORGANIZE_IMPORTS_IN_DIRECTORY = "as3mxml.organizeImportsInDirectory";
 	public static final String QUICK_COMPILE = "as3mxml.quickCompile";
+	public static final String LOG_METRICS = "as3mxml.logLanguageServerMetrics";
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.project;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.royale.compiler.projects.ICompilerProject;
+import org.apache.royale.compiler.units.ICompilationUnit;
+
+/**
+ * Maps file paths to the compilation units of a project, so that finding the
+ * unit for a file doesn't require a scan of every unit in the project.
+ *
+ * The index is built lazily. It is rebuilt after invalidate() is called, or
+ * if the number of compilation units in the project changes.
+ */
+public class CompilationUnitIndex
+{
+    public CompilationUnitIndex(ICompilerProject project)
+    {
+        this.project = project;
+    }
+
+    private ICompilerProject project;
+    private volatile Map<Path,ICompilationUnit> unitsByPath;
+    private volatile int unitCount = -1;
+
+    public ICompilationUnit findCompilationUnit(Path path)
+    {
+        if(path == null)
+        {
+            return null;
+        }
+        Map<Path,ICompilationUnit> units = unitsByPath;
+        if(units == null || unitCount != project.getCompilationUnits().size())
+        {
+            units = rebuild();
+        }
+        return units.get(path);
+    }
+
+    /**
+     * Should be called when files are added to or removed from the
+     * workspace.
+     */
+    public synchronized void invalidate()
+    {
+        unitsByPath = null;
+    }
+
+    private synchronized Map<Path,ICompilationUnit> rebuild()
+    {
+        Collection<ICompilationUnit> compilationUnits = project.getCompilationUnits();
+        Map<Path,ICompilationUnit> result = new HashMap<>();
+        int count = 0;
+        for (ICompilationUnit unit : compilationUnits)
+        {
+            count++;
+            //it's possible for the collection of compilation units to contain
+            //null values, so be sure to check for null values before checking
+            //the file name
+            if (unit == null)
+            {
+                continue;
+            }
+            Path unitPath = Paths.get(unit.getAbsoluteFilename());
+            //if more than one unit has the same path, keep the first one, like
+            //a linear search would
+            result.putIfAbsent(unitPath, unit);
+        }
+        unitCount = count;
+        unitsByPath = result;
+        return result;
+    }
+}
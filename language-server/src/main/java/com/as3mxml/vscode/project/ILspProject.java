@@ -15,6 +15,7 @@ limitations under the License.
 */
 package com.as3mxml.vscode.project;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Set;
 
@@ -28,10 +29,13 @@ import org.apache.royale.compiler.units.ICompilationUnit;
 public interface ILspProject extends IRoyaleProject
 {  
 	public Set<String> getQNamesOfDependencies(ICompilationUnit from);
+	public Set<ICompilationUnit> getDirectDependents(ICompilationUnit to);
 	public IDefinition resolveSpecifier(IClassDefinition classDefinition, String specifierName);
 	public Collection<ICompilerProblem> getFatalProblems();
 	public ITargetSettings getTargetSettings();
 	public void setTargetSettings(ITargetSettings value);
 	public String getContainerInterface();
 	public void collectProblems(Collection<ICompilerProblem> problems);
+	public ICompilationUnit findCompilationUnit(Path path);
+	public void invalidateCompilationUnitIndex();
 }
\ No newline at end of file
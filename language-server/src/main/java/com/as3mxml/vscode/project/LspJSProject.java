@@ -15,6 +15,7 @@ limitations under the License.
 */
 package com.as3mxml.vscode.project;
 
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +33,18 @@ public class LspJSProject extends RoyaleJSProject implements ILspProject
 		super(workspace, backend);
 	}
 
+	private CompilationUnitIndex compilationUnitIndex = new CompilationUnitIndex(this);
+
+	public ICompilationUnit findCompilationUnit(Path path)
+	{
+		return compilationUnitIndex.findCompilationUnit(path);
+	}
+
+	public void invalidateCompilationUnitIndex()
+	{
+		compilationUnitIndex.invalidate();
+	}
+
 	public Set<String> getQNamesOfDependencies(ICompilationUnit from)
 	{
 		Set<String> result = new HashSet<>();
@@ -43,4 +56,9 @@ public class LspJSProject extends RoyaleJSProject implements ILspProject
 		}
 		return result;
 	}
+
+	public Set<ICompilationUnit> getDirectDependents(ICompilationUnit to)
+	{
+		return dependencyGraph.getDirectReverseDependencies(to, DependencyTypeSet.allOf());
+	}
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ limitations under the License.
 */
 package com.as3mxml.vscode.project;
 
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +32,18 @@ public class LspProject extends RoyaleProject implements ILspProject
 		super(workspace);
 	}
 
+	private CompilationUnitIndex compilationUnitIndex = new CompilationUnitIndex(this);
+
+	public ICompilationUnit findCompilationUnit(Path path)
+	{
+		return compilationUnitIndex.findCompilationUnit(path);
+	}
+
+	public void invalidateCompilationUnitIndex()
+	{
+		compilationUnitIndex.invalidate();
+	}
+
 	public Set<String> getQNamesOfDependencies(ICompilationUnit from)
 	{
 		Set<String> result = new HashSet<>();
@@ -42,4 +55,9 @@ public class LspProject extends RoyaleProject implements ILspProject
 		}
 		return result;
 	}
+
+	public Set<ICompilationUnit> getDirectDependents(ICompilationUnit to)
+	{
+		return dependencyGraph.getDirectReverseDependencies(to, DependencyTypeSet.allOf());
+	}
 }
\ No newline at end of file
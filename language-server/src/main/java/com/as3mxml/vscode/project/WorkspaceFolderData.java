@@ -20,8 +20,13 @@ import java.nio.file.WatchKey;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.as3mxml.vscode.utils.CompilationUnitMemoryGovernor;
+import com.as3mxml.vscode.utils.CompilationUnitProblemCache;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
+import com.as3mxml.vscode.utils.CompletionMemberCache;
+import com.as3mxml.vscode.utils.DefinitionIndex;
 import com.as3mxml.vscode.utils.ProblemTracker;
+import com.as3mxml.vscode.utils.UnusedImportCache;
 
 import org.apache.royale.compiler.internal.projects.RoyaleProjectConfigurator;
 import org.eclipse.lsp4j.WorkspaceFolder;
@@ -44,6 +49,11 @@ public class WorkspaceFolderData
     public ProblemTracker codeProblemTracker = new ProblemTracker();
 	public ProblemTracker configProblemTracker = new ProblemTracker();
     public Map<String,IncludeFileData> includedFiles = new HashMap<>();
+    public CompilationUnitProblemCache unitProblemCache = new CompilationUnitProblemCache();
+    public CompletionMemberCache completionMemberCache = new CompletionMemberCache();
+    public DefinitionIndex definitionIndex = new DefinitionIndex();
+    public CompilationUnitMemoryGovernor memoryGovernor = new CompilationUnitMemoryGovernor();
+    public UnusedImportCache unusedImportCache = new UnusedImportCache();
 	
 	public void cleanup()
 	{
@@ -60,5 +70,10 @@ public class WorkspaceFolderData
 		sourceOrLibraryPathWatchKeys.clear();
 		
 		configurator = null;
+		unitProblemCache.invalidateAll();
+		completionMemberCache.invalidateAll();
+		definitionIndex.invalidateAll();
+		memoryGovernor.invalidateAll();
+		unusedImportCache.invalidateAll();
 	}
 }
\ No newline at end of file
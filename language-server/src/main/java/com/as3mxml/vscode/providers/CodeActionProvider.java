@@ -15,7 +15,6 @@ limitations under the License.
 */
 package com.as3mxml.vscode.providers;
 
-import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,8 +30,8 @@ import com.as3mxml.vscode.utils.CompilerProjectUtils;
 import com.as3mxml.vscode.utils.FileTracker;
 import com.as3mxml.vscode.utils.ImportRange;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
+import com.as3mxml.vscode.utils.LineIndex;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
-import com.as3mxml.vscode.utils.SourcePathUtils;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
 import com.google.common.collect.Lists;
 import com.google.gson.JsonObject;
@@ -103,7 +102,7 @@ public class CodeActionProvider
 		}
 		ILspProject project = folderData.project;
 
-		if (project == null || !SourcePathUtils.isInProjectSourcePath(path, project, folderData.configurator))
+		if (project == null || !workspaceFolderManager.isInProjectSourcePath(path, folderData))
 		{
 			cancelToken.checkCanceled();
 			//the path must be in the workspace or source-path
@@ -118,7 +117,7 @@ public class CodeActionProvider
 		ICompilationUnit unit = CompilerProjectUtils.findCompilationUnit(path, project);
 		if (unit != null)
 		{
-			IASNode ast = ASTUtils.getCompilationUnitAST(unit);
+			IASNode ast = folderData.memoryGovernor.getAST(unit);
 			if (ast != null)
 			{
 				String fileText = fileTracker.getText(path);
@@ -237,7 +236,7 @@ public class CodeActionProvider
     {
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if (offsetNode instanceof IMXMLInstanceNode)
         {
@@ -249,7 +248,7 @@ public class CodeActionProvider
                 {
                     //workaround for bug in Royale compiler
                     Position newPosition = new Position(position.getLine(), position.getCharacter() + 1);
-                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), newPosition, includeFileData);
+                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), newPosition, includeFileData);
                     offsetNode = workspaceFolderManager.getEmbeddedActionScriptNodeInMXMLTag(offsetTag, path, newOffset, folderData);
                 }
             }
@@ -304,7 +303,7 @@ public class CodeActionProvider
     {
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if (offsetNode instanceof IMXMLInstanceNode)
         {
@@ -316,7 +315,7 @@ public class CodeActionProvider
                 {
                     //workaround for bug in Royale compiler
                     Position newPosition = new Position(position.getLine(), position.getCharacter() + 1);
-                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), newPosition, includeFileData);
+                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), newPosition, includeFileData);
                     offsetNode = workspaceFolderManager.getEmbeddedActionScriptNodeInMXMLTag(offsetTag, path, newOffset, folderData);
                 }
             }
@@ -356,7 +355,7 @@ public class CodeActionProvider
         ILspProject project = folderData.project;
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if(!(offsetNode instanceof ITryNode))
         {
@@ -389,7 +388,7 @@ public class CodeActionProvider
         ILspProject project = folderData.project;
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if (offsetNode == null)
         {
@@ -436,7 +435,7 @@ public class CodeActionProvider
         ILspProject project = folderData.project;
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if (offsetNode == null)
         {
@@ -452,7 +451,7 @@ public class CodeActionProvider
                 {
                     //workaround for bug in Royale compiler
                     Position newPosition = new Position(position.getLine(), position.getCharacter() + 1);
-                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), newPosition, includeFileData);
+                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), newPosition, includeFileData);
                     offsetNode = workspaceFolderManager.getEmbeddedActionScriptNodeInMXMLTag(offsetTag, path, newOffset, folderData);
                 }
             }
@@ -507,7 +506,7 @@ public class CodeActionProvider
         ILspProject project = folderData.project;
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         if (offsetNode == null)
         {
@@ -523,7 +522,7 @@ public class CodeActionProvider
                 {
                     //workaround for bug in Royale compiler
                     Position newPosition = new Position(position.getLine(), position.getCharacter() + 1);
-                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), newPosition, includeFileData);
+                    int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), newPosition, includeFileData);
                     offsetNode = workspaceFolderManager.getEmbeddedActionScriptNodeInMXMLTag(offsetTag, path, newOffset, folderData);
                 }
             }
@@ -611,7 +610,7 @@ public class CodeActionProvider
         ILspProject project = folderData.project;
         Position position = diagnostic.getRange().getStart();
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
         IASNode offsetNode = workspaceFolderManager.getOffsetNode(path, currentOffset, folderData);
         IMXMLTagData offsetTag = null;
         boolean isMXML = path.toUri().toString().endsWith(MXML_EXTENSION);
@@ -627,7 +626,7 @@ public class CodeActionProvider
         {
             //workaround for bug in Royale compiler
             Position newPosition = new Position(position.getLine(), position.getCharacter() + 1);
-            int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), newPosition, includeFileData);
+            int newOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), newPosition, includeFileData);
             offsetNode = workspaceFolderManager.getEmbeddedActionScriptNodeInMXMLTag(offsetTag, path, newOffset, folderData);
         }
         if (offsetNode == null || !(offsetNode instanceof IIdentifierNode))
@@ -653,7 +652,7 @@ public class CodeActionProvider
         IIdentifierNode identifierNode = (IIdentifierNode) offsetNode;
         String typeString = identifierNode.getName();
 
-        List<IDefinition> types = ASTUtils.findTypesThatMatchName(typeString, project.getCompilationUnits());
+        List<IDefinition> types = ASTUtils.findTypesThatMatchName(typeString, folderData.definitionIndex, project);
         for (IDefinition definitionToImport : types)
         {
             WorkspaceEdit edit = CodeActionsUtils.createWorkspaceEditForAddImport(definitionToImport, fileText, uri, importRange);
@@ -673,7 +672,8 @@ public class CodeActionProvider
     private void createCodeActionsForUnusedImport(Path path, Diagnostic diagnostic, WorkspaceFolderData folderData, List<Either<Command, CodeAction>> codeActions)
     {
         String fileText = fileTracker.getText(path);
-        if(fileText == null)
+        LineIndex lineIndex = fileTracker.getLineIndex(path);
+        if(fileText == null || lineIndex == null)
         {
             return;
         }
@@ -685,8 +685,8 @@ public class CodeActionProvider
             return;
         }
 
-        int startOffset = LanguageServerCompilerUtils.getOffsetFromPosition(new StringReader(fileText), range.getStart());
-        int endOffset = LanguageServerCompilerUtils.getOffsetFromPosition(new StringReader(fileText), range.getEnd());
+        int startOffset = lineIndex.getOffsetFromPosition(range.getStart());
+        int endOffset = lineIndex.getOffsetFromPosition(range.getEnd());
 
         String importText = fileText.substring(startOffset, endOffset);
         CodeAction codeAction = new CodeAction();
@@ -18,11 +18,11 @@ package com.as3mxml.vscode.providers;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -34,11 +34,15 @@ import com.as3mxml.vscode.utils.CodeActionsUtils;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
 import com.as3mxml.vscode.utils.CompilerProjectUtils;
 import com.as3mxml.vscode.utils.CompletionItemUtils;
+import com.as3mxml.vscode.utils.CompletionMemberCache;
+import com.as3mxml.vscode.utils.CompletionMemberCache.CachedMembers;
+import com.as3mxml.vscode.utils.DefinitionIndex;
 import com.as3mxml.vscode.utils.DefinitionTextUtils;
 import com.as3mxml.vscode.utils.DefinitionUtils;
 import com.as3mxml.vscode.utils.FileTracker;
 import com.as3mxml.vscode.utils.ImportRange;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
+import com.as3mxml.vscode.utils.LineIndex;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
 import com.as3mxml.vscode.utils.MXMLNamespace;
 import com.as3mxml.vscode.utils.MXMLNamespaceUtils;
@@ -127,7 +131,9 @@ public class CompletionProvider
     private FileTracker fileTracker;
 	private boolean completionSupportsSnippets;
 	private boolean frameworkSDKIsRoyale;
-    private List<String> completionTypes = new ArrayList<>();
+    private Set<String> completionTypes = new HashSet<>();
+    private CompletionMemberCache memberCache;
+    private DefinitionIndex definitionIndex;
 
     public CompletionProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker,
         boolean completionSupportsSnippets, boolean frameworkSDKIsRoyale)
@@ -169,9 +175,11 @@ public class CompletionProvider
 				return Either.forRight(result);
 			}
 			ILspProject project = folderData.project;
+			memberCache = folderData.completionMemberCache;
+			definitionIndex = folderData.definitionIndex;
 
             IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-			int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+			int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
 			if (currentOffset == -1)
 			{
 				CompletionList result = new CompletionList();
@@ -653,9 +661,10 @@ public class CompletionProvider
         AddImportData addImportData = CodeActionsUtils.findAddImportData(fileText, importRange);
         XmlnsRange xmlnsRange = XmlnsRange.fromOffsetTag(offsetTag, currentOffset);
         Position xmlnsPosition = null;
-        if (xmlnsRange.endIndex >= 0)
+        LineIndex lineIndex = fileTracker.getLineIndex(path);
+        if (xmlnsRange.endIndex >= 0 && lineIndex != null)
         {
-            xmlnsPosition = LanguageServerCompilerUtils.getPositionFromOffset(new StringReader(fileText), xmlnsRange.endIndex);
+            xmlnsPosition = lineIndex.getPositionFromOffset(xmlnsRange.endIndex);
         }
 
         boolean tagsNeedOpenBracket = getTagsNeedOpenBracket(path, currentOffset);
@@ -1346,57 +1355,43 @@ public class CompletionProvider
     private void autoCompleteImport(String importName, ILspProject project, CompletionList result)
     {
         List<CompletionItem> items = result.getItems();
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        String packageName = "";
+        String partialName = importName;
+        int index = importName.lastIndexOf(".");
+        if (index != -1)
         {
-            if (unit == null)
+            packageName = importName.substring(0, index);
+            partialName = importName.substring(index + 1);
+        }
+        for (String subPackageName : definitionIndex.getSubPackageNames(packageName, project))
+        {
+            if (!subPackageName.startsWith(partialName))
             {
                 continue;
             }
-            Collection<IDefinition> definitions = null;
-            try
-            {
-                definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-            }
-            catch (Exception e)
+            CompletionItem item = new CompletionItem();
+            item.setLabel(subPackageName);
+            item.setKind(CompletionItemKind.Text);
+            items.add(item);
+        }
+        if (packageName.length() == 0)
+        {
+            //top-level definitions don't require an import
+            return;
+        }
+        for (IDefinition definition : definitionIndex.getDefinitionsInPackage(packageName, project))
+        {
+            String baseName = definition.getBaseName();
+            if (!baseName.startsWith(partialName))
             {
-                //safe to ignore
                 continue;
             }
-            for (IDefinition definition : definitions)
+            CompletionItem item = new CompletionItem();
+            item.setLabel(baseName);
+            item.setKind(LanguageServerCompilerUtils.getCompletionItemKindFromDefinition(definition));
+            if (!items.contains(item))
             {
-                String qualifiedName = definition.getQualifiedName();
-                if (qualifiedName.equals(definition.getBaseName()))
-                {
-                    //this definition is top-level. no import required.
-                    continue;
-                }
-                if (qualifiedName.startsWith(importName))
-                {
-                    int index = importName.lastIndexOf(".");
-                    if (index != -1)
-                    {
-                        qualifiedName = qualifiedName.substring(index + 1);
-                    }
-                    index = qualifiedName.indexOf(".");
-                    if (index > 0)
-                    {
-                        qualifiedName = qualifiedName.substring(0, index);
-                    }
-                    CompletionItem item = new CompletionItem();
-                    item.setLabel(qualifiedName);
-                    if (definition.getBaseName().equals(qualifiedName))
-                    {
-                        item.setKind(LanguageServerCompilerUtils.getCompletionItemKindFromDefinition(definition));
-                    }
-                    else
-                    {
-                        item.setKind(CompletionItemKind.Text);
-                    }
-                    if (!items.contains(item))
-                    {
-                        items.add(item);
-                    }
-                }
+                items.add(item);
             }
         }
     }
@@ -1613,12 +1608,58 @@ public class CompletionProvider
         boolean forMXML, boolean isAttribute, String prefix, boolean tagsNeedOpenBracket,
         char nextChar, AddImportData addImportData, Position xmlnsPosition,
         IMXMLTagData offsetTag, ILspProject project, CompletionList result)
+    {
+        Set<INamespaceDefinition> namespaceSet = ScopeUtils.getNamespaceSetForScopes(typeScope, otherScope, project);
+        ITypeDefinition typeDefinition = null;
+        String filter = null;
+        CachedMembers cachedMembers = null;
+        if (memberCache != null && typeScope.getDefinition() instanceof ITypeDefinition)
+        {
+            typeDefinition = (ITypeDefinition) typeScope.getDefinition();
+            filter = isStatic + "," + includeSuperStatics + "," + forMXML;
+            cachedMembers = memberCache.get(typeDefinition, namespaceSet, filter);
+        }
+        List<IDefinition> definitions = null;
+        if (cachedMembers != null)
+        {
+            definitions = cachedMembers.getDefinitions();
+        }
+        else
+        {
+            definitions = findDefinitionsInTypeScopeForAutoComplete(typeScope, namespaceSet, isStatic, includeSuperStatics, forMXML, project);
+            if (typeDefinition != null)
+            {
+                cachedMembers = memberCache.put(typeDefinition, namespaceSet, filter, definitions, project);
+            }
+        }
+        for (int i = 0; i < definitions.size(); i++)
+        {
+            IDefinition localDefinition = definitions.get(i);
+            if (forMXML)
+            {
+                addDefinitionAutoCompleteMXML(localDefinition, xmlnsPosition, isAttribute, prefix, null, tagsNeedOpenBracket, nextChar, offsetTag, project, result);
+            }
+            else //actionscript
+            {
+                //the detail and documentation of each member are formatted
+                //only once, and the item is customized for this request
+                CompletionItem item = null;
+                if (cachedMembers != null)
+                {
+                    item = cachedMembers.createItem(i, project);
+                }
+                addDefinitionAutoCompleteActionScript(localDefinition, null, nextChar, addImportData, item, project, result);
+            }
+        }
+    }
+
+    private List<IDefinition> findDefinitionsInTypeScopeForAutoComplete(TypeScope typeScope, Set<INamespaceDefinition> namespaceSet,
+        boolean isStatic, boolean includeSuperStatics, boolean forMXML, ILspProject project)
     {
         IMetaTag[] excludeMetaTags = typeScope.getDefinition().getMetaTagsByName(IMetaAttributeConstants.ATTRIBUTE_EXCLUDE);
         ArrayList<IDefinition> memberAccessDefinitions = new ArrayList<>();
-        Set<INamespaceDefinition> namespaceSet = ScopeUtils.getNamespaceSetForScopes(typeScope, otherScope, project);
-        
         typeScope.getAllPropertiesForMemberAccess((CompilerProject) project, memberAccessDefinitions, namespaceSet);
+        List<IDefinition> result = new ArrayList<>();
         for (IDefinition localDefinition : memberAccessDefinitions)
         {
             if (localDefinition.isOverride())
@@ -1693,15 +1734,9 @@ public class CompletionProvider
                 //skip it!
                 continue;
             }
-            if (forMXML)
-            {
-                addDefinitionAutoCompleteMXML(localDefinition, xmlnsPosition, isAttribute, prefix, null, tagsNeedOpenBracket, nextChar, offsetTag, project, result);
-            }
-            else //actionscript
-            {
-                addDefinitionAutoCompleteActionScript(localDefinition, null, nextChar, addImportData, project, result);
-            }
+            result.add(localDefinition);
         }
+        return result;
     }
 
     private void addEventMetadataToAutoCompleteMXML(TypeScope typeScope, boolean isAttribute, String prefix, boolean tagsNeedOpenBracket, char nextChar, ILspProject project, CompletionList result)
@@ -1871,6 +1906,11 @@ public class CompletionProvider
     }
 
     private void addDefinitionAutoCompleteActionScript(IDefinition definition, IASNode offsetNode, char nextChar, AddImportData addImportData, ILspProject project, CompletionList result)
+    {
+        addDefinitionAutoCompleteActionScript(definition, offsetNode, nextChar, addImportData, null, project, result);
+    }
+
+    private void addDefinitionAutoCompleteActionScript(IDefinition definition, IASNode offsetNode, char nextChar, AddImportData addImportData, CompletionItem item, ILspProject project, CompletionList result)
     {
         String definitionBaseName = definition.getBaseName();
         if (definitionBaseName.length() == 0)
@@ -1891,7 +1931,10 @@ public class CompletionProvider
             String qualifiedName = definition.getQualifiedName();
             completionTypes.add(qualifiedName);
         }
-        CompletionItem item = CompletionItemUtils.createDefinitionItem(definition, project);
+        if (item == null)
+        {
+            item = CompletionItemUtils.createDefinitionItem(definition, project);
+        }
         if (definition instanceof IFunctionDefinition
                 && !(definition instanceof IAccessorDefinition)
                 && nextChar != '('
@@ -2220,135 +2263,121 @@ public class CompletionProvider
             }
         }
 
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        Set<String> typeFilterNames = getTypeFilterNames(typeFilter, project);
+        for (IDefinition definition : definitionIndex.getDefinitions(project))
         {
-            if (unit == null)
+            if (!(definition instanceof ITypeDefinition))
             {
                 continue;
             }
-            Collection<IDefinition> definitions = null;
-            try
-            {
-                definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-            }
-            catch (Exception e)
+            ITypeDefinition typeDefinition = (ITypeDefinition) definition;
+            if (typeFilterNames != null && !typeFilterNames.contains(typeDefinition.getQualifiedName()))
             {
-                //safe to ignore
                 continue;
             }
 
-            for (IDefinition definition : definitions)
+            //first check that the tag either doesn't have a short name yet
+            //or that the definition's base name matches the short name 
+            if (tagStartShortNameForComparison.length() == 0
+                || typeDefinition.getBaseName().toLowerCase().startsWith(tagStartShortNameForComparison))
             {
-                if (!(definition instanceof ITypeDefinition))
+                //if a prefix already exists, make sure the definition is
+                //in a namespace with that prefix
+                if (tagPrefix.length() > 0)
                 {
-                    continue;
-                }
-                ITypeDefinition typeDefinition = (ITypeDefinition) definition;
-                if (typeFilter != null && !DefinitionUtils.extendsOrImplements(project, typeDefinition, typeFilter))
-                {
-                    continue;
-                }
-
-                //first check that the tag either doesn't have a short name yet
-                //or that the definition's base name matches the short name 
-                if (tagStartShortNameForComparison.length() == 0
-                    || typeDefinition.getBaseName().toLowerCase().startsWith(tagStartShortNameForComparison))
-                {
-                    //if a prefix already exists, make sure the definition is
-                    //in a namespace with that prefix
-                    if (tagPrefix.length() > 0)
+                    Collection<XMLName> tagNames = project.getTagNamesForClass(typeDefinition.getQualifiedName());
+                    for (XMLName tagName : tagNames)
                     {
-                        Collection<XMLName> tagNames = project.getTagNamesForClass(typeDefinition.getQualifiedName());
-                        for (XMLName tagName : tagNames)
+                        String tagNameNamespace = tagName.getXMLNamespace();
+                        //getTagNamesForClass() returns the 2006 namespace, even if that's
+                        //not what we're using in this file
+                        if (tagNameNamespace.equals(IMXMLLanguageConstants.NAMESPACE_MXML_2006))
                         {
-                            String tagNameNamespace = tagName.getXMLNamespace();
-                            //getTagNamesForClass() returns the 2006 namespace, even if that's
-                            //not what we're using in this file
-                            if (tagNameNamespace.equals(IMXMLLanguageConstants.NAMESPACE_MXML_2006))
-                            {
-                                //use the language namespace of the root tag instead
-                                tagNameNamespace = mxmlData.getRootTag().getMXMLDialect().getLanguageNamespace();
-                            }
-                            if (prefixMap != null)
+                            //use the language namespace of the root tag instead
+                            tagNameNamespace = mxmlData.getRootTag().getMXMLDialect().getLanguageNamespace();
+                        }
+                        if (prefixMap != null)
+                        {
+                            String[] prefixes = prefixMap.getPrefixesForNamespace(tagNameNamespace);
+                            for (String otherPrefix : prefixes)
                             {
-                                String[] prefixes = prefixMap.getPrefixesForNamespace(tagNameNamespace);
-                                for (String otherPrefix : prefixes)
+                                if (tagPrefix.equals(otherPrefix))
                                 {
-                                    if (tagPrefix.equals(otherPrefix))
-                                    {
-                                        addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, null, null, false, nextChar, offsetTag, project, result);
-                                    }
+                                    addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, null, null, false, nextChar, offsetTag, project, result);
                                 }
                             }
                         }
-                        if (tagNamespacePackage != null
-                                && tagNamespacePackage.equals(typeDefinition.getPackageName()))
-                        {
-                            addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, null, null, false, nextChar, offsetTag, project, result);
-                        }
                     }
-                    else
+                    if (tagNamespacePackage != null
+                            && tagNamespacePackage.equals(typeDefinition.getPackageName()))
                     {
-                        //no prefix yet, so complete the definition with a prefix
-                        MXMLNamespace ns = MXMLNamespaceUtils.getMXMLNamespaceForTypeDefinition(typeDefinition, mxmlData, project);
-                        addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, ns.prefix, ns.uri, false, nextChar, offsetTag, project, result);
+                        addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, null, null, false, nextChar, offsetTag, project, result);
                     }
                 }
+                else
+                {
+                    //no prefix yet, so complete the definition with a prefix
+                    MXMLNamespace ns = MXMLNamespaceUtils.getMXMLNamespaceForTypeDefinition(typeDefinition, mxmlData, project);
+                    addDefinitionAutoCompleteMXML(typeDefinition, xmlnsPosition, false, ns.prefix, ns.uri, false, nextChar, offsetTag, project, result);
+                }
             }
         }
     }
 
     private void autoCompleteDefinitionsForMXML(CompletionList result, ILspProject project, ICompilationUnit offsetUnit, IMXMLTagData offsetTag, boolean typesOnly, boolean tagsNeedOpenBracket, char nextChar, String typeFilter, AddImportData addImportData, Position xmlnsPosition)
     {
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        Set<String> typeFilterNames = getTypeFilterNames(typeFilter, project);
+        for (IDefinition definition : definitionIndex.getDefinitions(project))
         {
-            if (unit == null)
-            {
-                continue;
-            }
-            Collection<IDefinition> definitions = null;
-            try
-            {
-                definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-            }
-            catch (Exception e)
-            {
-                //safe to ignore
-                continue;
-            }
-            for (IDefinition definition : definitions)
+            boolean isType = definition instanceof ITypeDefinition;
+            if (!typesOnly || isType)
             {
-                boolean isType = definition instanceof ITypeDefinition;
-                if (!typesOnly || isType)
+                if (isType)
                 {
-                    if (isType)
+                    IMetaTag excludeClassMetaTag = definition.getMetaTagByName(IMetaAttributeConstants.ATTRIBUTE_EXCLUDECLASS);
+                    if (excludeClassMetaTag != null)
                     {
-                        IMetaTag excludeClassMetaTag = definition.getMetaTagByName(IMetaAttributeConstants.ATTRIBUTE_EXCLUDECLASS);
-                        if (excludeClassMetaTag != null)
-                        {
-                            //skip types with [ExcludeClass] metadata
-                            continue;
-                        }
-                    }
-                    if (isType)
-                    {
-                        ITypeDefinition typeDefinition = (ITypeDefinition) definition;
-                        if (typeFilter != null && !DefinitionUtils.extendsOrImplements(project, typeDefinition, typeFilter))
-                        {
-                            continue;
-                        }
-
-                        addMXMLTypeDefinitionAutoComplete(typeDefinition, xmlnsPosition, offsetUnit, offsetTag, tagsNeedOpenBracket, nextChar, project, result);
+                        //skip types with [ExcludeClass] metadata
+                        continue;
                     }
-                    else
+                }
+                if (isType)
+                {
+                    ITypeDefinition typeDefinition = (ITypeDefinition) definition;
+                    if (typeFilterNames != null && !typeFilterNames.contains(typeDefinition.getQualifiedName()))
                     {
-                        addDefinitionAutoCompleteActionScript(definition, null, (char) -1, addImportData, project, result);
+                        continue;
                     }
+
+                    addMXMLTypeDefinitionAutoComplete(typeDefinition, xmlnsPosition, offsetUnit, offsetTag, tagsNeedOpenBracket, nextChar, project, result);
+                }
+                else
+                {
+                    addDefinitionAutoCompleteActionScript(definition, null, (char) -1, addImportData, project, result);
                 }
             }
         }
     }
 
+    /**
+     * Returns the qualified names of the type filter and every type that
+     * extends or implements it, or null if there is no type filter.
+     */
+    private Set<String> getTypeFilterNames(String typeFilter, ILspProject project)
+    {
+        if (typeFilter == null)
+        {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        result.add(typeFilter);
+        for (ITypeDefinition subtype : definitionIndex.getAllSubtypes(typeFilter, project))
+        {
+            result.add(subtype.getQualifiedName());
+        }
+        return result;
+    }
+
     private void autoCompleteDefinitionsForActionScript(CompletionList result,
             ILspProject project, IASNode offsetNode,
             boolean typesOnly, String requiredPackageName, IDefinition definitionToSkip,
@@ -2359,46 +2388,35 @@ public class CompletionProvider
         {
             skipQualifiedName = definitionToSkip.getQualifiedName();
         }
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        List<IDefinition> definitions = null;
+        if (requiredPackageName != null)
         {
-            if (unit == null)
-            {
-                continue;
-            }
-            Collection<IDefinition> definitions = null;
-            try
-            {
-                definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-            }
-            catch (Exception e)
-            {
-                //safe to ignore
-                continue;
-            }
-            for (IDefinition definition : definitions)
+            definitions = definitionIndex.getDefinitionsInPackage(requiredPackageName, project);
+        }
+        else
+        {
+            definitions = definitionIndex.getDefinitions(project);
+        }
+        for (IDefinition definition : definitions)
+        {
+            boolean isType = definition instanceof ITypeDefinition;
+            if (!typesOnly || isType)
             {
-                boolean isType = definition instanceof ITypeDefinition;
-                if (!typesOnly || isType)
+                if (skipQualifiedName != null
+                        && skipQualifiedName.equals(definition.getQualifiedName()))
                 {
-                    if (requiredPackageName == null || definition.getPackageName().equals(requiredPackageName))
+                    continue;
+                }
+                if (isType)
+                {
+                    IMetaTag excludeClassMetaTag = definition.getMetaTagByName(IMetaAttributeConstants.ATTRIBUTE_EXCLUDECLASS);
+                    if (excludeClassMetaTag != null)
                     {
-                        if (skipQualifiedName != null
-                                && skipQualifiedName.equals(definition.getQualifiedName()))
-                        {
-                            continue;
-                        }
-                        if (isType)
-                        {
-                            IMetaTag excludeClassMetaTag = definition.getMetaTagByName(IMetaAttributeConstants.ATTRIBUTE_EXCLUDECLASS);
-                            if (excludeClassMetaTag != null)
-                            {
-                                //skip types with [ExcludeClass] metadata
-                                continue;
-                            }
-                        }
-                        addDefinitionAutoCompleteActionScript(definition, offsetNode, nextChar, addImportData, project, result);
+                        //skip types with [ExcludeClass] metadata
+                        continue;
                     }
                 }
+                addDefinitionAutoCompleteActionScript(definition, offsetNode, nextChar, addImportData, project, result);
             }
         }
         if (requiredPackageName == null || requiredPackageName.equals(""))
@@ -81,7 +81,7 @@ public class DefinitionProvider
 		}
 
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
 		if (currentOffset == -1)
 		{
 			cancelToken.checkCanceled();
@@ -16,10 +16,8 @@ limitations under the License.
 package com.as3mxml.vscode.providers;
 
 import java.io.File;
-import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -38,7 +36,10 @@ import com.as3mxml.vscode.utils.FileTracker;
 import com.as3mxml.vscode.utils.ImportRange;
 import com.as3mxml.vscode.utils.ImportTextEditUtils;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
+import com.as3mxml.vscode.utils.LineIndex;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
+import com.as3mxml.vscode.utils.PriorityScheduler;
+import com.as3mxml.vscode.utils.PriorityScheduler.Priority;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
@@ -67,14 +68,16 @@ public class ExecuteCommandProvider
     private WorkspaceFolderManager workspaceFolderManager;
     private FileTracker fileTracker;
 	private Workspace compilerWorkspace;
+	private PriorityScheduler scheduler;
 	private ActionScriptLanguageClient languageClient;
 
     public ExecuteCommandProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker,
-        Workspace compilerWorkspace, ActionScriptLanguageClient languageClient)
+        Workspace compilerWorkspace, PriorityScheduler scheduler, ActionScriptLanguageClient languageClient)
 	{
         this.workspaceFolderManager = workspaceFolderManager;
         this.fileTracker = fileTracker;
 		this.compilerWorkspace = compilerWorkspace;
+		this.scheduler = scheduler;
 		this.languageClient = languageClient;
 	}
 
@@ -158,7 +161,8 @@ public class ExecuteCommandProvider
             return CompletableFuture.completedFuture(new Object());
         }
 
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        //a directory may contain many files, so don't delay other requests
+        return CompletableFutures.computeAsync(scheduler.getExecutor(Priority.BACKGROUND), cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -170,6 +174,7 @@ public class ExecuteCommandProvider
                 Map<String,List<TextEdit>> changes = new HashMap<>();
                 for(String fileURI : fileURIs)
                 {
+                    scheduler.yieldToForeground();
                     organizeImportsInUri(fileURI, changes);
                 }
                 
@@ -215,7 +220,7 @@ public class ExecuteCommandProvider
             openFileForOrganizeImports(path);
         }
         
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        return CompletableFutures.computeAsync(scheduler.getExecutor(Priority.NEAR_INTERACTIVE), cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -311,7 +316,7 @@ public class ExecuteCommandProvider
         Set<String> missingNames = null;
         Set<String> importsToAdd = null;
         List<IImportNode> importsToRemove = null;
-        IASNode ast = ASTUtils.getCompilationUnitAST(unit);
+        IASNode ast = folderData.memoryGovernor.getAST(unit);
         if (ast != null)
         {
             missingNames = ASTUtils.findUnresolvedIdentifiersToImport(ast, project);
@@ -321,10 +326,9 @@ public class ExecuteCommandProvider
         if (missingNames != null)
         {
             importsToAdd = new HashSet<>();
-            Collection<ICompilationUnit> units = project.getCompilationUnits();
             for (String missingName : missingNames)
             {
-                List<IDefinition> types = ASTUtils.findTypesThatMatchName(missingName, units);
+                List<IDefinition> types = ASTUtils.findTypesThatMatchName(missingName, folderData.definitionIndex, project);
                 if (types.size() == 1)
                 {
                     //add an import only if exactly one type is found
@@ -343,7 +347,7 @@ public class ExecuteCommandProvider
     
     private CompletableFuture<Object> executeAddImportCommand(ExecuteCommandParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        return CompletableFutures.computeAsync(scheduler.getExecutor(Priority.NEAR_INTERACTIVE), cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -371,11 +375,12 @@ public class ExecuteCommandProvider
                     return new Object();
                 }
                 String text = fileTracker.getText(pathForImport);
-                if(text == null)
+                LineIndex lineIndex = fileTracker.getLineIndex(pathForImport);
+                if(text == null || lineIndex == null)
                 {
                     return new Object();
                 }
-                int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(new StringReader(text), new Position(line, character));
+                int currentOffset = lineIndex.getOffsetFromPosition(new Position(line, character));
                 ImportRange importRange = null;
                 if(uri.endsWith(MXML_EXTENSION))
                 {
@@ -411,7 +416,7 @@ public class ExecuteCommandProvider
     
     private CompletableFuture<Object> executeAddMXMLNamespaceCommand(ExecuteCommandParams params)
     {
-        return CompletableFutures.computeAsync(compilerWorkspace.getExecutorService(), cancelToken ->
+        return CompletableFutures.computeAsync(scheduler.getExecutor(Priority.NEAR_INTERACTIVE), cancelToken ->
         {
             cancelToken.checkCanceled();
 
@@ -17,14 +17,13 @@ package com.as3mxml.vscode.providers;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import com.as3mxml.vscode.project.ILspProject;
 import com.as3mxml.vscode.project.WorkspaceFolderData;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
-import com.as3mxml.vscode.utils.DefinitionUtils;
+import com.as3mxml.vscode.utils.DefinitionIndex;
 import com.as3mxml.vscode.utils.FileTracker;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
@@ -33,12 +32,11 @@ import com.as3mxml.vscode.utils.WorkspaceFolderManager;
 import org.apache.royale.compiler.definitions.IClassDefinition;
 import org.apache.royale.compiler.definitions.IDefinition;
 import org.apache.royale.compiler.definitions.IInterfaceDefinition;
+import org.apache.royale.compiler.definitions.ITypeDefinition;
 import org.apache.royale.compiler.internal.mxml.MXMLData;
 import org.apache.royale.compiler.mxml.IMXMLTagData;
 import org.apache.royale.compiler.tree.as.IASNode;
 import org.apache.royale.compiler.tree.as.IIdentifierNode;
-import org.apache.royale.compiler.units.ICompilationUnit;
-import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
 import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.LocationLink;
 import org.eclipse.lsp4j.Position;
@@ -49,8 +47,11 @@ import org.eclipse.lsp4j.jsonrpc.messages.Either;
 
 public class ImplementationProvider
 {
+    private static final String SWC_EXTENSION = ".swc";
+
     private WorkspaceFolderManager workspaceFolderManager;
     private FileTracker fileTracker;
+    private DefinitionIndex definitionIndex;
 
 	public ImplementationProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker)
 	{
@@ -76,9 +77,10 @@ public class ImplementationProvider
 			return Either.forLeft(Collections.emptyList());
 		}
 		ILspProject project = folderData.project;
+		definitionIndex = folderData.definitionIndex;
 
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
 		if (currentOffset == -1)
 		{
 			cancelToken.checkCanceled();
@@ -131,43 +133,24 @@ public class ImplementationProvider
         }
         
         List<Location> result = new ArrayList<>();
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        //classes that implement an interface that extends this interface, and
+        //subclasses of classes that implement it, are included too
+        for (ITypeDefinition subtype : definitionIndex.getAllSubtypes(interfaceDefinition.getQualifiedName(), project))
         {
-            if (unit == null)
+            if (!(subtype instanceof IClassDefinition))
             {
                 continue;
             }
-            UnitType unitType = unit.getCompilationUnitType();
-            if (!UnitType.AS_UNIT.equals(unitType) && !UnitType.MXML_UNIT.equals(unitType))
+            String containingFilePath = subtype.getContainingFilePath();
+            if (containingFilePath == null || containingFilePath.endsWith(SWC_EXTENSION))
             {
+                //compiled definitions don't have a source location
                 continue;
             }
-            Collection<IDefinition> definitions = null;
-            try
-            {
-                definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-            }
-            catch (Exception e)
-            {
-                //safe to ignore
-                continue;
-            }
-
-            for (IDefinition definition : definitions)
+            Location location = workspaceFolderManager.getLocationFromDefinition(subtype, project);
+            if (location != null)
             {
-                if (!(definition instanceof IClassDefinition))
-                {
-                    continue;
-                }
-                IClassDefinition classDefinition = (IClassDefinition) definition;
-                if (DefinitionUtils.isImplementationOfInterface(classDefinition, interfaceDefinition, project))
-                {
-                    Location location = workspaceFolderManager.getLocationFromDefinition(classDefinition, project);
-                    if (location != null)
-                    {
-                        result.add(location);
-                    }
-                }
+                result.add(location);
             }
         }
         return result;
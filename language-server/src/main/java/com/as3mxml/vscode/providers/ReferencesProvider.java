@@ -24,10 +24,12 @@ import java.util.List;
 import com.as3mxml.vscode.project.ILspProject;
 import com.as3mxml.vscode.project.WorkspaceFolderData;
 import com.as3mxml.vscode.utils.ASTUtils;
+import com.as3mxml.vscode.utils.CompilationUnitMemoryGovernor;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
 import com.as3mxml.vscode.utils.CompilerProjectUtils;
 import com.as3mxml.vscode.utils.DefinitionUtils;
 import com.as3mxml.vscode.utils.FileTracker;
+import com.as3mxml.vscode.utils.IdentifierIndex;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
@@ -44,7 +46,6 @@ import org.apache.royale.compiler.scopes.IASScope;
 import org.apache.royale.compiler.tree.as.IASNode;
 import org.apache.royale.compiler.tree.as.IIdentifierNode;
 import org.apache.royale.compiler.units.ICompilationUnit;
-import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
 import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.ReferenceParams;
@@ -57,11 +58,14 @@ public class ReferencesProvider
 
     private WorkspaceFolderManager workspaceFolderManager;
     private FileTracker fileTracker;
+    private IdentifierIndex identifierIndex;
+    private CompilationUnitMemoryGovernor memoryGovernor;
 
-	public ReferencesProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker)
+	public ReferencesProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker, IdentifierIndex identifierIndex)
 	{
         this.workspaceFolderManager = workspaceFolderManager;
         this.fileTracker = fileTracker;
+        this.identifierIndex = identifierIndex;
 	}
 
 	public List<? extends Location> references(ReferenceParams params, CancelChecker cancelToken)
@@ -83,9 +87,10 @@ public class ReferencesProvider
 			return Collections.emptyList();
 		}
 		ILspProject project = folderData.project;
+		memoryGovernor = folderData.memoryGovernor;
 
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
 		if (currentOffset == -1)
 		{
 			cancelToken.checkCanceled();
@@ -217,18 +222,10 @@ public class ReferencesProvider
 
     private void referencesForDefinition(IDefinition definition, ILspProject project, List<Location> result)
     {
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        //only files that contain the definition's name can reference it
+        List<ICompilationUnit> units = identifierIndex.getCandidateCompilationUnits(definition.getBaseName(), project, fileTracker);
+        for (ICompilationUnit unit : units)
         {
-            if (unit == null)
-            {
-                continue;
-            }
-            UnitType unitType = unit.getCompilationUnitType();
-            if (!UnitType.AS_UNIT.equals(unitType) && !UnitType.MXML_UNIT.equals(unitType))
-            {
-                //compiled compilation units won't have problems
-                continue;
-            }
             referencesForDefinitionInCompilationUnit(definition, unit, project, result);
         }
     }
@@ -255,7 +252,7 @@ public class ReferencesProvider
                 }
             }
         }
-        IASNode ast = ASTUtils.getCompilationUnitAST(compilationUnit);
+        IASNode ast = memoryGovernor.getAST(compilationUnit);
         if(ast == null)
         {
             return;
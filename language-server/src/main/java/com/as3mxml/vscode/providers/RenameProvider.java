@@ -24,9 +24,11 @@ import java.util.List;
 import com.as3mxml.vscode.project.ILspProject;
 import com.as3mxml.vscode.project.WorkspaceFolderData;
 import com.as3mxml.vscode.utils.ASTUtils;
+import com.as3mxml.vscode.utils.CompilationUnitMemoryGovernor;
 import com.as3mxml.vscode.utils.CompilationUnitUtils.IncludeFileData;
 import com.as3mxml.vscode.utils.DefinitionUtils;
 import com.as3mxml.vscode.utils.FileTracker;
+import com.as3mxml.vscode.utils.IdentifierIndex;
 import com.as3mxml.vscode.utils.LanguageServerCompilerUtils;
 import com.as3mxml.vscode.utils.MXMLDataUtils;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
@@ -46,7 +48,6 @@ import org.apache.royale.compiler.tree.as.IDefinitionNode;
 import org.apache.royale.compiler.tree.as.IExpressionNode;
 import org.apache.royale.compiler.tree.as.IIdentifierNode;
 import org.apache.royale.compiler.units.ICompilationUnit;
-import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.RenameFile;
@@ -67,11 +68,14 @@ public class RenameProvider
 
     private WorkspaceFolderManager workspaceFolderManager;
     private FileTracker fileTracker;
+    private IdentifierIndex identifierIndex;
+    private CompilationUnitMemoryGovernor memoryGovernor;
 
-	public RenameProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker)
+	public RenameProvider(WorkspaceFolderManager workspaceFolderManager, FileTracker fileTracker, IdentifierIndex identifierIndex)
 	{
         this.workspaceFolderManager = workspaceFolderManager;
         this.fileTracker = fileTracker;
+        this.identifierIndex = identifierIndex;
 	}
 
 	public WorkspaceEdit rename(RenameParams params, CancelChecker cancelToken)
@@ -93,9 +97,10 @@ public class RenameProvider
 			return new WorkspaceEdit(new HashMap<>());
 		}
         ILspProject project = folderData.project;
+        memoryGovernor = folderData.memoryGovernor;
 
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
-		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getReader(path), position, includeFileData);
+		int currentOffset = LanguageServerCompilerUtils.getOffsetFromPosition(fileTracker.getLineIndex(path), position, includeFileData);
 		if (currentOffset == -1)
 		{
 			cancelToken.checkCanceled();
@@ -200,18 +205,10 @@ public class RenameProvider
         }
         Path originalDefinitionFilePath = null;
         Path newDefinitionFilePath = null;
-        for (ICompilationUnit unit : project.getCompilationUnits())
+        //only files that contain the definition's name can reference it
+        List<ICompilationUnit> candidateUnits = identifierIndex.getCandidateCompilationUnits(definition.getBaseName(), project, fileTracker);
+        for (ICompilationUnit unit : candidateUnits)
         {
-            if (unit == null)
-            {
-                continue;
-            }
-            UnitType unitType = unit.getCompilationUnitType();
-            if (!UnitType.AS_UNIT.equals(unitType) && !UnitType.MXML_UNIT.equals(unitType))
-            {
-                //compiled compilation units won't have problems
-                continue;
-            }
             ArrayList<TextEdit> textEdits = new ArrayList<>();
             if (unit.getAbsoluteFilename().endsWith(MXML_EXTENSION))
             {
@@ -238,7 +235,7 @@ public class RenameProvider
                     }
                 }
             }
-            IASNode ast = ASTUtils.getCompilationUnitAST(unit);
+            IASNode ast = memoryGovernor.getAST(unit);
             if (ast != null)
             {
                 ArrayList<IIdentifierNode> identifiers = new ArrayList<>();
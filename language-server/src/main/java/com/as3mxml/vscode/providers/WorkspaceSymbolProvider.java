@@ -16,8 +16,6 @@ limitations under the License.
 package com.as3mxml.vscode.providers;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -25,16 +23,8 @@ import java.util.Set;
 import com.as3mxml.vscode.project.ILspProject;
 import com.as3mxml.vscode.project.WorkspaceFolderData;
 import com.as3mxml.vscode.utils.WorkspaceFolderManager;
+import com.as3mxml.vscode.utils.WorkspaceSymbolIndex;
 
-import org.apache.royale.compiler.definitions.IDefinition;
-import org.apache.royale.compiler.definitions.IFunctionDefinition;
-import org.apache.royale.compiler.definitions.IPackageDefinition;
-import org.apache.royale.compiler.definitions.ITypeDefinition;
-import org.apache.royale.compiler.definitions.IVariableDefinition;
-import org.apache.royale.compiler.internal.scopes.ASProjectScope.DefinitionPromise;
-import org.apache.royale.compiler.scopes.IASScope;
-import org.apache.royale.compiler.units.ICompilationUnit;
-import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
 import org.eclipse.lsp4j.SymbolInformation;
 import org.eclipse.lsp4j.WorkspaceFolder;
 import org.eclipse.lsp4j.WorkspaceSymbolParams;
@@ -42,18 +32,20 @@ import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 
 public class WorkspaceSymbolProvider
 {
+	private static final int MAX_RESULTS = 500;
+
 	private WorkspaceFolderManager workspaceFolderManager;
+	private WorkspaceSymbolIndex workspaceSymbolIndex;
 
-	public WorkspaceSymbolProvider(WorkspaceFolderManager workspaceFolderManager)
+	public WorkspaceSymbolProvider(WorkspaceFolderManager workspaceFolderManager, WorkspaceSymbolIndex workspaceSymbolIndex)
 	{
 		this.workspaceFolderManager = workspaceFolderManager;
+		this.workspaceSymbolIndex = workspaceSymbolIndex;
 	}
 
 	public List<? extends SymbolInformation> workspaceSymbol(WorkspaceSymbolParams params, CancelChecker cancelToken)
 	{
 		cancelToken.checkCanceled();
-		Set<String> qualifiedNames = new HashSet<>();
-		List<SymbolInformation> result = new ArrayList<>();
 		String query = params.getQuery();
 		StringBuilder currentQuery = new StringBuilder();
 		List<String> queries = new ArrayList<>();
@@ -71,6 +63,8 @@ public class WorkspaceSymbolProvider
 		{
 			queries.add(currentQuery.toString().toLowerCase());
 		}
+		String lowerCaseQuery = query.toLowerCase();
+		List<ILspProject> projects = new ArrayList<>();
 		for (WorkspaceFolder folder : workspaceFolderManager.getWorkspaceFolders())
 		{
 			WorkspaceFolderData folderData = workspaceFolderManager.getWorkspaceFolderData(folder);
@@ -79,145 +73,94 @@ public class WorkspaceSymbolProvider
 			{
 				continue;
 			}
-			for (ICompilationUnit unit : project.getCompilationUnits())
+			projects.add(project);
+		}
+		List<WorkspaceSymbolIndex.Entry> entries = workspaceSymbolIndex.getEntries(projects);
+		cancelToken.checkCanceled();
+
+		List<RankedEntry> matches = new ArrayList<>();
+		for (WorkspaceSymbolIndex.Entry entry : entries)
+		{
+			if (!matchesQueries(queries, entry.lowerCaseQualifiedName))
 			{
-				if (unit == null)
-				{
-					continue;
-				}
-				UnitType unitType = unit.getCompilationUnitType();
-				if (UnitType.SWC_UNIT.equals(unitType))
-				{
-					List<IDefinition> definitions = unit.getDefinitionPromises();
-					for (IDefinition definition : definitions)
-					{
-						if (definition instanceof DefinitionPromise)
-						{
-							//we won't be able to detect what type of definition
-							//this is without getting the actual definition from the
-							//promise.
-							DefinitionPromise promise = (DefinitionPromise) definition;
-							definition = promise.getActualDefinition();
-						}
-						if (definition.isImplicit())
-						{
-							continue;
-						}
-						if (!matchesQueries(queries, definition.getQualifiedName()))
-						{
-							continue;
-						}
-						String qualifiedName = definition.getQualifiedName();
-						if (qualifiedNames.contains(qualifiedName))
-						{
-							//we've already added this symbol
-							//this can happen when there are multiple root
-							//folders in the workspace
-							continue;
-						}
-						SymbolInformation symbol = workspaceFolderManager.definitionToSymbolInformation(definition, project);
-						if (symbol != null)
-						{
-							qualifiedNames.add(qualifiedName);
-							result.add(symbol);
-						}
-					}
-				}
-				else if (UnitType.AS_UNIT.equals(unitType) || UnitType.MXML_UNIT.equals(unitType))
+				continue;
+			}
+			matches.add(new RankedEntry(entry, getRank(entry, lowerCaseQuery, queries)));
+		}
+		matches.sort((a, b) ->
+		{
+			if (a.rank != b.rank)
+			{
+				return a.rank - b.rank;
+			}
+			int result = a.entry.lowerCaseBaseName.length() - b.entry.lowerCaseBaseName.length();
+			if (result != 0)
+			{
+				return result;
+			}
+			return a.entry.qualifiedName.compareTo(b.entry.qualifiedName);
+		});
+		cancelToken.checkCanceled();
+
+		Set<String> duplicateKeys = new HashSet<>();
+		List<SymbolInformation> result = new ArrayList<>();
+		for (RankedEntry match : matches)
+		{
+			if (result.size() >= MAX_RESULTS)
+			{
+				break;
+			}
+			WorkspaceSymbolIndex.Entry entry = match.entry;
+			if (entry.duplicateKey != null && duplicateKeys.contains(entry.duplicateKey))
+			{
+				//we've already added this symbol
+				//this can happen when there are multiple root
+				//folders in the workspace
+				continue;
+			}
+			SymbolInformation symbol = workspaceFolderManager.definitionToSymbolInformation(entry.definition, entry.project);
+			if (symbol != null)
+			{
+				if (entry.duplicateKey != null)
 				{
-					IASScope[] scopes;
-					try
-					{
-						scopes = unit.getFileScopeRequest().get().getScopes();
-					}
-					catch (Exception e)
-					{
-						return Collections.emptyList();
-					}
-					for (IASScope scope : scopes)
-					{
-						querySymbolsInScope(queries, scope, qualifiedNames, project, result);
-					}
+					duplicateKeys.add(entry.duplicateKey);
 				}
+				result.add(symbol);
 			}
 		}
 		cancelToken.checkCanceled();
 		return result;
 	}
 
-    private void querySymbolsInScope(List<String> queries, IASScope scope, Set<String> foundTypes, ILspProject project, Collection<SymbolInformation> result)
+    /**
+     * Lower ranks are listed first. Matches on the start of the name are
+     * better than matches anywhere in the fully-qualified name.
+     */
+    private int getRank(WorkspaceSymbolIndex.Entry entry, String lowerCaseQuery, List<String> queries)
     {
-        Collection<IDefinition> definitions = scope.getAllLocalDefinitions();
-        for (IDefinition definition : definitions)
+        String baseName = entry.lowerCaseBaseName;
+        if (baseName.equals(lowerCaseQuery))
         {
-            if (definition instanceof IPackageDefinition)
-            {
-                IPackageDefinition packageDefinition = (IPackageDefinition) definition;
-                IASScope packageScope = packageDefinition.getContainedScope();
-                querySymbolsInScope(queries, packageScope, foundTypes, project, result);
-            }
-            else if (definition instanceof ITypeDefinition)
-            {
-                String qualifiedName = definition.getQualifiedName();
-                if (foundTypes.contains(qualifiedName))
-                {
-                    //skip types that we've already encountered because we don't
-                    //want duplicates in the result
-                    continue;
-                }
-                foundTypes.add(qualifiedName);
-                ITypeDefinition typeDefinition = (ITypeDefinition) definition;
-                if (!definition.isImplicit() && matchesQueries(queries, qualifiedName))
-                {
-                    SymbolInformation symbol = workspaceFolderManager.definitionToSymbolInformation(typeDefinition, project);
-                    if (symbol != null)
-                    {
-                        result.add(symbol);
-                    }
-                }
-                IASScope typeScope = typeDefinition.getContainedScope();
-                querySymbolsInScope(queries, typeScope, foundTypes, project, result);
-            }
-            else if (definition instanceof IFunctionDefinition)
-            {
-                if (definition.isImplicit())
-                {
-                    continue;
-                }
-                if (!matchesQueries(queries, definition.getQualifiedName()))
-                {
-                    continue;
-                }
-                IFunctionDefinition functionDefinition = (IFunctionDefinition) definition;
-                SymbolInformation symbol = workspaceFolderManager.definitionToSymbolInformation(functionDefinition, project);
-                if (symbol != null)
-                {
-                    result.add(symbol);
-                }
-            }
-            else if (definition instanceof IVariableDefinition)
-            {
-                if (definition.isImplicit())
-                {
-                    continue;
-                }
-                if (!matchesQueries(queries, definition.getQualifiedName()))
-                {
-                    continue;
-                }
-                IVariableDefinition variableDefinition = (IVariableDefinition) definition;
-                SymbolInformation symbol = workspaceFolderManager.definitionToSymbolInformation(variableDefinition, project);
-                if (symbol != null)
-                {
-                    result.add(symbol);
-                }
-            }
+            return 0;
         }
+        if (baseName.startsWith(lowerCaseQuery))
+        {
+            return 1;
+        }
+        if (queries.size() > 0 && baseName.startsWith(queries.get(0))
+                && matchesQueries(queries, baseName))
+        {
+            return 2;
+        }
+        if (matchesQueries(queries, baseName))
+        {
+            return 3;
+        }
+        return 4;
     }
 
-    private boolean matchesQueries(List<String> queries, String target)
+    private boolean matchesQueries(List<String> queries, String lowerCaseTarget)
     {
-        String lowerCaseTarget = target.toLowerCase();
         int fromIndex = 0;
         for (String query : queries)
         {
@@ -230,4 +173,16 @@ public class WorkspaceSymbolProvider
         }
         return true;
     }
-}
\ No newline at end of file
+
+    private static class RankedEntry
+    {
+        public RankedEntry(WorkspaceSymbolIndex.Entry entry, int rank)
+        {
+            this.entry = entry;
+            this.rank = rank;
+        }
+
+        public WorkspaceSymbolIndex.Entry entry;
+        public int rank;
+    }
+}
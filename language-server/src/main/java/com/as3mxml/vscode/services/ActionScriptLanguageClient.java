@@ -25,4 +25,11 @@ public interface ActionScriptLanguageClient extends LanguageClient
 
 	@JsonNotification("as3mxml/logCompilerShellOutput")
 	void logCompilerShellOutput(String message);
+
+	/**
+	 * Reports the progress of preparing code intelligence in the background.
+	 * A null message indicates that it has finished or stopped.
+	 */
+	@JsonNotification("as3mxml/preWarmProgress")
+	void preWarmProgress(String message);
 }
\ No newline at end of file
@@ -17,13 +17,12 @@ package com.as3mxml.vscode.utils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import com.as3mxml.vscode.compiler.problems.DisabledConfigConditionBlockProblem;
-import com.as3mxml.vscode.compiler.problems.UnusedImportProblem;
+import com.as3mxml.vscode.project.ILspProject;
 
 import org.apache.royale.compiler.constants.IASLanguageConstants;
 import org.apache.royale.compiler.constants.IMetaAttributeConstants;
@@ -84,6 +83,16 @@ public class ASTUtils
             System.err.println("Could not find AST: " + unit.getAbsoluteFilename());
             return null;
         }
+        populateFunctionBodies(ast);
+        return ast;
+    }
+
+    /**
+     * Parses the bodies of functions that the compiler skipped to save time
+     * and memory, so that the nodes inside them may be found.
+     */
+    public static void populateFunctionBodies(IASNode ast)
+    {
         if (ast instanceof FileNode)
         {
             FileNode fileNode = (FileNode) ast;
@@ -105,7 +114,6 @@ public class ASTUtils
                 //FunctionNode.parseFunctionBody(). seems like a Royale bug.
             }
         }
-        return ast;
     }
 
     public static boolean containsWithStart(IASNode node, int offset)
@@ -246,15 +254,32 @@ public class ASTUtils
         return importsToRemove;
     }
     
-    public static void findUnusedImportProblems(IASNode ast, Set<String> requiredImports, List<ICompilerProblem> problems)
+    public static List<IImportNode> findImportNodes(IASNode node)
+    {
+        List<IImportNode> result = new ArrayList<>();
+        findImportNodes(node, result);
+        return result;
+    }
+
+    /**
+     * Returns true if the import is required by one of the qualified names
+     * that the file depends on, including wildcard imports of the package
+     * that contains the name.
+     */
+    public static boolean isImportRequired(String importName, Set<String> requiredImports)
     {
-        List<IImportNode> importsToRemove = findImportNodesToRemove(ast, requiredImports);
-        for(IImportNode importNode : importsToRemove)
+        if (importName.endsWith(DOT_STAR))
         {
-            problems.add(new UnusedImportProblem(importNode));
+            String importPackage = importName.substring(0, importName.length() - 2);
+            if (containsReferenceForImportPackage(importPackage, requiredImports))
+            {
+                //this class is referenced by a wildcard import
+                return true;
+            }
         }
+        return requiredImports.contains(importName);
     }
-    
+
     public static void findDisabledConfigConditionBlockProblems(IASNode ast, List<ICompilerProblem> problems)
     {
         List<ConfigConditionBlockNode> blocks = new ArrayList<>();
@@ -265,44 +290,21 @@ public class ASTUtils
         }
     }
 	
-	public static List<IDefinition> findTypesThatMatchName(String nameToFind, Collection<ICompilationUnit> compilationUnits)
+	public static List<IDefinition> findTypesThatMatchName(String nameToFind, DefinitionIndex definitionIndex, ILspProject project)
 	{
 		ArrayList<IDefinition> result = new ArrayList<>();
-        for (ICompilationUnit unit : compilationUnits)
+        for (IDefinition definition : definitionIndex.getDefinitionsWithBaseName(nameToFind, project))
         {
-            if (unit == null)
+            if (!(definition instanceof ITypeDefinition))
             {
                 continue;
             }
-            try
+            if (definition.getQualifiedName().equals(nameToFind))
             {
-                Collection<IDefinition> definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
-                if (definitions == null)
-                {
-                    continue;
-                }
-                for (IDefinition definition : definitions)
-                {
-                    if (definition instanceof ITypeDefinition)
-                    {
-                        ITypeDefinition typeDefinition = (ITypeDefinition) definition;
-                        String baseName = typeDefinition.getBaseName();
-                        if (typeDefinition.getQualifiedName().equals(baseName))
-                        {
-                            //this definition is top-level. no import required.
-                            continue;
-                        }
-                        if (baseName.equals(nameToFind))
-                        {
-                            result.add(typeDefinition);
-                        }
-                    }
-                }
-            }
-            catch (Exception e)
-            {
-                //safe to ignore
+                //this definition is top-level. no import required.
+                continue;
             }
+            result.add(definition);
 		}
 		return result;
     }
@@ -588,17 +590,7 @@ public class ASTUtils
             if (child instanceof IImportNode)
             {
                 IImportNode importNode = (IImportNode) child;
-                String importName = importNode.getImportName();
-                if (importName.endsWith(DOT_STAR))
-                {
-                    String importPackage = importName.substring(0, importName.length() - 2);
-                    if (containsReferenceForImportPackage(importPackage, requiredImports))
-                    {
-                        //this class is referenced by a wildcard import
-                        continue;
-                    }
-                }
-                if(!requiredImports.contains(importName))
+                if (!isImportRequired(importNode.getImportName(), requiredImports))
                 {
                     importsToRemove.add(importNode);
                 }
@@ -614,6 +606,24 @@ public class ASTUtils
         }
     }
 
+    protected static void findImportNodes(IASNode node, List<IImportNode> result)
+    {
+        for (int i = 0, count = node.getChildCount(); i < count; i++)
+        {
+            IASNode child = node.getChild(i);
+            if (child instanceof IImportNode)
+            {
+                result.add((IImportNode) child);
+                continue;
+            }
+            if (child.isTerminal())
+            {
+                continue;
+            }
+            findImportNodes(child, result);
+        }
+    }
+
     private static boolean containsReferenceForImportPackage(String importPackage, Set<String> referencedDefinitions)
     {
         for (String reference : referencedDefinitions)
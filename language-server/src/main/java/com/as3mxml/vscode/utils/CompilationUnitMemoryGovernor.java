@@ -0,0 +1,257 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.royale.compiler.projects.ICompilerProject;
+import org.apache.royale.compiler.tree.as.IASNode;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
+import org.apache.royale.compiler.workspaces.IWorkspace;
+
+/**
+ * Keeps the memory used by compilation units within a heap budget by
+ * cleaning the least recently used units for files that aren't open. A
+ * cleaned unit releases its syntax tree, ABC bytes, and other build results,
+ * but it keeps its file scope, so its definitions may still be resolved.
+ * The compiler builds the unit again the next time that it is requested.
+ *
+ * Only ActionScript and MXML units are tracked, and only after they have
+ * been accessed with getAST() or recordAccess(). Everything is forgotten if
+ * the project is recreated, or if invalidateAll() is called.
+ */
+public class CompilationUnitMemoryGovernor
+{
+    //the live heap is measured after the last collection, so it doesn't
+    //change until the next one. evicting only a fraction of the units at a
+    //time avoids evicting everything before the memory is reclaimed
+    private static final int EVICTION_DIVISOR = 4;
+
+    private ICompilerProject project;
+    private Map<ICompilationUnit,Boolean> recentUnits = new LinkedHashMap<>(16, 0.75f, true);
+    private Set<ICompilationUnit> evictedUnits = new HashSet<>();
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Should be called when files are added or removed, or when the
+     * configuration changes.
+     */
+    public synchronized void invalidateAll()
+    {
+        project = null;
+        recentUnits.clear();
+        evictedUnits.clear();
+    }
+
+    /**
+     * Returns the syntax tree of the compilation unit, after recording that
+     * it was accessed.
+     */
+    public IASNode getAST(ICompilationUnit unit)
+    {
+        recordAccess(unit);
+        return ASTUtils.getCompilationUnitAST(unit);
+    }
+
+    /**
+     * Should be called before something requests the syntax tree or other
+     * build results of a compilation unit. The unit won't be evicted until
+     * the units that were accessed more recently have been evicted.
+     */
+    public synchronized void recordAccess(ICompilationUnit unit)
+    {
+        UnitType unitType = unit.getCompilationUnitType();
+        if (!UnitType.AS_UNIT.equals(unitType) && !UnitType.MXML_UNIT.equals(unitType))
+        {
+            return;
+        }
+        if (project != unit.getProject())
+        {
+            //units from an old project must not be kept in memory
+            invalidateAll();
+            project = unit.getProject();
+        }
+        recentUnits.put(unit, Boolean.TRUE);
+        if (evictedUnits.remove(unit))
+        {
+            missCount++;
+        }
+        else
+        {
+            hitCount++;
+        }
+    }
+
+    /**
+     * If the live heap is larger than the budget, cleans some of the least
+     * recently used units for files that aren't open. Must not be called
+     * between startBuilding() and doneBuilding(), because the workspace is
+     * idle while units are cleaned.
+     *
+     * @param heapBudget The maximum number of bytes. If 0 or less, nothing
+     * is evicted.
+     * @return The number of evicted units
+     */
+    public int evictIfNeeded(long heapBudget, IWorkspace workspace, FileTracker fileTracker)
+    {
+        if (heapBudget <= 0)
+        {
+            return 0;
+        }
+        if (getLiveHeap() <= heapBudget)
+        {
+            return 0;
+        }
+        List<ICompilationUnit> unitsToEvict = new ArrayList<>();
+        synchronized (this)
+        {
+            int maxCount = (recentUnits.size() - evictedUnits.size()) / EVICTION_DIVISOR;
+            //the least recently used units are first
+            for (ICompilationUnit unit : recentUnits.keySet())
+            {
+                if (unitsToEvict.size() >= maxCount)
+                {
+                    break;
+                }
+                if (evictedUnits.contains(unit)
+                        || fileTracker.isOpen(Paths.get(unit.getAbsoluteFilename())))
+                {
+                    continue;
+                }
+                unitsToEvict.add(unit);
+            }
+        }
+        if (unitsToEvict.size() == 0)
+        {
+            return 0;
+        }
+        Map<ICompilerProject,Set<File>> invalidatedSWCFiles = new HashMap<>();
+        Map<ICompilerProject,Set<ICompilationUnit>> unitsToUpdate = new HashMap<>();
+        List<ICompilationUnit> evicted = new ArrayList<>();
+        workspace.startIdleState();
+        try
+        {
+            for (ICompilationUnit unit : unitsToEvict)
+            {
+                try
+                {
+                    //keep the file scope so that definitions aren't recreated
+                    unit.clean(invalidatedSWCFiles, unitsToUpdate, false);
+                    evicted.add(unit);
+                }
+                catch (Exception e)
+                {
+                    System.err.println("Exception while evicting compilation unit: " + unit.getAbsoluteFilename());
+                    e.printStackTrace(System.err);
+                }
+            }
+        }
+        finally
+        {
+            workspace.endIdleState(unitsToUpdate);
+        }
+        synchronized (this)
+        {
+            for (ICompilationUnit unit : evicted)
+            {
+                //the project may have been recreated while the workspace was
+                //idle
+                if (recentUnits.containsKey(unit))
+                {
+                    evictedUnits.add(unit);
+                }
+            }
+            evictionCount += evicted.size();
+        }
+        return evicted.size();
+    }
+
+    /**
+     * Returns the number of bytes used in the heap after the last garbage
+     * collection of each memory pool. Unlike the currently used heap, it
+     * doesn't include garbage that hasn't been collected yet. If the JVM
+     * doesn't report it, returns the currently used heap instead.
+     */
+    public static long getLiveHeap()
+    {
+        long result = 0;
+        boolean found = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (!MemoryType.HEAP.equals(pool.getType()))
+            {
+                continue;
+            }
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null)
+            {
+                continue;
+            }
+            result += usage.getUsed();
+            found = true;
+        }
+        if (!found)
+        {
+            Runtime runtime = Runtime.getRuntime();
+            result = runtime.totalMemory() - runtime.freeMemory();
+        }
+        return result;
+    }
+
+    public synchronized Statistics getStatistics()
+    {
+        Statistics result = new Statistics();
+        result.trackedUnits = recentUnits.size();
+        result.evictedUnits = evictedUnits.size();
+        result.hitCount = hitCount;
+        result.missCount = missCount;
+        result.evictionCount = evictionCount;
+        return result;
+    }
+
+    public static class Statistics
+    {
+        public int trackedUnits;
+        public int evictedUnits;
+        public long hitCount;
+        public long missCount;
+        public long evictionCount;
+
+        public void add(Statistics other)
+        {
+            trackedUnits += other.trackedUnits;
+            evictedUnits += other.evictedUnits;
+            hitCount += other.hitCount;
+            missCount += other.missCount;
+            evictionCount += other.evictionCount;
+        }
+    }
+}
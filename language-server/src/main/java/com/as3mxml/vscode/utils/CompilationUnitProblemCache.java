@@ -0,0 +1,183 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.as3mxml.vscode.project.ILspProject;
+
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.utils.FilenameNormalization;
+
+/**
+ * Stores the problems found in each compilation unit during the last check
+ * of a project, so that the next check needs to build and check only the
+ * units that have changed, and the units that depend on them.
+ *
+ * Every unit is checked again if the project is recreated (which happens
+ * when its configuration changes), if invalidateAll() is called, or if a
+ * changed file adds or removes a definition. A new definition may resolve
+ * problems in units that don't depend on the changed file yet.
+ */
+public class CompilationUnitProblemCache
+{
+    private ILspProject project;
+    private boolean fullCheckRequired = true;
+    private Set<Path> changedPaths = new HashSet<>();
+    private Map<ICompilationUnit,List<ICompilerProblem>> problemsByUnit = new HashMap<>();
+    private Map<ICompilationUnit,List<String>> qualifiedNamesByUnit = new HashMap<>();
+
+    /**
+     * Should be called when the contents of a file change.
+     */
+    public synchronized void fileChanged(Path path)
+    {
+        changedPaths.add(path);
+    }
+
+    /**
+     * Should be called when the configuration changes, or when files are
+     * added or removed, to require every unit to be checked again.
+     */
+    public synchronized void invalidateAll()
+    {
+        fullCheckRequired = true;
+        changedPaths.clear();
+        problemsByUnit.clear();
+        qualifiedNamesByUnit.clear();
+    }
+
+    /**
+     * Returns the units that need to be checked again, or null if all units
+     * need to be checked. Should be called after the project's compilation
+     * units have been built, so that the dependency graph is up to date.
+     */
+    public synchronized Set<ICompilationUnit> startCheck(ILspProject project)
+    {
+        Set<Path> paths = changedPaths;
+        changedPaths = new HashSet<>();
+        if (fullCheckRequired || this.project != project)
+        {
+            startFullCheck(project);
+            return null;
+        }
+        Set<ICompilationUnit> result = new HashSet<>();
+        ArrayDeque<ICompilationUnit> queue = new ArrayDeque<>();
+        for (Path path : paths)
+        {
+            String normalizedPath = FilenameNormalization.normalize(path.toAbsolutePath().toString());
+            for (ICompilationUnit unit : project.getCompilationUnits(normalizedPath))
+            {
+                if (unit == null)
+                {
+                    continue;
+                }
+                if (definitionsChanged(unit))
+                {
+                    startFullCheck(project);
+                    return null;
+                }
+                if (result.add(unit))
+                {
+                    queue.add(unit);
+                }
+            }
+        }
+        //anything that depends on a changed unit, directly or indirectly, may
+        //have new problems too
+        while (!queue.isEmpty())
+        {
+            ICompilationUnit unit = queue.remove();
+            for (ICompilationUnit dependent : project.getDirectDependents(unit))
+            {
+                if (result.add(dependent))
+                {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the problems found in a unit during a previous check, or null
+     * if the unit hasn't been checked.
+     */
+    public synchronized List<ICompilerProblem> getProblems(ICompilationUnit unit)
+    {
+        return problemsByUnit.get(unit);
+    }
+
+    public synchronized void setProblems(ICompilationUnit unit, Collection<ICompilerProblem> problems)
+    {
+        problemsByUnit.put(unit, new ArrayList<>(problems));
+        try
+        {
+            qualifiedNamesByUnit.put(unit, unit.getQualifiedNames());
+        }
+        catch (InterruptedException e)
+        {
+            qualifiedNamesByUnit.remove(unit);
+        }
+    }
+
+    /**
+     * Removes units that were not part of the latest check, such as units
+     * for deleted files.
+     */
+    public synchronized void retainUnits(Collection<ICompilationUnit> units)
+    {
+        Set<ICompilationUnit> unitsToKeep = new HashSet<>(units);
+        problemsByUnit.keySet().retainAll(unitsToKeep);
+        qualifiedNamesByUnit.keySet().retainAll(unitsToKeep);
+    }
+
+    private void startFullCheck(ILspProject project)
+    {
+        this.project = project;
+        fullCheckRequired = false;
+        problemsByUnit.clear();
+        qualifiedNamesByUnit.clear();
+    }
+
+    private boolean definitionsChanged(ICompilationUnit unit)
+    {
+        List<String> oldQualifiedNames = qualifiedNamesByUnit.get(unit);
+        if (oldQualifiedNames == null)
+        {
+            //we can't compare with a previous check, and a unit that wasn't
+            //checked before can't have cached problems
+            return false;
+        }
+        try
+        {
+            return !oldQualifiedNames.equals(unit.getQualifiedNames());
+        }
+        catch (InterruptedException e)
+        {
+            return true;
+        }
+    }
+}
@@ -254,6 +254,10 @@ public class CompilerProjectUtils
         {
             return null;
         }
+        if(project instanceof ILspProject)
+        {
+            return ((ILspProject) project).findCompilationUnit(pathToFind);
+        }
         for (ICompilationUnit unit : project.getCompilationUnits())
         {
             //it's possible for the collection of compilation units to contain
@@ -0,0 +1,280 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionList;
+
+/**
+ * Limits long completion lists to the items that best match the identifier
+ * that is being typed, so that thousands of items (including every type from
+ * every SWC) aren't sent to the client and filtered there.
+ *
+ * When a list is limited, it is marked as incomplete, so the client requests
+ * completion again as the identifier grows. The candidates that matched the
+ * previous request are remembered with the snapshot of the document that
+ * they were found for. If the only difference between that snapshot and the
+ * new one is that more characters were typed at the end of the identifier,
+ * only those candidates are matched again, instead of finding every visible
+ * definition again.
+ */
+public class CompletionListFilter
+{
+    public static final int DEFAULT_MAX_ITEMS = 1000;
+
+    private static final int SCORE_MATCH = 1;
+    private static final int SCORE_MATCH_CASE = 1;
+    private static final int SCORE_CONSECUTIVE = 3;
+    private static final int SCORE_WORD_START = 5;
+    private static final int SCORE_PREFIX = 10;
+    private static final int SCORE_EXACT = 20;
+
+    private int maxItems = DEFAULT_MAX_ITEMS;
+    private DocumentSnapshot snapshot;
+    private int prefixStart = -1;
+    private String prefix;
+    private List<CompletionItem> candidates;
+
+    public synchronized int getMaxItems()
+    {
+        return maxItems;
+    }
+
+    /**
+     * Sets the maximum number of items to send to the client. If 0 or less,
+     * every item is sent.
+     */
+    public synchronized void setMaxItems(int value)
+    {
+        maxItems = value;
+        clear();
+    }
+
+    public synchronized void clear()
+    {
+        snapshot = null;
+        prefixStart = -1;
+        prefix = null;
+        candidates = null;
+    }
+
+    /**
+     * Returns the best matches for the identifier that is being typed from
+     * the candidates of the previous request, or null if the candidates need
+     * to be found again.
+     *
+     * @param snapshot The version of the document that completion was
+     * requested for
+     * @param prefixStart The offset where the identifier starts
+     * @param prefix The part of the identifier before the cursor
+     */
+    public synchronized CompletionList filterCandidates(DocumentSnapshot snapshot, int prefixStart, String prefix)
+    {
+        if (candidates == null
+                || !snapshot.getPath().equals(this.snapshot.getPath())
+                || prefixStart != this.prefixStart
+                || prefix.length() <= this.prefix.length()
+                || !prefix.startsWith(this.prefix)
+                //if something other than the identifier changed, the
+                //candidates may be different
+                || !isOnlyInsertion(this.snapshot.getText(), snapshot.getText(),
+                        prefixStart + this.prefix.length(), prefix.substring(this.prefix.length())))
+        {
+            return null;
+        }
+        this.snapshot = snapshot;
+        return createList(prefix);
+    }
+
+    /**
+     * Returns the completion list unchanged, if it's short enough.
+     * Otherwise, returns the best matches for the identifier that is being
+     * typed, and remembers the items as candidates for the next request.
+     */
+    public synchronized CompletionList filter(DocumentSnapshot snapshot, int prefixStart, String prefix, CompletionList result)
+    {
+        clear();
+        if (maxItems <= 0 || result.getItems().size() <= maxItems)
+        {
+            return result;
+        }
+        this.snapshot = snapshot;
+        this.prefixStart = prefixStart;
+        candidates = result.getItems();
+        return createList(prefix);
+    }
+
+    /**
+     * Returns true if the new text appears to be the old text with the
+     * characters inserted at the offset. Only the inserted characters and
+     * the character after them are compared, so copying the full text of
+     * either version isn't necessary. An edit elsewhere that also changes
+     * the length is detected, but one that keeps the expected length is not.
+     */
+    private static boolean isOnlyInsertion(TextRope oldText, TextRope newText, int offset, String inserted)
+    {
+        int insertedLength = inserted.length();
+        if (newText.length() != oldText.length() + insertedLength)
+        {
+            return false;
+        }
+        for (int i = 0; i < insertedLength; i++)
+        {
+            if (newText.charAt(offset + i) != inserted.charAt(i))
+            {
+                return false;
+            }
+        }
+        int afterOffset = offset + insertedLength;
+        return afterOffset == newText.length()
+                || newText.charAt(afterOffset) == oldText.charAt(offset);
+    }
+
+    private CompletionList createList(String prefix)
+    {
+        List<ScoredItem> matches = new ArrayList<>();
+        for (CompletionItem item : candidates)
+        {
+            String text = item.getFilterText();
+            if (text == null)
+            {
+                text = item.getLabel();
+            }
+            int score = score(prefix, text);
+            if (score == -1)
+            {
+                continue;
+            }
+            matches.add(new ScoredItem(item, score));
+        }
+        //anything that doesn't match now won't match a longer prefix either
+        List<CompletionItem> newCandidates = new ArrayList<>(matches.size());
+        for (ScoredItem match : matches)
+        {
+            newCandidates.add(match.item);
+        }
+        candidates = newCandidates;
+        this.prefix = prefix;
+
+        matches.sort(Comparator.comparingInt((ScoredItem match) -> -match.score)
+                //items that don't add an import are usually more relevant
+                .thenComparing(match -> match.item.getAdditionalTextEdits() != null)
+                .thenComparingInt(match -> match.item.getLabel().length())
+                .thenComparing(match -> match.item.getLabel()));
+        int count = Math.min(matches.size(), maxItems);
+        List<CompletionItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            items.add(matches.get(i).item);
+        }
+        CompletionList result = new CompletionList();
+        //even if everything fits now, the client must ask again if the
+        //prefix gets shorter
+        result.setIsIncomplete(true);
+        result.setItems(items);
+        return result;
+    }
+
+    /**
+     * Returns how well some text matches the characters that have been typed
+     * so far, or -1 if the text doesn't contain all of them in the same
+     * order. Matches at the start of a word, like the "B" in "getBounds",
+     * and consecutive matches score higher.
+     */
+    public static int score(String prefix, String text)
+    {
+        if (prefix.length() == 0)
+        {
+            return 0;
+        }
+        if (prefix.length() > text.length())
+        {
+            return -1;
+        }
+        int score = 0;
+        int textIndex = 0;
+        int previousMatch = -2;
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            char prefixChar = prefix.charAt(i);
+            char lowerPrefixChar = Character.toLowerCase(prefixChar);
+            while (textIndex < text.length()
+                    && Character.toLowerCase(text.charAt(textIndex)) != lowerPrefixChar)
+            {
+                textIndex++;
+            }
+            if (textIndex == text.length())
+            {
+                return -1;
+            }
+            score += SCORE_MATCH;
+            if (text.charAt(textIndex) == prefixChar)
+            {
+                score += SCORE_MATCH_CASE;
+            }
+            if (textIndex == previousMatch + 1)
+            {
+                score += SCORE_CONSECUTIVE;
+            }
+            if (isWordStart(text, textIndex))
+            {
+                score += SCORE_WORD_START;
+            }
+            previousMatch = textIndex;
+            textIndex++;
+        }
+        if (text.regionMatches(true, 0, prefix, 0, prefix.length()))
+        {
+            score += SCORE_PREFIX;
+            if (text.length() == prefix.length())
+            {
+                score += SCORE_EXACT;
+            }
+        }
+        return score;
+    }
+
+    private static boolean isWordStart(String text, int index)
+    {
+        if (index == 0)
+        {
+            return true;
+        }
+        char previousChar = text.charAt(index - 1);
+        char currentChar = text.charAt(index);
+        if (!Character.isLetterOrDigit(previousChar))
+        {
+            return true;
+        }
+        return Character.isUpperCase(currentChar) && !Character.isUpperCase(previousChar);
+    }
+
+    private static class ScoredItem
+    {
+        public ScoredItem(CompletionItem item, int score)
+        {
+            this.item = item;
+            this.score = score;
+        }
+
+        public CompletionItem item;
+        public int score;
+    }
+}
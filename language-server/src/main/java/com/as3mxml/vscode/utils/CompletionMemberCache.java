@@ -0,0 +1,190 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.definitions.INamespaceDefinition;
+import org.apache.royale.compiler.definitions.ITypeDefinition;
+import org.apache.royale.compiler.projects.ICompilerProject;
+import org.apache.royale.utils.FilenameNormalization;
+import org.eclipse.lsp4j.CompletionItem;
+
+/**
+ * Stores the members of a type that are offered for completion, so that
+ * typing after the same member access again doesn't need to walk the whole
+ * class hierarchy and format the detail of every member again.
+ *
+ * Members are cached for each combination of type, namespace set, and
+ * filter. An entry is removed when the file that defines the type, or any
+ * of its base classes or interfaces, changes. Everything is removed if
+ * invalidateAll() is called, which should happen when files are added or
+ * removed, or when the project is recreated.
+ */
+public class CompletionMemberCache
+{
+    private static final int MAX_ENTRIES = 100;
+
+    private Map<Key,CachedMembers> entries = new LinkedHashMap<Key,CachedMembers>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key,CachedMembers> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Should be called when the contents of a file change.
+     */
+    public synchronized void fileChanged(Path path)
+    {
+        String normalizedPath = FilenameNormalization.normalize(path.toAbsolutePath().toString());
+        entries.values().removeIf(members -> members.paths.contains(normalizedPath));
+    }
+
+    /**
+     * Should be called when the configuration changes, or when files are
+     * added or removed.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Returns the cached members of the type, or null if they need to be
+     * resolved again. The filter should describe everything, other than the
+     * namespace set, that was used to decide which members to include.
+     */
+    public synchronized CachedMembers get(ITypeDefinition typeDefinition, Set<INamespaceDefinition> namespaceSet, String filter)
+    {
+        return entries.get(new Key(typeDefinition, namespaceSet, filter));
+    }
+
+    public synchronized CachedMembers put(ITypeDefinition typeDefinition, Set<INamespaceDefinition> namespaceSet, String filter,
+            List<IDefinition> definitions, ICompilerProject project)
+    {
+        Set<String> paths = new HashSet<>();
+        for (ITypeDefinition currentDefinition : typeDefinition.typeIteratable(project, false))
+        {
+            String path = currentDefinition.getContainingFilePath();
+            if (path != null)
+            {
+                paths.add(path);
+            }
+        }
+        CachedMembers members = new CachedMembers(definitions, paths);
+        entries.put(new Key(typeDefinition, namespaceSet, filter), members);
+        return members;
+    }
+
+    public static class CachedMembers
+    {
+        private CachedMembers(List<IDefinition> definitions, Set<String> paths)
+        {
+            this.definitions = Collections.unmodifiableList(new ArrayList<>(definitions));
+            this.paths = paths;
+            this.items = new CompletionItem[definitions.size()];
+        }
+
+        private List<IDefinition> definitions;
+        private Set<String> paths;
+        private CompletionItem[] items;
+
+        public List<IDefinition> getDefinitions()
+        {
+            return definitions;
+        }
+
+        /**
+         * Returns a new completion item for the definition at the specified
+         * index. The kind, detail, label, and documentation are created only
+         * once, and the caller may modify the returned item.
+         */
+        public synchronized CompletionItem createItem(int index, ICompilerProject project)
+        {
+            CompletionItem template = items[index];
+            if (template == null)
+            {
+                template = CompletionItemUtils.createDefinitionItem(definitions.get(index), project);
+                items[index] = template;
+            }
+            CompletionItem item = new CompletionItem();
+            item.setKind(template.getKind());
+            item.setDetail(template.getDetail());
+            item.setLabel(template.getLabel());
+            item.setDocumentation(template.getDocumentation());
+            return item;
+        }
+    }
+
+    private static class Key
+    {
+        public Key(ITypeDefinition typeDefinition, Set<INamespaceDefinition> namespaceSet, String filter)
+        {
+            this.typeDefinition = typeDefinition;
+            this.filter = filter;
+            //namespaces are compared by their class and URI, so that the key
+            //doesn't depend on how namespace definitions implement equals()
+            List<String> namespaceNames = new ArrayList<>();
+            for (INamespaceDefinition namespace : namespaceSet)
+            {
+                namespaceNames.add(namespace.getClass().getName() + ":" + namespace.getURI());
+            }
+            Collections.sort(namespaceNames);
+            this.namespaces = String.join(" ", namespaceNames);
+        }
+
+        private ITypeDefinition typeDefinition;
+        private String namespaces;
+        private String filter;
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key))
+            {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            //a recreated type is a different definition, even if it has the
+            //same name
+            return typeDefinition == otherKey.typeDefinition
+                    && namespaces.equals(otherKey.namespaces)
+                    && filter.equals(otherKey.filter);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = System.identityHashCode(typeDefinition);
+            result = 31 * result + namespaces.hashCode();
+            result = 31 * result + filter.hashCode();
+            return result;
+        }
+    }
+}
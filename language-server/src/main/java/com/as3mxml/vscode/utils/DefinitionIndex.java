@@ -0,0 +1,502 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.as3mxml.vscode.project.ILspProject;
+
+import org.apache.royale.compiler.definitions.IClassDefinition;
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.definitions.IInterfaceDefinition;
+import org.apache.royale.compiler.definitions.ITypeDefinition;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.utils.FilenameNormalization;
+
+/**
+ * Stores the externally visible definitions from every compilation unit in
+ * a project, including units from SWCs, so that finding types and packages
+ * doesn't need to request the file scope of every unit.
+ *
+ * Definitions are organized in a tree of package names, with a separate map
+ * of base names. The first time that subtypes are requested, a map from each
+ * type's qualified name to the types that directly extend or implement it is
+ * created, and it is kept up to date after that. Only the files passed to
+ * fileChanged() are read again when the index is next queried. Everything
+ * is read again if the project is recreated (which happens when SWCs are
+ * added or removed), or if invalidateAll() is called.
+ */
+public class DefinitionIndex
+{
+    private static final String PACKAGE_SEPARATOR = ".";
+
+    private ILspProject project;
+    private boolean rebuildRequired = true;
+    private Set<Path> changedPaths = new HashSet<>();
+    private Map<String,List<IDefinition>> definitionsByPath = new HashMap<>();
+    private PackageNode rootPackage = new PackageNode();
+    private Map<String,Map<String,List<IDefinition>>> definitionsByBaseName = new HashMap<>();
+    //null until subtypes are requested
+    private Map<String,Map<String,List<ITypeDefinition>>> subtypesBySupertypeName;
+    private Map<String,Set<String>> supertypeNamesByPath = new HashMap<>();
+    private Set<String> pathsWithUnresolvedSupertypes = new HashSet<>();
+
+    /**
+     * Should be called when the contents of a file change, or when a file is
+     * added or removed.
+     */
+    public synchronized void fileChanged(Path path)
+    {
+        changedPaths.add(path);
+    }
+
+    /**
+     * Should be called when the configuration changes to require every
+     * unit to be read again.
+     */
+    public synchronized void invalidateAll()
+    {
+        rebuildRequired = true;
+        changedPaths.clear();
+        definitionsByPath.clear();
+        rootPackage = new PackageNode();
+        definitionsByBaseName.clear();
+        subtypesBySupertypeName = null;
+        supertypeNamesByPath.clear();
+        pathsWithUnresolvedSupertypes.clear();
+    }
+
+    /**
+     * Returns every externally visible definition in the project. Must be
+     * called between startBuilding() and doneBuilding().
+     */
+    public synchronized List<IDefinition> getDefinitions(ILspProject project)
+    {
+        update(project);
+        List<IDefinition> result = new ArrayList<>();
+        for (List<IDefinition> definitions : definitionsByPath.values())
+        {
+            result.addAll(definitions);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the definitions in a package, but not its sub-packages. Must be
+     * called between startBuilding() and doneBuilding().
+     */
+    public synchronized List<IDefinition> getDefinitionsInPackage(String packageName, ILspProject project)
+    {
+        update(project);
+        List<IDefinition> result = new ArrayList<>();
+        PackageNode packageNode = findPackage(packageName);
+        if (packageNode != null)
+        {
+            addAll(packageNode.definitionsByPath.values(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the definitions in any package that have the specified base
+     * name. Must be called between startBuilding() and doneBuilding().
+     */
+    public synchronized List<IDefinition> getDefinitionsWithBaseName(String baseName, ILspProject project)
+    {
+        update(project);
+        List<IDefinition> result = new ArrayList<>();
+        Map<String,List<IDefinition>> definitionsForName = definitionsByBaseName.get(baseName);
+        if (definitionsForName != null)
+        {
+            addAll(definitionsForName.values(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the last part of the name of each package directly inside the
+     * specified package. For example, if the project contains
+     * flash.display.Sprite, the sub-packages of "flash" include "display".
+     * Must be called between startBuilding() and doneBuilding().
+     */
+    public synchronized List<String> getSubPackageNames(String packageName, ILspProject project)
+    {
+        update(project);
+        PackageNode packageNode = findPackage(packageName);
+        if (packageNode == null)
+        {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(packageNode.children.keySet());
+    }
+
+    /**
+     * Returns every type that extends or implements the type with the
+     * specified qualified name, directly or through other types. The type
+     * itself is not included. Must be called between startBuilding() and
+     * doneBuilding().
+     */
+    public synchronized List<ITypeDefinition> getAllSubtypes(String qualifiedName, ILspProject project)
+    {
+        update(project);
+        if (subtypesBySupertypeName == null)
+        {
+            subtypesBySupertypeName = new HashMap<>();
+            for (Map.Entry<String,List<IDefinition>> entry : definitionsByPath.entrySet())
+            {
+                addSubtypes(entry.getKey(), entry.getValue());
+            }
+        }
+        List<ITypeDefinition> result = new ArrayList<>();
+        Set<String> visitedNames = new HashSet<>();
+        visitedNames.add(qualifiedName);
+        Deque<String> namesToVisit = new ArrayDeque<>();
+        namesToVisit.add(qualifiedName);
+        while (!namesToVisit.isEmpty())
+        {
+            Map<String,List<ITypeDefinition>> subtypesForName = subtypesBySupertypeName.get(namesToVisit.remove());
+            if (subtypesForName == null)
+            {
+                continue;
+            }
+            for (List<ITypeDefinition> subtypes : subtypesForName.values())
+            {
+                for (ITypeDefinition subtype : subtypes)
+                {
+                    //an interface may be implemented by both a class and its
+                    //base class, but the class should appear only once
+                    if (visitedNames.add(subtype.getQualifiedName()))
+                    {
+                        result.add(subtype);
+                        namesToVisit.add(subtype.getQualifiedName());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void update(ILspProject project)
+    {
+        if (rebuildRequired || this.project != project)
+        {
+            invalidateAll();
+            this.project = project;
+            rebuildRequired = false;
+            for (ICompilationUnit unit : project.getCompilationUnits())
+            {
+                addUnit(unit);
+            }
+            return;
+        }
+        if (changedPaths.isEmpty())
+        {
+            return;
+        }
+        for (Path path : changedPaths)
+        {
+            String normalizedPath = FilenameNormalization.normalize(path.toAbsolutePath().toString());
+            removeFile(normalizedPath);
+            //if the file was removed, there are no units to add
+            for (ICompilationUnit unit : project.getCompilationUnits(normalizedPath))
+            {
+                addUnit(unit);
+            }
+        }
+        changedPaths.clear();
+        if (subtypesBySupertypeName != null)
+        {
+            //a supertype that couldn't be resolved before may exist now
+            for (String path : new ArrayList<>(pathsWithUnresolvedSupertypes))
+            {
+                removeSubtypes(path);
+                List<IDefinition> definitions = definitionsByPath.get(path);
+                if (definitions != null)
+                {
+                    addSubtypes(path, definitions);
+                }
+            }
+        }
+    }
+
+    private void addUnit(ICompilationUnit unit)
+    {
+        if (unit == null)
+        {
+            return;
+        }
+        Collection<IDefinition> definitions = null;
+        try
+        {
+            definitions = unit.getFileScopeRequest().get().getExternallyVisibleDefinitions();
+        }
+        catch (Exception e)
+        {
+            //safe to ignore
+            return;
+        }
+        if (definitions == null)
+        {
+            return;
+        }
+        //many units from the same SWC have the same path
+        String path = unit.getAbsoluteFilename();
+        List<IDefinition> definitionsForPath = definitionsByPath.get(path);
+        if (definitionsForPath == null)
+        {
+            definitionsForPath = new ArrayList<>();
+            definitionsByPath.put(path, definitionsForPath);
+        }
+        for (IDefinition definition : definitions)
+        {
+            definitionsForPath.add(definition);
+            PackageNode packageNode = findOrCreatePackage(definition.getPackageName());
+            addToPath(packageNode.definitionsByPath, path, definition);
+            Map<String,List<IDefinition>> definitionsForName = definitionsByBaseName.get(definition.getBaseName());
+            if (definitionsForName == null)
+            {
+                definitionsForName = new HashMap<>();
+                definitionsByBaseName.put(definition.getBaseName(), definitionsForName);
+            }
+            addToPath(definitionsForName, path, definition);
+        }
+        if (subtypesBySupertypeName != null)
+        {
+            addSubtypes(path, definitions);
+        }
+    }
+
+    private void addSubtypes(String path, Collection<IDefinition> definitions)
+    {
+        Set<String> supertypeNames = supertypeNamesByPath.get(path);
+        if (supertypeNames == null)
+        {
+            supertypeNames = new HashSet<>();
+            supertypeNamesByPath.put(path, supertypeNames);
+        }
+        for (IDefinition definition : definitions)
+        {
+            if (!(definition instanceof ITypeDefinition))
+            {
+                continue;
+            }
+            ITypeDefinition typeDefinition = (ITypeDefinition) definition;
+            List<ITypeDefinition> supertypes = new ArrayList<>();
+            if (!resolveDirectSupertypes(typeDefinition, supertypes))
+            {
+                pathsWithUnresolvedSupertypes.add(path);
+            }
+            for (ITypeDefinition supertype : supertypes)
+            {
+                String supertypeName = supertype.getQualifiedName();
+                Map<String,List<ITypeDefinition>> subtypesForName = subtypesBySupertypeName.get(supertypeName);
+                if (subtypesForName == null)
+                {
+                    subtypesForName = new HashMap<>();
+                    subtypesBySupertypeName.put(supertypeName, subtypesForName);
+                }
+                List<ITypeDefinition> subtypes = subtypesForName.get(path);
+                if (subtypes == null)
+                {
+                    subtypes = new ArrayList<>(1);
+                    subtypesForName.put(path, subtypes);
+                }
+                subtypes.add(typeDefinition);
+                supertypeNames.add(supertypeName);
+            }
+        }
+    }
+
+    /**
+     * Adds the base class and interfaces of the type to the result, and
+     * returns false if any of them couldn't be resolved.
+     */
+    private boolean resolveDirectSupertypes(ITypeDefinition typeDefinition, List<ITypeDefinition> result)
+    {
+        boolean resolved = true;
+        IInterfaceDefinition[] interfaceDefinitions = null;
+        if (typeDefinition instanceof IClassDefinition)
+        {
+            IClassDefinition classDefinition = (IClassDefinition) typeDefinition;
+            IClassDefinition baseClassDefinition = classDefinition.resolveBaseClass(project);
+            if (baseClassDefinition != null)
+            {
+                result.add(baseClassDefinition);
+            }
+            else if (classDefinition.getBaseClassReference() != null)
+            {
+                resolved = false;
+            }
+            interfaceDefinitions = classDefinition.resolveImplementedInterfaces(project);
+        }
+        else if (typeDefinition instanceof IInterfaceDefinition)
+        {
+            IInterfaceDefinition interfaceDefinition = (IInterfaceDefinition) typeDefinition;
+            interfaceDefinitions = interfaceDefinition.resolveExtendedInterfaces(project);
+        }
+        if (interfaceDefinitions != null)
+        {
+            for (IInterfaceDefinition interfaceDefinition : interfaceDefinitions)
+            {
+                //an interface that can't be resolved is null
+                if (interfaceDefinition == null)
+                {
+                    resolved = false;
+                    continue;
+                }
+                result.add(interfaceDefinition);
+            }
+        }
+        return resolved;
+    }
+
+    private void removeFile(String path)
+    {
+        List<IDefinition> definitions = definitionsByPath.remove(path);
+        if (definitions == null)
+        {
+            return;
+        }
+        for (IDefinition definition : definitions)
+        {
+            String baseName = definition.getBaseName();
+            Map<String,List<IDefinition>> definitionsForName = definitionsByBaseName.get(baseName);
+            if (definitionsForName != null)
+            {
+                definitionsForName.remove(path);
+                if (definitionsForName.isEmpty())
+                {
+                    definitionsByBaseName.remove(baseName);
+                }
+            }
+            removeFromPackage(rootPackage, splitPackageName(definition.getPackageName()), 0, path);
+        }
+        removeSubtypes(path);
+    }
+
+    private void removeSubtypes(String path)
+    {
+        pathsWithUnresolvedSupertypes.remove(path);
+        Set<String> supertypeNames = supertypeNamesByPath.remove(path);
+        if (subtypesBySupertypeName == null || supertypeNames == null)
+        {
+            return;
+        }
+        for (String supertypeName : supertypeNames)
+        {
+            Map<String,List<ITypeDefinition>> subtypesForName = subtypesBySupertypeName.get(supertypeName);
+            if (subtypesForName != null)
+            {
+                subtypesForName.remove(path);
+                if (subtypesForName.isEmpty())
+                {
+                    subtypesBySupertypeName.remove(supertypeName);
+                }
+            }
+        }
+    }
+
+    private boolean removeFromPackage(PackageNode packageNode, String[] parts, int index, String path)
+    {
+        if (index == parts.length)
+        {
+            packageNode.definitionsByPath.remove(path);
+        }
+        else
+        {
+            PackageNode child = packageNode.children.get(parts[index]);
+            if (child != null && removeFromPackage(child, parts, index + 1, path))
+            {
+                packageNode.children.remove(parts[index]);
+            }
+        }
+        //a package that no longer contains anything shouldn't be suggested
+        return packageNode.definitionsByPath.isEmpty() && packageNode.children.isEmpty();
+    }
+
+    private PackageNode findPackage(String packageName)
+    {
+        PackageNode packageNode = rootPackage;
+        for (String part : splitPackageName(packageName))
+        {
+            packageNode = packageNode.children.get(part);
+            if (packageNode == null)
+            {
+                return null;
+            }
+        }
+        return packageNode;
+    }
+
+    private PackageNode findOrCreatePackage(String packageName)
+    {
+        PackageNode packageNode = rootPackage;
+        for (String part : splitPackageName(packageName))
+        {
+            PackageNode child = packageNode.children.get(part);
+            if (child == null)
+            {
+                child = new PackageNode();
+                packageNode.children.put(part, child);
+            }
+            packageNode = child;
+        }
+        return packageNode;
+    }
+
+    private static String[] splitPackageName(String packageName)
+    {
+        if (packageName == null || packageName.length() == 0)
+        {
+            return new String[0];
+        }
+        return packageName.split("\\" + PACKAGE_SEPARATOR);
+    }
+
+    private static void addToPath(Map<String,List<IDefinition>> definitionsByPath, String path, IDefinition definition)
+    {
+        List<IDefinition> definitions = definitionsByPath.get(path);
+        if (definitions == null)
+        {
+            definitions = new ArrayList<>(1);
+            definitionsByPath.put(path, definitions);
+        }
+        definitions.add(definition);
+    }
+
+    private static void addAll(Collection<List<IDefinition>> lists, List<IDefinition> result)
+    {
+        for (List<IDefinition> definitions : lists)
+        {
+            result.addAll(definitions);
+        }
+    }
+
+    private static class PackageNode
+    {
+        public Map<String,PackageNode> children = new HashMap<>();
+        public Map<String,List<IDefinition>> definitionsByPath = new HashMap<>();
+    }
+}
@@ -132,20 +132,7 @@ public class DefinitionUtils
 		}
 		try
 		{
-			byte[] abcBytes = unit.getABCBytesRequest().get().getABCBytes();
-			ABCParser parser = new ABCParser(abcBytes);
-			PoolingABCVisitor visitor = new PoolingABCVisitor();
-			parser.parseABC(visitor);
-			Pool<String> pooledStrings = visitor.getStringPool();
-			for (String pooledString : pooledStrings.getValues())
-			{
-				if (pooledString.contains(SDK_SOURCE_PATH_SIGNATURE_UNIX)
-						|| pooledString.contains(SDK_SOURCE_PATH_SIGNATURE_WINDOWS))
-				{
-					//just go with the first one that we find
-					return transformDebugFilePath(pooledString);
-				}
-			}
+			return getCompilationUnitDebugSourceFilePath(unit);
 		}
 		catch (InterruptedException e)
 		{
@@ -154,6 +141,30 @@ public class DefinitionUtils
 		return null;
 	}
 
+	/**
+	 * Searches the ABC bytes of a compiled compilation unit for the path of
+	 * the framework source file that it was compiled from. Returns null if
+	 * the ABC bytes don't contain a path.
+	 */
+	public static String getCompilationUnitDebugSourceFilePath(ICompilationUnit unit) throws InterruptedException
+	{
+		byte[] abcBytes = unit.getABCBytesRequest().get().getABCBytes();
+		ABCParser parser = new ABCParser(abcBytes);
+		PoolingABCVisitor visitor = new PoolingABCVisitor();
+		parser.parseABC(visitor);
+		Pool<String> pooledStrings = visitor.getStringPool();
+		for (String pooledString : pooledStrings.getValues())
+		{
+			if (pooledString.contains(SDK_SOURCE_PATH_SIGNATURE_UNIX)
+					|| pooledString.contains(SDK_SOURCE_PATH_SIGNATURE_WINDOWS))
+			{
+				//just go with the first one that we find
+				return transformDebugFilePath(pooledString);
+			}
+		}
+		return null;
+	}
+
 	public static boolean isImplementationOfInterface(IClassDefinition classDefinition, IInterfaceDefinition interfaceDefinition, ICompilerProject project)
 	{
 		Iterator<IInterfaceDefinition> interfaceIterator = classDefinition.interfaceIterator(project);
@@ -0,0 +1,222 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.services.LanguageClient;
+
+/**
+ * Sends diagnostics to the client only for files where they have changed.
+ * The diagnostics last published for each file are remembered, and
+ * publishing equal diagnostics again is skipped. A file that was never
+ * published is considered to have no diagnostics, so clearing it is skipped
+ * too.
+ *
+ * Diagnostics published for the same file within a short window are
+ * coalesced, so only the newest ones are sent.
+ */
+public class DiagnosticsPublisher
+{
+    public static final long DEFAULT_COALESCE_DELAY = 50;
+
+    public DiagnosticsPublisher()
+    {
+        this(DEFAULT_COALESCE_DELAY);
+    }
+
+    public DiagnosticsPublisher(long coalesceDelay)
+    {
+        this.coalesceDelay = coalesceDelay;
+    }
+
+    private LanguageClient languageClient;
+    private long coalesceDelay;
+    private ScheduledExecutorService flushExecutor;
+    private Object flushLock = new Object();
+    private Map<String,PublishDiagnosticsParams> pendingByUri = new LinkedHashMap<>();
+    private Map<String,PublishedDiagnostics> publishedByUri = new HashMap<>();
+    private long skippedCount = 0;
+    private long publishedCount = 0;
+    private long publishedDiagnosticCount = 0;
+
+    public synchronized LanguageClient getLanguageClient()
+    {
+        return languageClient;
+    }
+
+    public synchronized void setLanguageClient(LanguageClient value)
+    {
+        if (languageClient == value)
+        {
+            return;
+        }
+        languageClient = value;
+        //a new client hasn't received anything yet
+        publishedByUri.clear();
+    }
+
+    /**
+     * Returns the number of times that diagnostics were not sent to the
+     * client because they were unchanged, or because newer diagnostics for
+     * the same file replaced them.
+     */
+    public synchronized long getSkippedCount()
+    {
+        return skippedCount;
+    }
+
+    /**
+     * Returns the number of times that diagnostics were sent to the client.
+     */
+    public synchronized long getPublishedCount()
+    {
+        return publishedCount;
+    }
+
+    /**
+     * Returns the total number of diagnostics sent to the client, for all
+     * files.
+     */
+    public synchronized long getPublishedDiagnosticCount()
+    {
+        return publishedDiagnosticCount;
+    }
+
+    /**
+     * Queues diagnostics to be sent to the client, replacing any that are
+     * already queued for the same file.
+     */
+    public void publish(PublishDiagnosticsParams params)
+    {
+        synchronized (this)
+        {
+            boolean flushScheduled = pendingByUri.size() > 0;
+            if (pendingByUri.remove(params.getUri()) != null)
+            {
+                skippedCount++;
+            }
+            pendingByUri.put(params.getUri(), params);
+            if (coalesceDelay > 0)
+            {
+                if (!flushScheduled)
+                {
+                    getFlushExecutor().schedule(this::flush, coalesceDelay, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Sends any queued diagnostics that have changed since they were last
+     * sent to the client.
+     */
+    public void flush()
+    {
+        //if two flushes overlap, the client must receive the diagnostics in
+        //the same order that they were compared
+        synchronized (flushLock)
+        {
+            LanguageClient client = null;
+            List<PublishDiagnosticsParams> changed = new ArrayList<>();
+            synchronized (this)
+            {
+                client = languageClient;
+                if (client != null)
+                {
+                    for (PublishDiagnosticsParams params : pendingByUri.values())
+                    {
+                        if (hasChanged(params))
+                        {
+                            changed.add(params);
+                            publishedCount++;
+                            publishedDiagnosticCount += params.getDiagnostics().size();
+                        }
+                        else
+                        {
+                            skippedCount++;
+                        }
+                    }
+                }
+                pendingByUri.clear();
+            }
+            //don't block publish() while the client serializes everything
+            for (PublishDiagnosticsParams params : changed)
+            {
+                client.publishDiagnostics(params);
+            }
+        }
+    }
+
+    private boolean hasChanged(PublishDiagnosticsParams params)
+    {
+        String uri = params.getUri();
+        List<Diagnostic> diagnostics = params.getDiagnostics();
+        if (diagnostics.size() == 0)
+        {
+            //nothing needs to be remembered for a file without diagnostics
+            return publishedByUri.remove(uri) != null;
+        }
+        int hash = diagnostics.hashCode();
+        PublishedDiagnostics published = publishedByUri.get(uri);
+        //the hash quickly finds most changes, but only equals() can prove
+        //that nothing changed
+        if (published != null && published.hash == hash
+                && published.diagnostics.equals(diagnostics))
+        {
+            return false;
+        }
+        publishedByUri.put(uri, new PublishedDiagnostics(hash, new ArrayList<>(diagnostics)));
+        return true;
+    }
+
+    private ScheduledExecutorService getFlushExecutor()
+    {
+        if (flushExecutor == null)
+        {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "as3mxml-diagnostics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flushExecutor;
+    }
+
+    private static class PublishedDiagnostics
+    {
+        public PublishedDiagnostics(int hash, List<Diagnostic> diagnostics)
+        {
+            this.hash = hash;
+            this.diagnostics = diagnostics;
+        }
+
+        public final int hash;
+        public final List<Diagnostic> diagnostics;
+    }
+}
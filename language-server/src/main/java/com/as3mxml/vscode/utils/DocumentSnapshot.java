@@ -0,0 +1,58 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+
+/**
+ * The text of an open document at a specific version. A snapshot never
+ * changes. Editing the document creates a new snapshot, so a reader that
+ * holds a snapshot always sees text and a version that belong together.
+ */
+public class DocumentSnapshot
+{
+    /**
+     * The version of a document that was opened by the server instead of
+     * the client.
+     */
+    public static final int UNKNOWN_VERSION = -1;
+
+    public DocumentSnapshot(Path path, TextRope text, int version)
+    {
+        this.path = path;
+        this.text = text;
+        this.version = version;
+    }
+
+    private final Path path;
+    private final TextRope text;
+    private final int version;
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    public TextRope getText()
+    {
+        return text;
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+/**
+ * Stores the symbols of recently requested open documents, so that the
+ * outline, breadcrumbs, and other features that request symbols repeatedly
+ * for the same version of a document don't need to wait for the compiler.
+ *
+ * Symbols are stored for a specific document version, and they are removed
+ * when the file changes, including when a file that it includes changes.
+ * Documents opened by the server, without a version from the client, aren't
+ * cached.
+ */
+public class DocumentSymbolCache
+{
+    private static final int MAX_ENTRIES = 20;
+
+    private Map<Path,Entry> entries = new LinkedHashMap<Path,Entry>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path,Entry> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Should be called when the contents of a file change, or when it is
+     * closed.
+     */
+    public synchronized void fileChanged(Path path)
+    {
+        entries.remove(path);
+    }
+
+    /**
+     * Should be called when the configuration changes.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Returns the symbols for the version of the document, or null if they
+     * need to be found again.
+     */
+    public synchronized List<Either<SymbolInformation, DocumentSymbol>> get(DocumentSnapshot snapshot, boolean hierarchical)
+    {
+        if (snapshot == null)
+        {
+            return null;
+        }
+        Entry entry = entries.get(snapshot.getPath());
+        if (entry == null
+                || entry.version != snapshot.getVersion()
+                || entry.hierarchical != hierarchical)
+        {
+            return null;
+        }
+        return entry.symbols;
+    }
+
+    public synchronized void put(DocumentSnapshot snapshot, boolean hierarchical, List<Either<SymbolInformation, DocumentSymbol>> symbols)
+    {
+        if (snapshot == null || snapshot.getVersion() == DocumentSnapshot.UNKNOWN_VERSION)
+        {
+            return;
+        }
+        entries.put(snapshot.getPath(), new Entry(snapshot.getVersion(), hierarchical, symbols));
+    }
+
+    private static class Entry
+    {
+        public Entry(int version, boolean hierarchical, List<Either<SymbolInformation, DocumentSymbol>> symbols)
+        {
+            this.version = version;
+            this.hierarchical = hierarchical;
+            this.symbols = symbols;
+        }
+
+        public int version;
+        public boolean hierarchical;
+        public List<Either<SymbolInformation, DocumentSymbol>> symbols;
+    }
+}
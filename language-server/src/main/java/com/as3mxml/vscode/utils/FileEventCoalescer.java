@@ -0,0 +1,155 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+
+/**
+ * Combines multiple file system events for the same path into a single event
+ * that describes the net change. For example, a file that is created and
+ * then modified several times is simply created, and a file that is created
+ * and then deleted before the events are drained is ignored completely.
+ *
+ * A path that existed before, and that is deleted and created again, is
+ * only considered changed if it is the same file. If it is a directory, or
+ * if it isn't known to be the same file, both the deletion and the creation
+ * are returned, so that anything inside the old directory is removed, and
+ * anything inside the new one is added.
+ */
+public class FileEventCoalescer
+{
+    private Map<Path,PendingChange> changes = new LinkedHashMap<>();
+
+    /**
+     * @param isDirectory If the path is a directory, after the change. Only
+     * meaningful if the path exists.
+     * @param fileKey An object that identifies the file, like the one
+     * returned by BasicFileAttributes.fileKey(), or null if it is unknown
+     * or if the file doesn't exist.
+     */
+    public void add(Path path, FileChangeType changeType, boolean isDirectory, Object fileKey)
+    {
+        boolean deleted = FileChangeType.Deleted.equals(changeType);
+        PendingChange change = changes.get(path);
+        if (change == null)
+        {
+            //if the first event isn't a creation, the file existed before
+            change = new PendingChange(!FileChangeType.Created.equals(changeType));
+            if (change.existedBefore && !deleted)
+            {
+                change.fileKeyBefore = fileKey;
+            }
+            changes.put(path, change);
+        }
+        else if (change.existedBefore && !change.existsNow && !deleted)
+        {
+            //deleted and then created again
+            change.recreated = true;
+        }
+        change.existsNow = !deleted;
+        if (!deleted)
+        {
+            change.isDirectory = isDirectory;
+            change.fileKey = fileKey;
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return changes.isEmpty();
+    }
+
+    public int size()
+    {
+        return changes.size();
+    }
+
+    /**
+     * Returns the events for each path that changed, in the order that the
+     * paths first changed, and clears the pending changes. Usually, there is
+     * one event for each path, but a path that was replaced has a Deleted
+     * event followed by a Created event.
+     */
+    public List<FileEvent> drain()
+    {
+        List<FileEvent> result = new ArrayList<>(changes.size());
+        for (Map.Entry<Path,PendingChange> entry : changes.entrySet())
+        {
+            PendingChange change = entry.getValue();
+            String uri = entry.getKey().toUri().toString();
+            if (change.existedBefore)
+            {
+                if (!change.existsNow)
+                {
+                    result.add(new FileEvent(uri, FileChangeType.Deleted));
+                }
+                else if (change.isReplaced())
+                {
+                    result.add(new FileEvent(uri, FileChangeType.Deleted));
+                    result.add(new FileEvent(uri, FileChangeType.Created));
+                }
+                else
+                {
+                    result.add(new FileEvent(uri, FileChangeType.Changed));
+                }
+            }
+            else if (change.existsNow)
+            {
+                result.add(new FileEvent(uri, FileChangeType.Created));
+            }
+            //otherwise, it was created and deleted again
+        }
+        changes.clear();
+        return result;
+    }
+
+    private static class PendingChange
+    {
+        public PendingChange(boolean existedBefore)
+        {
+            this.existedBefore = existedBefore;
+            this.existsNow = existedBefore;
+        }
+
+        public boolean existedBefore;
+        public boolean existsNow;
+        public boolean recreated = false;
+        public boolean isDirectory = false;
+        public Object fileKeyBefore;
+        public Object fileKey;
+
+        public boolean isReplaced()
+        {
+            if (!recreated)
+            {
+                return false;
+            }
+            if (isDirectory)
+            {
+                return true;
+            }
+            //if either key is unknown, it may be a different file
+            return fileKeyBefore == null || !fileKeyBefore.equals(fileKey);
+        }
+    }
+}
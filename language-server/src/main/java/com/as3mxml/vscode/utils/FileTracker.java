@@ -20,23 +20,46 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.royale.compiler.filespecs.IFileSpecification;
 import org.apache.royale.compiler.workspaces.IWorkspace;
-import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 
+/**
+ * Stores the text of open documents, and reads other files from the file
+ * system.
+ *
+ * Open documents are stored as immutable snapshots. Changes are received on
+ * one thread, but requests are handled on others, so each change publishes
+ * a new snapshot for the document, and readers never need to lock. A method
+ * that reads an open document reads its snapshot only once, so the result is
+ * always consistent, even if the document changes at the same time.
+ */
 public class FileTracker
 {
-	private Map<Path,String> sourceByPath = new HashMap<>();
+    private static final int MAX_CLOSED_LINE_INDEXES = 256;
+
+	private Map<Path,DocumentSnapshot> snapshotByPath = new ConcurrentHashMap<>();
+    private Map<Path,CachedLineIndex> lineIndexByPath = Collections.synchronizedMap(
+        new LinkedHashMap<Path,CachedLineIndex>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path,CachedLineIndex> eldest)
+            {
+                return size() > MAX_CLOSED_LINE_INDEXES + snapshotByPath.size();
+            }
+        });
 	private LanguageServerFileSpecGetter fileSpecGetter;
 	
 	public FileTracker(IWorkspace compilerWorkspace)
@@ -46,43 +69,81 @@ public class FileTracker
 
 	public boolean isOpen(Path path)
 	{
-		return sourceByPath.containsKey(path);
+		return snapshotByPath.containsKey(path);
 	}
 
 	public Set<Path> getOpenFiles()
 	{
-		return sourceByPath.keySet();
+		return snapshotByPath.keySet();
 	}
 
+    /**
+     * Returns the current snapshot of an open file, or null if the file is
+     * not open.
+     */
+    public DocumentSnapshot getSnapshot(Path path)
+    {
+        if(path == null)
+        {
+            return null;
+        }
+        return snapshotByPath.get(path);
+    }
+
+    /**
+     * Returns true if the snapshot is still the current snapshot of its file.
+     * A request may call this before replying to check that its result is
+     * for the latest version.
+     */
+    public boolean isLatest(DocumentSnapshot snapshot)
+    {
+        return snapshotByPath.get(snapshot.getPath()) == snapshot;
+    }
+
 	public void openFile(Path path, String text)
 	{
-		sourceByPath.put(path, text);
+		openFile(path, text, DocumentSnapshot.UNKNOWN_VERSION);
 	}
 
-	public String closeFile(Path path)
+	public void openFile(Path path, String text, int version)
 	{
-		return sourceByPath.remove(path);
+		snapshotByPath.put(path, new DocumentSnapshot(path, TextRope.fromString(text), version));
 	}
 
-	public void changeFile(Path path, List<TextDocumentContentChangeEvent> contentChanges)
+	public void closeFile(Path path)
 	{
-        for (TextDocumentContentChangeEvent change : contentChanges)
+		snapshotByPath.remove(path);
+        lineIndexByPath.remove(path);
+	}
+
+	public void changeFile(Path path, List<TextDocumentContentChangeEvent> contentChanges, int version)
+	{
+        //the new snapshot is published atomically, after all of the changes
+        //have been applied
+        snapshotByPath.compute(path, (key, snapshot) ->
         {
-            if (change.getRange() == null)
-            {
-                sourceByPath.put(path, change.getText());
-            }
-            else if(sourceByPath.containsKey(path))
+            TextRope rope = (snapshot != null) ? snapshot.getText() : null;
+            for (TextDocumentContentChangeEvent change : contentChanges)
             {
-                String existingText = sourceByPath.get(path);
-                String newText = patch(existingText, change);
-                sourceByPath.put(path, newText);
+                if (change.getRange() == null)
+                {
+                    rope = TextRope.fromString(change.getText());
+                }
+                else if(rope != null)
+                {
+                    rope = patch(rope, change);
+                }
+                else
+                {
+                    System.err.println("Failed to apply changes to code intelligence from path: " + path);
+                }
             }
-            else
+            if (rope == null)
             {
-                System.err.println("Failed to apply changes to code intelligence from path: " + path);
+                return snapshot;
             }
-        }
+            return new DocumentSnapshot(path, rope, version);
+        });
 	}
 
     public Reader getReader(Path path)
@@ -92,11 +153,11 @@ public class FileTracker
             return null;
         }
         Reader reader = null;
-        if (sourceByPath.containsKey(path))
+        DocumentSnapshot snapshot = snapshotByPath.get(path);
+        if (snapshot != null)
         {
             //if the file is open, use the edited code
-            String code = sourceByPath.get(path);
-            reader = new StringReader(code);
+            reader = snapshot.getText().createReader();
         }
         else
         {
@@ -120,9 +181,10 @@ public class FileTracker
 
     public String getText(Path path)
     {
-        if(sourceByPath.containsKey(path))
+        DocumentSnapshot snapshot = snapshotByPath.get(path);
+        if(snapshot != null)
         {
-            return sourceByPath.get(path);
+            return snapshot.getText().toString();
         }
         Reader reader = getReader(path);
         if(reader == null)
@@ -147,21 +209,103 @@ public class FileTracker
         }
     }
 
+    /**
+     * Returns an index that may be used to convert between positions and
+     * offsets in a file. For an open file, the index uses the file's rope.
+     * For a closed file, the line starts are read from the file system and
+     * cached until the file changes, so they may be shared by every request
+     * for the same version of the file. Returns null if the file cannot be
+     * read.
+     */
+    public LineIndex getLineIndex(Path path)
+    {
+        if(path == null)
+        {
+            return null;
+        }
+        DocumentSnapshot snapshot = snapshotByPath.get(path);
+        if (snapshot != null)
+        {
+            //the rope already knows where its lines start, so nothing needs
+            //to be built or cached when an open file changes
+            return LineIndex.fromRope(snapshot.getText());
+        }
+        //for closed files, use the modification time and the size from the
+        //file system to identify the version
+        File file = path.toFile();
+        if (!file.exists())
+        {
+            lineIndexByPath.remove(path);
+            return null;
+        }
+        String version = file.lastModified() + ":" + file.length();
+        CachedLineIndex cached = lineIndexByPath.get(path);
+        if (cached != null && cached.version.equals(version))
+        {
+            return cached.lineIndex;
+        }
+        Reader reader = getReader(path);
+        if (reader == null)
+        {
+            return null;
+        }
+        LineIndex lineIndex = null;
+        try
+        {
+            lineIndex = LineIndex.fromReader(reader);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        finally
+        {
+            try
+            {
+                reader.close();
+            }
+            catch(IOException e) {}
+        }
+        lineIndexByPath.put(path, new CachedLineIndex(version, lineIndex));
+        return lineIndex;
+    }
+
     public IFileSpecification getFileSpecification(String filePath)
     {
         return fileSpecGetter.getFileSpecification(filePath);
     }
 
-    private String patch(String sourceText, TextDocumentContentChangeEvent change)
+    /**
+     * Returns the text of an open file without copying it into a String, or
+     * null if the file is not open.
+     */
+    public CharSequence getOpenText(Path path)
+    {
+        DocumentSnapshot snapshot = snapshotByPath.get(path);
+        if (snapshot == null)
+        {
+            return null;
+        }
+        return snapshot.getText();
+    }
+
+    private TextRope patch(TextRope rope, TextDocumentContentChangeEvent change)
     {
         Range range = change.getRange();
-        Position start = range.getStart();
-        StringReader reader = new StringReader(sourceText);
-        int offset = LanguageServerCompilerUtils.getOffsetFromPosition(reader, start);
-        StringBuilder builder = new StringBuilder();
-        builder.append(sourceText.substring(0, offset));
-        builder.append(change.getText());
-        builder.append(sourceText.substring(offset + change.getRangeLength()));
-        return builder.toString();
+        int start = rope.getOffsetFromPosition(range.getStart());
+        int end = rope.getOffsetFromPosition(range.getEnd());
+        return rope.replace(start, end, change.getText());
+    }
+
+    private static class CachedLineIndex
+    {
+        public CachedLineIndex(String version, LineIndex lineIndex)
+        {
+            this.version = version;
+            this.lineIndex = lineIndex;
+        }
+
+        public final String version;
+        public final LineIndex lineIndex;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,317 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.as3mxml.vscode.project.ILspProject;
+
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
+
+/**
+ * An inverted index from each identifier-like word in a source file to the
+ * files that contain it, so that finding references to a definition only
+ * needs to walk the ASTs of the files that mention its name, instead of
+ * every file in the project.
+ *
+ * Words are read from the raw text, including comments, strings, and MXML
+ * tags and attributes, so a file may be a candidate without actually
+ * containing a reference. Files that include other files are always
+ * candidates, because the included code is part of their ASTs.
+ *
+ * Files are indexed the first time that they are queried. Source files that
+ * are changed, added, or removed must be passed to invalidateFile().
+ */
+public class IdentifierIndex
+{
+    private static final String AS_INCLUDE = "include";
+    private static final String MXML_SCRIPT_SOURCE = "source";
+    private static final String MXML_EXTENSION = ".mxml";
+    private static final int INITIAL_POSTINGS_CAPACITY = 4;
+    private static final int MIN_REMOVED_FILES_TO_COMPACT = 1000;
+
+    private Map<Path,Integer> idByPath = new HashMap<>();
+    private List<Path> pathById = new ArrayList<>();
+    private Map<String,Postings> postingsByWord = new HashMap<>();
+    private int removedCount = 0;
+    private Set<Path> invalidatedPaths = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Marks the words from a file as out of date. May be called from any
+     * thread.
+     */
+    public void invalidateFile(Path path)
+    {
+        if (path == null)
+        {
+            return;
+        }
+        invalidatedPaths.add(path);
+    }
+
+    /**
+     * Returns the ActionScript and MXML compilation units in the project that
+     * may contain the specified name. Must be called between startBuilding()
+     * and doneBuilding().
+     */
+    public synchronized List<ICompilationUnit> getCandidateCompilationUnits(String name, ILspProject project, FileTracker fileTracker)
+    {
+        removeInvalidatedFiles();
+
+        List<ICompilationUnit> units = new ArrayList<>();
+        for (ICompilationUnit unit : project.getCompilationUnits())
+        {
+            if (unit == null)
+            {
+                continue;
+            }
+            UnitType unitType = unit.getCompilationUnitType();
+            if (!UnitType.AS_UNIT.equals(unitType) && !UnitType.MXML_UNIT.equals(unitType))
+            {
+                continue;
+            }
+            units.add(unit);
+        }
+        if (!isWord(name))
+        {
+            //something like a package name can't be narrowed down
+            return units;
+        }
+
+        //index any files that are new or changed before looking up the name
+        List<Integer> ids = new ArrayList<>(units.size());
+        for (ICompilationUnit unit : units)
+        {
+            Path path = Paths.get(unit.getAbsoluteFilename());
+            Integer id = idByPath.get(path);
+            if (id == null)
+            {
+                id = addFile(path, fileTracker);
+            }
+            ids.add(id);
+        }
+
+        Postings namePostings = postingsByWord.get(name);
+        Postings includePostings = postingsByWord.get(AS_INCLUDE);
+        Postings scriptSourcePostings = postingsByWord.get(MXML_SCRIPT_SOURCE);
+        List<ICompilationUnit> result = new ArrayList<>();
+        for (int i = 0; i < units.size(); i++)
+        {
+            ICompilationUnit unit = units.get(i);
+            Integer id = ids.get(i);
+            if (id == null)
+            {
+                //if the file can't be read, don't skip it
+                result.add(unit);
+            }
+            else if (contains(namePostings, id) || contains(includePostings, id))
+            {
+                result.add(unit);
+            }
+            else if (unit.getAbsoluteFilename().endsWith(MXML_EXTENSION)
+                    && contains(scriptSourcePostings, id))
+            {
+                //<fx:Script source="..."/> includes another file
+                result.add(unit);
+            }
+        }
+        compactIfNeeded();
+        return result;
+    }
+
+    private boolean contains(Postings postings, int id)
+    {
+        return postings != null && postings.contains(id);
+    }
+
+    private Integer addFile(Path path, FileTracker fileTracker)
+    {
+        Set<String> words = null;
+        Reader reader = fileTracker.getReader(path);
+        if (reader == null)
+        {
+            return null;
+        }
+        try (Reader bufferedReader = new BufferedReader(reader))
+        {
+            words = readWords(bufferedReader);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        int id = pathById.size();
+        pathById.add(path);
+        idByPath.put(path, id);
+        for (String word : words)
+        {
+            Postings postings = postingsByWord.get(word);
+            if (postings == null)
+            {
+                postings = new Postings();
+                postingsByWord.put(word, postings);
+            }
+            postings.add(id);
+        }
+        return id;
+    }
+
+    private void removeInvalidatedFiles()
+    {
+        if (invalidatedPaths.isEmpty())
+        {
+            return;
+        }
+        for (Path path : invalidatedPaths)
+        {
+            invalidatedPaths.remove(path);
+            Integer id = idByPath.remove(path);
+            if (id == null)
+            {
+                continue;
+            }
+            //the file's id stays in the postings until the next compaction,
+            //but it no longer maps to a path
+            pathById.set(id, null);
+            removedCount++;
+        }
+    }
+
+    private void compactIfNeeded()
+    {
+        if (removedCount < MIN_REMOVED_FILES_TO_COMPACT || removedCount < (pathById.size() / 2))
+        {
+            return;
+        }
+        int[] newIds = new int[pathById.size()];
+        List<Path> newPathById = new ArrayList<>();
+        for (int i = 0; i < pathById.size(); i++)
+        {
+            Path path = pathById.get(i);
+            if (path == null)
+            {
+                newIds[i] = -1;
+                continue;
+            }
+            newIds[i] = newPathById.size();
+            newPathById.add(path);
+            idByPath.put(path, newIds[i]);
+        }
+        postingsByWord.values().removeIf(postings ->
+        {
+            postings.remap(newIds);
+            return postings.size == 0;
+        });
+        pathById = newPathById;
+        removedCount = 0;
+    }
+
+    private static boolean isWord(String name)
+    {
+        if (name == null || name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0)))
+        {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++)
+        {
+            if (!Character.isJavaIdentifierPart(name.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> readWords(Reader reader) throws IOException
+    {
+        Set<String> words = new HashSet<>();
+        StringBuilder builder = new StringBuilder();
+        int c = -1;
+        while ((c = reader.read()) != -1)
+        {
+            char ch = (char) c;
+            if (builder.length() == 0
+                    ? Character.isJavaIdentifierStart(ch)
+                    : Character.isJavaIdentifierPart(ch))
+            {
+                builder.append(ch);
+                continue;
+            }
+            if (builder.length() > 0)
+            {
+                words.add(builder.toString());
+                builder.setLength(0);
+            }
+        }
+        if (builder.length() > 0)
+        {
+            words.add(builder.toString());
+        }
+        return words;
+    }
+
+    private static class Postings
+    {
+        public int[] ids = new int[INITIAL_POSTINGS_CAPACITY];
+        public int size = 0;
+
+        public void add(int id)
+        {
+            if (size == ids.length)
+            {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            //files are always added with increasing ids, so the ids stay
+            //sorted
+            ids[size] = id;
+            size++;
+        }
+
+        public boolean contains(int id)
+        {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        public void remap(int[] newIds)
+        {
+            int newSize = 0;
+            for (int i = 0; i < size; i++)
+            {
+                int newId = newIds[ids[i]];
+                if (newId == -1)
+                {
+                    continue;
+                }
+                ids[newSize] = newId;
+                newSize++;
+            }
+            size = newSize;
+        }
+    }
+}
@@ -188,6 +188,25 @@ public class LanguageServerCompilerUtils
             catch(IOException e) {}
         }
  
+        return adjustOffsetForIncludeFile(offset, includeFileData);
+    }
+
+    /**
+     * Converts a language server position to the absolute character offset
+     * using a cached line index. Returns -1 if the line index is null.
+     */
+    public static int getOffsetFromPosition(LineIndex lineIndex, Position position, IncludeFileData includeFileData)
+    {
+        if(lineIndex == null)
+        {
+            return -1;
+        }
+        int offset = lineIndex.getOffsetFromPosition(position);
+        return adjustOffsetForIncludeFile(offset, includeFileData);
+    }
+
+    private static int adjustOffsetForIncludeFile(int offset, IncludeFileData includeFileData)
+    {
         if(includeFileData != null)
         {
             int originalOffset = offset;
@@ -509,7 +528,7 @@ public class LanguageServerCompilerUtils
         return diagnostic;
     }
 
-    public static String getSourcePathFromDefinition(IDefinition definition, ICompilerProject project)
+    public static String getSourcePathFromDefinition(IDefinition definition, ICompilerProject project, SWCMetadataCache swcMetadataCache)
     {
         String sourcePath = definition.getSourcePath();
         if (sourcePath == null)
@@ -529,7 +548,7 @@ public class LanguageServerCompilerUtils
         {
             //if it's a framework SWC, we're going to attempt to resolve
             //the real source file 
-            String debugPath = DefinitionUtils.getDefinitionDebugSourceFilePath(definition, project);
+            String debugPath = swcMetadataCache.getDefinitionDebugSourceFilePath(definition, project);
             if (debugPath != null)
             {
                 //if we can't find the debug source file, keep the SWC extension
@@ -60,9 +60,11 @@ public class LanguageServerFileSpecGetter implements IFileSpecificationGetter
     public IFileSpecification getFileSpecification(String filePath)
     {
         Path path = Paths.get(filePath);
-        if (fileTracker.isOpen(path))
+        //read the snapshot once, in case the file is closed at the same time
+        DocumentSnapshot snapshot = fileTracker.getSnapshot(path);
+        if (snapshot != null)
         {
-            String code = fileTracker.getText(path);
+            String code = snapshot.getText().toString();
             if (filePath.endsWith(FILE_EXTENSION_AS))
             {
                 code = fixPackageWithoutBraces(code);
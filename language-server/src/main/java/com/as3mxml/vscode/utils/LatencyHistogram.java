@@ -0,0 +1,133 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations, in microseconds, using buckets with a fixed relative
+ * precision, similar to an HDR histogram. Each power of two is divided into
+ * 32 buckets, so a reported percentile is within about 3% of the actual
+ * value, no matter how many values are recorded.
+ *
+ * Values may be recorded from any thread without locking.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    //about 12 days, in microseconds. anything longer is clamped.
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private AtomicLong totalCount = new AtomicLong();
+    private AtomicLong totalMicros = new AtomicLong();
+    private AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long micros)
+    {
+        if (micros < 0)
+        {
+            micros = 0;
+        }
+        else if (micros > MAX_VALUE)
+        {
+            micros = MAX_VALUE;
+        }
+        counts.incrementAndGet(getBucketIndex(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount()
+    {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros()
+    {
+        return maxMicros.get();
+    }
+
+    public long getMeanMicros()
+    {
+        long count = totalCount.get();
+        if (count == 0)
+        {
+            return 0;
+        }
+        return totalMicros.get() / count;
+    }
+
+    /**
+     * Returns the highest value that is equivalent to the value at the
+     * specified percentile, between 0 and 100.
+     */
+    public long getPercentileMicros(double percentile)
+    {
+        long count = totalCount.get();
+        if (count == 0)
+        {
+            return 0;
+        }
+        long targetCount = (long) Math.ceil(count * percentile / 100.0);
+        if (targetCount < 1)
+        {
+            targetCount = 1;
+        }
+        long runningCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            runningCount += counts.get(i);
+            if (runningCount >= targetCount)
+            {
+                //never report more than the largest recorded value
+                return Math.min(getBucketUpperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    static int getBucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        //the top SUB_BUCKET_BITS + 1 bits, without the highest bit
+        int subBucket = (int) (value >> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+        int shift = (index / SUB_BUCKET_COUNT) - 1;
+        long subBucket = SUB_BUCKET_COUNT + (index % SUB_BUCKET_COUNT);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
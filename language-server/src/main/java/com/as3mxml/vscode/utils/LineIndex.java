@@ -0,0 +1,218 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.eclipse.lsp4j.Position;
+
+/**
+ * Converts between positions and offsets for one version of a document. For
+ * a closed file, the offsets where each line starts are built once, and then
+ * lookups use a binary search instead of reading the text from the
+ * beginning every time. For an open file, the rope that stores the text
+ * already counts its line breaks, so it is used directly.
+ */
+public abstract class LineIndex
+{
+    public static LineIndex fromText(CharSequence text)
+    {
+        int length = text.length();
+        int[] lineStarts = new int[16];
+        int lineCount = 1;
+        for (int i = 0; i < length; i++)
+        {
+            if (text.charAt(i) == '\n')
+            {
+                if (lineCount == lineStarts.length)
+                {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                }
+                lineStarts[lineCount] = i + 1;
+                lineCount++;
+            }
+        }
+        return new LineStartsIndex(lineStarts, lineCount, length);
+    }
+
+    public static LineIndex fromReader(Reader reader) throws IOException
+    {
+        char[] buffer = new char[8192];
+        int[] lineStarts = new int[16];
+        int lineCount = 1;
+        int offset = 0;
+        int count = -1;
+        while ((count = reader.read(buffer, 0, buffer.length)) != -1)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    if (lineCount == lineStarts.length)
+                    {
+                        lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    }
+                    lineStarts[lineCount] = offset + i + 1;
+                    lineCount++;
+                }
+            }
+            offset += count;
+        }
+        return new LineStartsIndex(lineStarts, lineCount, offset);
+    }
+
+    /**
+     * Uses the line breaks counted by the rope's nodes, so nothing needs to
+     * be built when a document changes.
+     */
+    public static LineIndex fromRope(TextRope rope)
+    {
+        return new RopeIndex(rope);
+    }
+
+    public abstract int getLength();
+
+    public abstract int getLineCount();
+
+    /**
+     * Converts a language server position to the absolute character offset.
+     * Matches LanguageServerCompilerUtils.getOffsetFromPosition(Reader, Position),
+     * including clamping to the end of the document.
+     */
+    public abstract int getOffsetFromPosition(Position position);
+
+    /**
+     * Converts the absolute character offset to a language server position.
+     */
+    public Position getPositionFromOffset(int offset)
+    {
+        return getPositionFromOffset(offset, new Position());
+    }
+
+    public abstract Position getPositionFromOffset(int offset, Position result);
+
+    private static class LineStartsIndex extends LineIndex
+    {
+        private LineStartsIndex(int[] lineStarts, int lineCount, int length)
+        {
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.length = length;
+        }
+
+        private final int[] lineStarts;
+        private final int lineCount;
+        private final int length;
+
+        @Override
+        public int getLength()
+        {
+            return length;
+        }
+
+        @Override
+        public int getLineCount()
+        {
+            return lineCount;
+        }
+
+        @Override
+        public int getOffsetFromPosition(Position position)
+        {
+            int line = position.getLine();
+            if (line >= lineCount)
+            {
+                return length;
+            }
+            if (line < 0)
+            {
+                line = 0;
+            }
+            int offset = lineStarts[line] + position.getCharacter();
+            if (offset > length)
+            {
+                offset = length;
+            }
+            return offset;
+        }
+
+        @Override
+        public Position getPositionFromOffset(int offset, Position result)
+        {
+            if (offset < 0)
+            {
+                offset = 0;
+            }
+            else if (offset > length)
+            {
+                offset = length;
+            }
+            int line = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+            if (line < 0)
+            {
+                //not the start of a line, so use the line before the insertion
+                //point instead
+                line = -line - 2;
+            }
+            result.setLine(line);
+            result.setCharacter(offset - lineStarts[line]);
+            return result;
+        }
+    }
+
+    private static class RopeIndex extends LineIndex
+    {
+        private RopeIndex(TextRope rope)
+        {
+            this.rope = rope;
+        }
+
+        private final TextRope rope;
+
+        @Override
+        public int getLength()
+        {
+            return rope.length();
+        }
+
+        @Override
+        public int getLineCount()
+        {
+            return rope.getLineCount();
+        }
+
+        @Override
+        public int getOffsetFromPosition(Position position)
+        {
+            return rope.getOffsetFromPosition(position);
+        }
+
+        @Override
+        public Position getPositionFromOffset(int offset, Position result)
+        {
+            if (offset < 0)
+            {
+                offset = 0;
+            }
+            Position position = rope.getPositionFromOffset(offset);
+            result.setLine(position.getLine());
+            result.setCharacter(position.getCharacter());
+            return result;
+        }
+    }
+}
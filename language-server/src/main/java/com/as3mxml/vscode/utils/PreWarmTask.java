@@ -0,0 +1,249 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.as3mxml.vscode.project.ILspProject;
+import com.as3mxml.vscode.project.WorkspaceFolderData;
+import com.as3mxml.vscode.services.ActionScriptLanguageClient;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.internal.scopes.ASProjectScope.DefinitionPromise;
+import org.apache.royale.compiler.internal.workspaces.Workspace;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
+import org.apache.royale.utils.FilenameNormalization;
+
+/**
+ * Does the work that the first completion or hover request would otherwise
+ * need to do, before the user asks for it. Resolves the definitions from
+ * every SWC on each project's library path, and waits for the syntax trees
+ * and file scopes of each project's root files.
+ *
+ * Should run with background priority. Yields to other requests between
+ * compilation units, and stops early if it is canceled, or if a project is
+ * replaced because its configuration changed.
+ */
+public class PreWarmTask implements Runnable
+{
+    private static final long PROGRESS_INTERVAL = 500;
+    private static final int MAX_COPY_ATTEMPTS = 10;
+
+    public PreWarmTask(List<WorkspaceFolderData> allFolderData, Workspace compilerWorkspace,
+            PriorityScheduler scheduler, ActionScriptLanguageClient languageClient)
+    {
+        this.allFolderData = new ArrayList<>(allFolderData);
+        this.compilerWorkspace = compilerWorkspace;
+        this.scheduler = scheduler;
+        this.languageClient = languageClient;
+    }
+
+    private List<WorkspaceFolderData> allFolderData;
+    private Workspace compilerWorkspace;
+    private PriorityScheduler scheduler;
+    private ActionScriptLanguageClient languageClient;
+    private volatile boolean canceled = false;
+
+    public void cancel()
+    {
+        canceled = true;
+    }
+
+    public void run()
+    {
+        List<FolderUnits> allFolderUnits = new ArrayList<>();
+        int totalCount = 0;
+        for (WorkspaceFolderData folderData : allFolderData)
+        {
+            if (canceled)
+            {
+                return;
+            }
+            ILspProject project = folderData.project;
+            if (project == null || folderData.options == null)
+            {
+                continue;
+            }
+            List<ICompilationUnit> units = getUnitsToPreWarm(project, folderData);
+            allFolderUnits.add(new FolderUnits(folderData, project, units));
+            totalCount += units.size();
+        }
+        if (totalCount == 0)
+        {
+            return;
+        }
+
+        int doneCount = 0;
+        long lastProgressTime = 0;
+        try
+        {
+            for (FolderUnits folderUnits : allFolderUnits)
+            {
+                for (ICompilationUnit unit : folderUnits.units)
+                {
+                    if (canceled || folderUnits.folderData.project != folderUnits.project)
+                    {
+                        //if the project was replaced, its units are no
+                        //longer worth warming up
+                        break;
+                    }
+                    scheduler.yieldToForeground();
+                    preWarmCompilationUnit(unit);
+                    doneCount++;
+                    long now = System.currentTimeMillis();
+                    if ((now - lastProgressTime) >= PROGRESS_INTERVAL)
+                    {
+                        lastProgressTime = now;
+                        reportProgress(doneCount, totalCount);
+                    }
+                }
+                if (canceled)
+                {
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            canceled = true;
+        }
+        finally
+        {
+            if (lastProgressTime != 0 && languageClient != null)
+            {
+                languageClient.preWarmProgress(null);
+            }
+        }
+    }
+
+    private List<ICompilationUnit> getUnitsToPreWarm(ILspProject project, WorkspaceFolderData folderData)
+    {
+        Set<ICompilationUnit> result = new LinkedHashSet<>();
+        compilerWorkspace.startBuilding();
+        try
+        {
+            //the root files are most likely to be opened first
+            if (folderData.options.files != null)
+            {
+                for (String file : folderData.options.files)
+                {
+                    String normalizedFile = FilenameNormalization.normalize(file);
+                    result.addAll(project.getCompilationUnits(normalizedFile));
+                }
+            }
+            List<ICompilationUnit> allUnits = null;
+            for (int i = 0; i < MAX_COPY_ATTEMPTS && allUnits == null; i++)
+            {
+                try
+                {
+                    allUnits = new ArrayList<>(project.getCompilationUnits());
+                }
+                catch (ConcurrentModificationException e)
+                {
+                    //units were added while copying, so try again
+                }
+            }
+            if (allUnits == null)
+            {
+                //don't keep other threads waiting for the workspace. the
+                //SWCs will be loaded when they are first needed instead.
+                System.err.println("Skipping pre-warm of SWC files because compilation units kept changing.");
+                allUnits = Collections.emptyList();
+            }
+            for (ICompilationUnit unit : allUnits)
+            {
+                if (unit != null && UnitType.SWC_UNIT.equals(unit.getCompilationUnitType()))
+                {
+                    result.add(unit);
+                }
+            }
+        }
+        finally
+        {
+            compilerWorkspace.doneBuilding();
+        }
+        result.remove(null);
+        return new ArrayList<>(result);
+    }
+
+    private void preWarmCompilationUnit(ICompilationUnit unit) throws InterruptedException
+    {
+        //hold the workspace for one unit at a time, so that changes to files
+        //don't need to wait for everything to finish
+        compilerWorkspace.startBuilding();
+        try
+        {
+            if (UnitType.SWC_UNIT.equals(unit.getCompilationUnitType()))
+            {
+                for (IDefinition definition : unit.getDefinitionPromises())
+                {
+                    if (definition instanceof DefinitionPromise)
+                    {
+                        DefinitionPromise promise = (DefinitionPromise) definition;
+                        promise.getActualDefinition();
+                    }
+                }
+            }
+            else
+            {
+                unit.getSyntaxTreeRequest().get();
+                unit.getFileScopeRequest().get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            //any problems will be reported when the project is checked
+        }
+        finally
+        {
+            compilerWorkspace.doneBuilding();
+        }
+    }
+
+    private void reportProgress(int doneCount, int totalCount)
+    {
+        if (languageClient == null)
+        {
+            return;
+        }
+        int percent = (int) (100.0 * doneCount / totalCount);
+        languageClient.preWarmProgress("Preparing ActionScript & MXML code intelligence (" + percent + "%)");
+    }
+
+    private static class FolderUnits
+    {
+        public FolderUnits(WorkspaceFolderData folderData, ILspProject project, List<ICompilationUnit> units)
+        {
+            this.folderData = folderData;
+            this.project = project;
+            this.units = units;
+        }
+
+        public WorkspaceFolderData folderData;
+        public ILspProject project;
+        public List<ICompilationUnit> units;
+    }
+}
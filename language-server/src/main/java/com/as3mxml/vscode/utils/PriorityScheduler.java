@@ -0,0 +1,332 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the language server's tasks on pools of threads, ordered by priority.
+ * Requests that the user is actively waiting for, like completion and hover,
+ * start before requests that may take a little longer, like references or
+ * rename. Background work, like organizing the imports in an entire
+ * directory, runs on a separate, smaller pool, so it can never occupy the
+ * threads that the user's requests need.
+ *
+ * A task can't be preempted once it has started, so long-running work should
+ * call yieldToForeground() between compilation units. If any interactive or
+ * near-interactive tasks are waiting or running, the background work pauses
+ * briefly to let them finish first, because they often need to build with
+ * the same compiler workspace.
+ */
+public class PriorityScheduler
+{
+    public enum Priority
+    {
+        INTERACTIVE,
+        NEAR_INTERACTIVE,
+        BACKGROUND
+    }
+
+    /**
+     * The maximum number of milliseconds that one call to yieldToForeground()
+     * may wait. Background work must not be starved by a steady stream of
+     * requests, and a foreground task may be waiting for the background work
+     * to call doneBuilding() on the workspace.
+     */
+    private static final long MAX_YIELD_MILLIS = 50;
+
+    public PriorityScheduler()
+    {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PriorityScheduler(int threadCount)
+    {
+        this(threadCount, Math.max(1, threadCount / 2));
+    }
+
+    /**
+     * @param threadCount The number of threads for interactive and
+     * near-interactive tasks.
+     * @param backgroundThreadCount The number of threads for background
+     * tasks, which never run on the other threads.
+     */
+    public PriorityScheduler(int threadCount, int backgroundThreadCount)
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), runnable ->
+                {
+                    Thread thread = new Thread(runnable, "as3mxml-scheduler-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger backgroundThreadNumber = new AtomicInteger();
+        backgroundPool = new ThreadPoolExecutor(backgroundThreadCount, backgroundThreadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable ->
+                {
+                    Thread thread = new Thread(runnable, "as3mxml-background-" + backgroundThreadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        for (Priority priority : Priority.values())
+        {
+            counters.put(priority, new Counters());
+            executors.put(priority, command -> execute(priority, command));
+        }
+    }
+
+    private ThreadPoolExecutor pool;
+    private ThreadPoolExecutor backgroundPool;
+    private Map<Priority,Counters> counters = new EnumMap<>(Priority.class);
+    private Map<Priority,Executor> executors = new EnumMap<>(Priority.class);
+    private AtomicLong sequence = new AtomicLong();
+    private AtomicLong yieldCount = new AtomicLong();
+    private Object foregroundLock = new Object();
+    private ThreadLocal<Priority> currentPriority = new ThreadLocal<>();
+
+    /**
+     * Returns an executor that queues tasks with the specified priority. May
+     * be passed to CompletableFutures.computeAsync().
+     */
+    public Executor getExecutor(Priority priority)
+    {
+        return executors.get(priority);
+    }
+
+    public Future<?> submit(Priority priority, Runnable task)
+    {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(priority, future);
+        return future;
+    }
+
+    /**
+     * Runs a task that loops until it is canceled on its own thread, instead
+     * of permanently occupying one of the pool's threads.
+     */
+    public Future<?> startDaemon(String name, Runnable task)
+    {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        Thread thread = new Thread(future, name);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * Should be called by long-running work at safe points, like between
+     * compilation units. If any interactive or near-interactive tasks are
+     * waiting or running, waits for them to finish, up to a short limit.
+     * Returns immediately if called from an interactive or near-interactive
+     * task, or from a thread that isn't running a task, like the thread that
+     * reads messages from the client.
+     */
+    public void yieldToForeground()
+    {
+        Priority priority = currentPriority.get();
+        if (!Priority.BACKGROUND.equals(priority))
+        {
+            return;
+        }
+        if (getPendingForegroundCount() == 0)
+        {
+            return;
+        }
+        yieldCount.incrementAndGet();
+        long deadline = System.currentTimeMillis() + MAX_YIELD_MILLIS;
+        synchronized (foregroundLock)
+        {
+            while (getPendingForegroundCount() > 0)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                {
+                    break;
+                }
+                try
+                {
+                    foregroundLock.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times that background work has paused for
+     * foreground tasks.
+     */
+    public long getYieldCount()
+    {
+        return yieldCount.get();
+    }
+
+    /**
+     * Returns the current queue depth, and the wait times so far, for each
+     * priority.
+     */
+    public Map<Priority,Statistics> getStatistics()
+    {
+        Map<Priority,Statistics> result = new EnumMap<>(Priority.class);
+        for (Map.Entry<Priority,Counters> entry : counters.entrySet())
+        {
+            result.put(entry.getKey(), new Statistics(entry.getValue()));
+        }
+        return result;
+    }
+
+    private int getPendingForegroundCount()
+    {
+        Counters interactive = counters.get(Priority.INTERACTIVE);
+        Counters nearInteractive = counters.get(Priority.NEAR_INTERACTIVE);
+        return interactive.queued.get() + interactive.running.get()
+                + nearInteractive.queued.get() + nearInteractive.running.get();
+    }
+
+    private void execute(Priority priority, Runnable command)
+    {
+        counters.get(priority).queued.incrementAndGet();
+        PrioritizedTask task = new PrioritizedTask(priority, sequence.getAndIncrement(), command);
+        if (Priority.BACKGROUND.equals(priority))
+        {
+            backgroundPool.execute(task);
+            return;
+        }
+        pool.execute(task);
+    }
+
+    public static class Statistics
+    {
+        private Statistics(Counters counters)
+        {
+            queued = counters.queued.get();
+            running = counters.running.get();
+            started = counters.started.get();
+            totalWaitMillis = counters.totalWaitMillis.get();
+            maxWaitMillis = counters.maxWaitMillis.get();
+        }
+
+        /**
+         * The number of tasks waiting for a thread.
+         */
+        public final int queued;
+
+        public final int running;
+
+        /**
+         * The total number of tasks that have started running.
+         */
+        public final long started;
+
+        /**
+         * The total time that started tasks spent in the queue.
+         */
+        public final long totalWaitMillis;
+
+        public final long maxWaitMillis;
+
+        public long getAverageWaitMillis()
+        {
+            if (started == 0)
+            {
+                return 0;
+            }
+            return totalWaitMillis / started;
+        }
+    }
+
+    private static class Counters
+    {
+        public AtomicInteger queued = new AtomicInteger();
+        public AtomicInteger running = new AtomicInteger();
+        public AtomicLong started = new AtomicLong();
+        public AtomicLong totalWaitMillis = new AtomicLong();
+        public AtomicLong maxWaitMillis = new AtomicLong();
+    }
+
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask>
+    {
+        public PrioritizedTask(Priority priority, long sequence, Runnable task)
+        {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+            this.queuedTime = System.currentTimeMillis();
+        }
+
+        private Priority priority;
+        private long sequence;
+        private Runnable task;
+        private long queuedTime;
+
+        @Override
+        public int compareTo(PrioritizedTask other)
+        {
+            int result = priority.compareTo(other.priority);
+            if (result != 0)
+            {
+                return result;
+            }
+            //tasks with the same priority run in the order they were queued
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run()
+        {
+            Counters taskCounters = counters.get(priority);
+            long waitMillis = System.currentTimeMillis() - queuedTime;
+            taskCounters.running.incrementAndGet();
+            taskCounters.queued.decrementAndGet();
+            taskCounters.started.incrementAndGet();
+            taskCounters.totalWaitMillis.addAndGet(waitMillis);
+            taskCounters.maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+            Priority oldPriority = currentPriority.get();
+            currentPriority.set(priority);
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                currentPriority.set(oldPriority);
+                taskCounters.running.decrementAndGet();
+                if (!Priority.BACKGROUND.equals(priority))
+                {
+                    synchronized (foregroundLock)
+                    {
+                        foregroundLock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -20,15 +20,15 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
-import org.eclipse.lsp4j.services.LanguageClient;
 
 /**
  * Tracks files that have previously had problems so that they can be cleared
- * when the problems are fixed.
+ * when the problems are fixed. The DiagnosticsPublisher skips clearing files
+ * that were already cleared.
  */
 public class ProblemTracker
 {
-    private LanguageClient languageClient;
+    private DiagnosticsPublisher diagnosticsPublisher;
     private HashSet<URI> newFilesWithProblems = new HashSet<>();
     private HashSet<URI> staleFilesWithProblems = new HashSet<>();
 
@@ -36,14 +36,14 @@ public class ProblemTracker
     {
     }
 
-    public LanguageClient getLanguageClient()
+    public DiagnosticsPublisher getDiagnosticsPublisher()
     {
-        return languageClient;
+        return diagnosticsPublisher;
     }
 
-    public void setLanguageClient(LanguageClient value)
+    public void setDiagnosticsPublisher(DiagnosticsPublisher value)
     {
-        languageClient = value;
+        diagnosticsPublisher = value;
     }
 
     public void trackFileWithProblems(URI uri)
@@ -67,9 +67,9 @@ public class ProblemTracker
             PublishDiagnosticsParams publish = new PublishDiagnosticsParams();
             publish.setDiagnostics(new ArrayList<>());
             publish.setUri(uri.toString());
-            if (languageClient != null)
+            if (diagnosticsPublisher != null)
             {
-                languageClient.publishDiagnostics(publish);
+                diagnosticsPublisher.publish(publish);
             }
         }
         staleFilesWithProblems.clear();
@@ -16,10 +16,15 @@ limitations under the License.
 package com.as3mxml.vscode.utils;
 
 import java.net.URI;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.as3mxml.vscode.project.ILspProject;
 import com.as3mxml.vscode.project.WorkspaceFolderData;
@@ -28,6 +33,7 @@ import org.apache.royale.compiler.clients.problems.ProblemQuery;
 import org.apache.royale.compiler.filespecs.IFileSpecification;
 import org.apache.royale.compiler.problems.ICompilerProblem;
 import org.apache.royale.compiler.problems.InternalCompilerProblem2;
+import org.apache.royale.compiler.tree.as.IASNode;
 import org.apache.royale.compiler.units.ICompilationUnit;
 import org.apache.royale.compiler.units.requests.IABCBytesRequestResult;
 import org.apache.royale.compiler.units.requests.IFileScopeRequestResult;
@@ -38,227 +44,270 @@ import org.apache.royale.compiler.workspaces.IWorkspace;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
-import org.eclipse.lsp4j.services.LanguageClient;
 
+/**
+ * Checks files for problems while the user is typing. Changes are queued per
+ * document, and a document is checked only after it has stopped changing for
+ * a short quiet period. The thread running this checker sleeps until a change
+ * is queued, so it does no work at all while the user is idle.
+ */
 public class RealTimeProblemsChecker implements Runnable
 {
-	public RealTimeProblemsChecker(LanguageClient languageClient, CompilerProblemFilter filter)
+	public static final long DEFAULT_QUIET_PERIOD = 100;
+
+	public RealTimeProblemsChecker(DiagnosticsPublisher diagnosticsPublisher, CompilerProblemFilter filter)
 	{
-		this.languageClient = languageClient;
+		this.diagnosticsPublisher = diagnosticsPublisher;
 		this.compilerProblemFilter = filter;
 	}
 
 	public CompilerProblemFilter compilerProblemFilter;
-	public LanguageClient languageClient;
+	public DiagnosticsPublisher diagnosticsPublisher;
+	public RequestMetrics requestMetrics;
+	//called after queued contents are passed to workspace.fileChanged()
+	public Consumer<Path> fileChangedListener;
 
-	private WorkspaceFolderData pendingFolderData;
-	private IFileSpecification pendingFileSpec;
-	private ICompilationUnit pendingCompilationUnit;
+	private long quietPeriod = DEFAULT_QUIET_PERIOD;
+	private Map<String, RealTimeCheck> pendingChecks = new LinkedHashMap<>();
+	private RealTimeCheck activeCheck;
 
-	private WorkspaceFolderData folderData;
-	private IFileSpecification fileSpec;
-	private ICompilationUnit compilationUnit;
-	
-	public synchronized IFileSpecification getFileSpecification()
+	/**
+	 * The number of milliseconds that a document must stay unchanged before
+	 * it is checked for problems.
+	 */
+	public synchronized long getQuietPeriod()
 	{
-		return fileSpec;
+		return quietPeriod;
 	}
 
-	public synchronized void setFileSpecification(IFileSpecification newFileSpec)
-	{
-		pendingFolderData = folderData;
-		pendingCompilationUnit = compilationUnit;
-		pendingFileSpec = newFileSpec;
-	}
-
-	public synchronized void setCompilationUnit(ICompilationUnit compilationUnit, IFileSpecification fileSpec, WorkspaceFolderData folderData)
+	public synchronized void setQuietPeriod(long value)
 	{
-		if(this.compilationUnit != null && this.compilationUnit != compilationUnit)
+		if(value < 0)
 		{
-			updateNow();
-			pendingFolderData = folderData;
-			pendingCompilationUnit = compilationUnit;
-			pendingFileSpec = fileSpec;
-			return;
+			value = 0;
 		}
-		this.folderData = folderData;
-		this.compilationUnit = compilationUnit;
-		this.fileSpec = fileSpec;
-		pendingFolderData = null;
-		pendingCompilationUnit = null;
-		pendingFileSpec = null;
-		syntaxTreeRequest = compilationUnit.getSyntaxTreeRequest();
-		fileScopeRequest = compilationUnit.getFileScopeRequest();
-		outgoingDepsRequest = compilationUnit.getOutgoingDependenciesRequest();
-		abcBytesRequest = compilationUnit.getABCBytesRequest();
+		quietPeriod = value;
+		notifyAll();
 	}
 
-	public synchronized void clear()
+	/**
+	 * If the file is already being checked, or if it is waiting to be
+	 * checked, queues the new file specification and returns true. The new
+	 * contents will be passed to workspace.fileChanged() when the file is
+	 * checked again. Returns false if the file is not known to the checker.
+	 */
+	public synchronized boolean queueFileChange(IFileSpecification newFileSpec)
 	{
-		folderData = null;
-		compilationUnit = null;
-		fileSpec = null;
-		pendingFolderData = null;
-		pendingCompilationUnit = null;
-		pendingFileSpec = null;
-	}
-
-	public synchronized void updateNow()
-	{
-		applyPending();
-		if(compilationUnit == null)
+		String path = newFileSpec.getPath();
+		RealTimeCheck pendingCheck = pendingChecks.get(path);
+		if(pendingCheck == null && activeCheck != null && activeCheck.path.equals(path))
 		{
-			return;
+			pendingCheck = new RealTimeCheck(activeCheck.compilationUnit, newFileSpec, activeCheck.folderData);
+			pendingChecks.put(path, pendingCheck);
 		}
-		if(syntaxTreeRequest == null)
+		if(pendingCheck == null)
 		{
-			syntaxTreeRequest = compilationUnit.getSyntaxTreeRequest();
+			return false;
 		}
-		if(fileScopeRequest == null)
+		pendingCheck.fileSpec = newFileSpec;
+		pendingCheck.fileChangedPending = true;
+		pendingCheck.skipQuietPeriod = false;
+		pendingCheck.lastChangeTime = System.currentTimeMillis();
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Queues a check for a compilation unit. The caller is expected to have
+	 * already passed the file specification to workspace.fileChanged().
+	 */
+	public synchronized void setCompilationUnit(ICompilationUnit compilationUnit, IFileSpecification fileSpec, WorkspaceFolderData folderData)
+	{
+		String path = fileSpec.getPath();
+		RealTimeCheck pendingCheck = pendingChecks.get(path);
+		if(pendingCheck == null)
 		{
-			fileScopeRequest = compilationUnit.getFileScopeRequest();
+			pendingCheck = new RealTimeCheck(compilationUnit, fileSpec, folderData);
+			pendingChecks.put(path, pendingCheck);
 		}
-		if(outgoingDepsRequest == null)
+		else
 		{
-			outgoingDepsRequest = compilationUnit.getOutgoingDependenciesRequest();
+			pendingCheck.compilationUnit = compilationUnit;
+			pendingCheck.fileSpec = fileSpec;
+			pendingCheck.folderData = folderData;
 		}
-		if(abcBytesRequest == null)
+		pendingCheck.fileChangedPending = false;
+		pendingCheck.skipQuietPeriod = false;
+		pendingCheck.lastChangeTime = System.currentTimeMillis();
+		notifyAll();
+	}
+
+	public synchronized void clear()
+	{
+		activeCheck = null;
+		pendingChecks.clear();
+		notifyAll();
+	}
+
+	/**
+	 * Passes any queued changes to workspace.fileChanged() immediately,
+	 * without waiting for the quiet period, and then waits for the affected
+	 * compilation units to finish building.
+	 */
+	public void updateNow()
+	{
+		List<RealTimeCheck> checksToWaitFor = new ArrayList<>();
+		synchronized(this)
 		{
-			abcBytesRequest = compilationUnit.getABCBytesRequest();
+			if(activeCheck != null)
+			{
+				checksToWaitFor.add(activeCheck);
+			}
+			for(RealTimeCheck pendingCheck : pendingChecks.values())
+			{
+				applyFileChanged(pendingCheck);
+				//it no longer needs to wait for the quiet period because the
+				//changes have already been applied
+				pendingCheck.skipQuietPeriod = true;
+				checksToWaitFor.add(pendingCheck);
+			}
+			for(RealTimeCheck check : checksToWaitFor)
+			{
+				check.startRequests();
+			}
+			notifyAll();
 		}
 		try
 		{
-			syntaxTreeRequest.get();
-			fileScopeRequest.get();
-			outgoingDepsRequest.get();
-			abcBytesRequest.get();
+			for(RealTimeCheck check : checksToWaitFor)
+			{
+				check.waitForRequests();
+			}
 		}
 		catch(InterruptedException e) {}
 	}
 
-	private IRequest<ISyntaxTreeRequestResult, ICompilationUnit> syntaxTreeRequest;
-	private IRequest<IFileScopeRequestResult, ICompilationUnit> fileScopeRequest;
-	private IRequest<IOutgoingDependenciesRequestResult, ICompilationUnit> outgoingDepsRequest;
-	private IRequest<IABCBytesRequestResult, ICompilationUnit> abcBytesRequest;
-
-	private synchronized long getWaitTime()
+	public void run()
 	{
-		if(compilationUnit != null)
+		while (!Thread.currentThread().isInterrupted())
 		{
-			return 100;
+			RealTimeCheck check = null;
+			try
+			{
+				check = waitForNextCheck();
+				//don't hold the lock while the compiler is working so that
+				//new changes may be queued in the meantime
+				check.waitForRequests();
+			}
+			catch(InterruptedException e)
+			{
+				break;
+			}
+			finishCheck(check);
 		}
-		return 500;
 	}
 
-	public void run()
+	private synchronized RealTimeCheck waitForNextCheck() throws InterruptedException
 	{
 		while (true)
 		{
-			if(Thread.currentThread().isInterrupted())
+			long now = System.currentTimeMillis();
+			long waitTime = -1;
+			Iterator<RealTimeCheck> iterator = pendingChecks.values().iterator();
+			while (iterator.hasNext())
 			{
-				break;
+				RealTimeCheck pendingCheck = iterator.next();
+				if (pendingCheck.compilationUnit.getProject() == null)
+				{
+					//this compilation unit is no longer valid
+					iterator.remove();
+					continue;
+				}
+				long remaining = 0;
+				if (!pendingCheck.skipQuietPeriod)
+				{
+					remaining = pendingCheck.lastChangeTime + quietPeriod - now;
+				}
+				if (remaining <= 0)
+				{
+					iterator.remove();
+					applyFileChanged(pendingCheck);
+					pendingCheck.startedTime = now;
+					pendingCheck.startRequests();
+					activeCheck = pendingCheck;
+					return pendingCheck;
+				}
+				if (waitTime == -1 || remaining < waitTime)
+				{
+					waitTime = remaining;
+				}
 			}
-			checkForProblems();
-			long waitTime = getWaitTime();
-			try
+			if (waitTime == -1)
 			{
-				//wait a short time between checks
-				//it's okay if problems are updated a little slowly
-				Thread.sleep(waitTime);
+				//nothing is queued, so sleep until a change arrives
+				wait();
+			}
+			else
+			{
+				wait(waitTime);
 			}
-			catch(InterruptedException e) {}
 		}
 	}
 
-	private synchronized void checkForProblems()
+	private void finishCheck(RealTimeCheck check)
 	{
-		if (compilationUnit == null)
+		synchronized(this)
 		{
-			return;
+			if (activeCheck != check)
+			{
+				//the checker was cleared while the compiler was working
+				return;
+			}
+			activeCheck = null;
 		}
-		if (compilationUnit.getProject() == null)
+		if (check.compilationUnit.getProject() == null)
 		{
 			//this compilation unit is no longer valid
-			clear();
 			return;
 		}
-		if (syntaxTreeRequest == null)
+		//don't hold the lock while publishing so that new changes may be
+		//queued in the meantime
+		publishDiagnostics(check);
+		if (requestMetrics != null)
 		{
-			syntaxTreeRequest = compilationUnit.getSyntaxTreeRequest();
-		}
-		if (fileScopeRequest == null)
-		{
-			fileScopeRequest = compilationUnit.getFileScopeRequest();
-		}
-		if (outgoingDepsRequest == null)
-		{
-			outgoingDepsRequest = compilationUnit.getOutgoingDependenciesRequest();
-		}
-		if (abcBytesRequest == null)
-		{
-			abcBytesRequest = compilationUnit.getABCBytesRequest();
-		}
-		if(syntaxTreeRequest.isDone()
-				&& fileScopeRequest.isDone()
-				&& outgoingDepsRequest.isDone()
-				&& abcBytesRequest.isDone())
-		{
-			publishDiagnostics();
-			syntaxTreeRequest = null;
-			fileScopeRequest = null;
-			outgoingDepsRequest = null;
-			abcBytesRequest = null;
-			if(pendingCompilationUnit != null)
-			{
-				applyPending();
-			}
-			else
-			{
-				clear();
-			}
+			requestMetrics.realTimeCheckPublished(new RealTimeCheckTiming(check.path, check.queuedTime,
+					check.lastChangeTime, check.startedTime, System.currentTimeMillis()));
 		}
 	}
 
-	private synchronized void applyPending()
+	private void applyFileChanged(RealTimeCheck check)
 	{
-		if(pendingCompilationUnit == null)
+		if (!check.fileChangedPending)
 		{
 			return;
 		}
-
-		if(pendingCompilationUnit == compilationUnit)
+		check.fileChangedPending = false;
+		IWorkspace workspace = check.folderData.project.getWorkspace();
+		workspace.fileChanged(check.fileSpec);
+		if (fileChangedListener != null)
 		{
-			IWorkspace workspace = folderData.project.getWorkspace();
-			workspace.fileChanged(pendingFileSpec);
+			fileChangedListener.accept(Paths.get(check.path));
 		}
-
-		compilationUnit = pendingCompilationUnit;
-		fileSpec = pendingFileSpec;
-		folderData = pendingFolderData;
-		pendingCompilationUnit = null;
-		pendingFileSpec = null;
-		pendingFolderData = null;
-
-		syntaxTreeRequest = null;
-		fileScopeRequest = null;
-		outgoingDepsRequest = null;
-		abcBytesRequest = null;
 	}
 
-	private synchronized void publishDiagnostics()
+	private void publishDiagnostics(RealTimeCheck check)
 	{
-		if(compilationUnit == null)
-		{
-			return;
-		}
+		ICompilationUnit compilationUnit = check.compilationUnit;
+		WorkspaceFolderData folderData = check.folderData;
 		ArrayList<Diagnostic> diagnostics = new ArrayList<>();
 		ArrayList<ICompilerProblem> problems = new ArrayList<>();
-        try
-        {
-			Collections.addAll(problems, syntaxTreeRequest.get().getProblems());
-			Collections.addAll(problems, fileScopeRequest.get().getProblems());
-			Collections.addAll(problems, outgoingDepsRequest.get().getProblems());
-			ICompilerProblem[] probs = abcBytesRequest.get().getProblems();
+		RealTimeRequests requests = check.requests;
+		try
+		{
+			Collections.addAll(problems, requests.syntaxTreeRequest.get().getProblems());
+			Collections.addAll(problems, requests.fileScopeRequest.get().getProblems());
+			Collections.addAll(problems, requests.outgoingDepsRequest.get().getProblems());
+			ICompilerProblem[] probs = requests.abcBytesRequest.get().getProblems();
 			for (ICompilerProblem prob : probs)
 			{
 				if (!(prob instanceof InternalCompilerProblem2))
@@ -266,19 +315,23 @@ public class RealTimeProblemsChecker implements Runnable
 					problems.add(prob);
 				}
 			}
-			
-			ILspProject project = folderData.project;
-			Set<String> requiredImports = project.getQNamesOfDependencies(compilationUnit);
-			ASTUtils.findUnusedImportProblems(syntaxTreeRequest.get().getAST(), requiredImports, problems);
-        }
-        catch (Exception e)
-        {
-            System.err.println("Exception in compiler while checking for problems: " + e);
-            e.printStackTrace(System.err);
-
-            Diagnostic diagnostic = LSPUtils.createDiagnosticWithoutRange();
-            diagnostic.setSeverity(DiagnosticSeverity.Error);
-            diagnostic.setMessage("A fatal error occurred while checking a file for problems: " + compilationUnit.getAbsoluteFilename());
+
+			IASNode ast = requests.syntaxTreeRequest.get().getAST();
+			if (ast != null)
+			{
+				ILspProject project = folderData.project;
+				folderData.unusedImportCache.findUnusedImportProblems(compilationUnit, ast, false,
+						requests.outgoingDepsRequest.get(), project, problems);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println("Exception in compiler while checking for problems: " + e);
+			e.printStackTrace(System.err);
+
+			Diagnostic diagnostic = LSPUtils.createDiagnosticWithoutRange();
+			diagnostic.setSeverity(DiagnosticSeverity.Error);
+			diagnostic.setMessage("A fatal error occurred while checking a file for problems: " + compilationUnit.getAbsoluteFilename());
 			diagnostics.add(diagnostic);
 		}
 
@@ -295,9 +348,95 @@ public class RealTimeProblemsChecker implements Runnable
 		}
 
 		URI uri = Paths.get(compilationUnit.getAbsoluteFilename()).toUri();
-        PublishDiagnosticsParams publish = new PublishDiagnosticsParams();
-        publish.setDiagnostics(diagnostics);
+		PublishDiagnosticsParams publish = new PublishDiagnosticsParams();
+		publish.setDiagnostics(diagnostics);
 		publish.setUri(uri.toString());
-		languageClient.publishDiagnostics(publish);
+		diagnosticsPublisher.publish(publish);
+	}
+
+	private static class RealTimeCheck
+	{
+		public RealTimeCheck(ICompilationUnit compilationUnit, IFileSpecification fileSpec, WorkspaceFolderData folderData)
+		{
+			this.compilationUnit = compilationUnit;
+			this.fileSpec = fileSpec;
+			this.folderData = folderData;
+			this.path = fileSpec.getPath();
+			this.queuedTime = System.currentTimeMillis();
+			this.lastChangeTime = queuedTime;
+		}
+
+		public String path;
+		public ICompilationUnit compilationUnit;
+		public IFileSpecification fileSpec;
+		public WorkspaceFolderData folderData;
+		public boolean fileChangedPending = false;
+		public boolean skipQuietPeriod = false;
+		public long queuedTime;
+		public long lastChangeTime;
+		public long startedTime;
+
+		//updateNow() may start the requests again on another thread while
+		//the checker's thread is waiting for them, so they are replaced all
+		//at once, and readers should read this field only once
+		public volatile RealTimeRequests requests;
+
+		public void startRequests()
+		{
+			requests = new RealTimeRequests(compilationUnit);
+		}
+
+		public void waitForRequests() throws InterruptedException
+		{
+			requests.waitForAll();
+		}
+	}
+
+	private static class RealTimeRequests
+	{
+		public RealTimeRequests(ICompilationUnit compilationUnit)
+		{
+			syntaxTreeRequest = compilationUnit.getSyntaxTreeRequest();
+			fileScopeRequest = compilationUnit.getFileScopeRequest();
+			outgoingDepsRequest = compilationUnit.getOutgoingDependenciesRequest();
+			abcBytesRequest = compilationUnit.getABCBytesRequest();
+		}
+
+		public final IRequest<ISyntaxTreeRequestResult, ICompilationUnit> syntaxTreeRequest;
+		public final IRequest<IFileScopeRequestResult, ICompilationUnit> fileScopeRequest;
+		public final IRequest<IOutgoingDependenciesRequestResult, ICompilationUnit> outgoingDepsRequest;
+		public final IRequest<IABCBytesRequestResult, ICompilationUnit> abcBytesRequest;
+
+		public void waitForAll() throws InterruptedException
+		{
+			syntaxTreeRequest.get();
+			fileScopeRequest.get();
+			outgoingDepsRequest.get();
+			abcBytesRequest.get();
+		}
+	}
+
+	/**
+	 * When a real-time check was queued, started, and published, in
+	 * milliseconds. The difference between lastChangeTime and publishedTime
+	 * is the delay between the user's most recent edit and updated
+	 * diagnostics.
+	 */
+	public static class RealTimeCheckTiming
+	{
+		public RealTimeCheckTiming(String path, long queuedTime, long lastChangeTime, long startedTime, long publishedTime)
+		{
+			this.path = path;
+			this.queuedTime = queuedTime;
+			this.lastChangeTime = lastChangeTime;
+			this.startedTime = startedTime;
+			this.publishedTime = publishedTime;
+		}
+
+		public final String path;
+		public final long queuedTime;
+		public final long lastChangeTime;
+		public final long startedTime;
+		public final long publishedTime;
 	}
-}
\ No newline at end of file
+}
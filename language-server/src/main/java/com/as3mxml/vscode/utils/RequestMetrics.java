@@ -0,0 +1,401 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.as3mxml.vscode.utils.PriorityScheduler.Priority;
+import com.as3mxml.vscode.utils.RealTimeProblemsChecker.RealTimeCheckTiming;
+
+/**
+ * Records how long each type of request spends waiting in the queue,
+ * running, and building with the compiler workspace, along with how many
+ * requests were canceled or failed, how many times diagnostics were
+ * published or skipped because they were unchanged, and how long real-time
+ * problem checks take to publish diagnostics after the user's last edit.
+ *
+ * A report is written to System.err periodically, if any requests have
+ * finished since the last report, and it may be requested at any time with
+ * getReport() or formatReport().
+ */
+public class RequestMetrics
+{
+    private static final long REPORT_INTERVAL = 15 * 60 * 1000;
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0 };
+
+    public RequestMetrics(PriorityScheduler scheduler, SupersedingRequestTracker supersedingRequests,
+            DiagnosticsPublisher diagnosticsPublisher)
+    {
+        this.scheduler = scheduler;
+        this.supersedingRequests = supersedingRequests;
+        this.diagnosticsPublisher = diagnosticsPublisher;
+    }
+
+    private PriorityScheduler scheduler;
+    private SupersedingRequestTracker supersedingRequests;
+    private DiagnosticsPublisher diagnosticsPublisher;
+    private Map<String,MethodMetrics> metricsByMethod = new ConcurrentHashMap<>();
+    private LatencyHistogram realTimeCheckDelay = new LatencyHistogram();
+    private LatencyHistogram realTimeCheckDuration = new LatencyHistogram();
+    private volatile RealTimeCheckTiming lastRealTimeCheck;
+    private AtomicLong lastReportTime = new AtomicLong(System.currentTimeMillis());
+    private AtomicLong finishedSinceLastReport = new AtomicLong();
+    private long startTime = System.currentTimeMillis();
+
+    /**
+     * Should be called when a request is received, before it is queued.
+     */
+    public RequestTimer start(String method)
+    {
+        MethodMetrics methodMetrics = metricsByMethod.computeIfAbsent(method, key -> new MethodMetrics());
+        return new RequestTimer(methodMetrics);
+    }
+
+    /**
+     * Should be called after a real-time problem check publishes
+     * diagnostics.
+     */
+    public void realTimeCheckPublished(RealTimeCheckTiming timing)
+    {
+        realTimeCheckDelay.record(millisToMicros(timing.publishedTime - timing.lastChangeTime));
+        realTimeCheckDuration.record(millisToMicros(timing.publishedTime - timing.startedTime));
+        lastRealTimeCheck = timing;
+    }
+
+    /**
+     * Returns a summary of all metrics that can be serialized to JSON.
+     * Durations are in milliseconds.
+     */
+    public Map<String,Object> getReport()
+    {
+        Map<String,Object> result = new LinkedHashMap<>();
+        result.put("uptime", System.currentTimeMillis() - startTime);
+
+        Map<String,Object> methods = new TreeMap<>();
+        for (Map.Entry<String,MethodMetrics> entry : metricsByMethod.entrySet())
+        {
+            MethodMetrics methodMetrics = entry.getValue();
+            Map<String,Object> method = new LinkedHashMap<>();
+            method.put("completed", methodMetrics.completed.get());
+            method.put("canceled", methodMetrics.canceled.get());
+            method.put("failed", methodMetrics.failed.get());
+            method.put("queueWait", histogramToReport(methodMetrics.queueWait));
+            method.put("execution", histogramToReport(methodMetrics.execution));
+            method.put("building", histogramToReport(methodMetrics.building));
+            method.put("total", histogramToReport(methodMetrics.total));
+            methods.put(entry.getKey(), method);
+        }
+        result.put("methods", methods);
+
+        Map<String,Object> priorities = new LinkedHashMap<>();
+        for (Map.Entry<Priority,PriorityScheduler.Statistics> entry : scheduler.getStatistics().entrySet())
+        {
+            PriorityScheduler.Statistics statistics = entry.getValue();
+            Map<String,Object> priority = new LinkedHashMap<>();
+            priority.put("queued", statistics.queued);
+            priority.put("running", statistics.running);
+            priority.put("started", statistics.started);
+            priority.put("averageWait", statistics.getAverageWaitMillis());
+            priority.put("maxWait", statistics.maxWaitMillis);
+            priorities.put(entry.getKey().name(), priority);
+        }
+        result.put("priorities", priorities);
+        result.put("backgroundYields", scheduler.getYieldCount());
+        result.put("superseded", new TreeMap<>(supersedingRequests.getSupersededCounts()));
+
+        Map<String,Object> diagnostics = new LinkedHashMap<>();
+        diagnostics.put("publishCount", diagnosticsPublisher.getPublishedCount());
+        diagnostics.put("diagnosticCount", diagnosticsPublisher.getPublishedDiagnosticCount());
+        diagnostics.put("skippedCount", diagnosticsPublisher.getSkippedCount());
+        result.put("diagnostics", diagnostics);
+
+        Map<String,Object> realTimeProblems = new LinkedHashMap<>();
+        realTimeProblems.put("delay", histogramToReport(realTimeCheckDelay));
+        realTimeProblems.put("check", histogramToReport(realTimeCheckDuration));
+        RealTimeCheckTiming lastTiming = lastRealTimeCheck;
+        if (lastTiming != null)
+        {
+            Map<String,Object> last = new LinkedHashMap<>();
+            last.put("path", lastTiming.path);
+            last.put("queued", lastTiming.queuedTime);
+            last.put("lastChange", lastTiming.lastChangeTime);
+            last.put("started", lastTiming.startedTime);
+            last.put("published", lastTiming.publishedTime);
+            realTimeProblems.put("last", last);
+        }
+        result.put("realTimeProblems", realTimeProblems);
+        return result;
+    }
+
+    /**
+     * Returns a summary of all metrics that is meant to be read by humans.
+     */
+    public String formatReport()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Language server metrics (uptime ");
+        builder.append((System.currentTimeMillis() - startTime) / 1000);
+        builder.append("s, times in ms as p50/p90/p99/max)\n");
+        Map<String,MethodMetrics> sortedMetrics = new TreeMap<>(metricsByMethod);
+        for (Map.Entry<String,MethodMetrics> entry : sortedMetrics.entrySet())
+        {
+            MethodMetrics methodMetrics = entry.getValue();
+            builder.append(entry.getKey());
+            builder.append(": completed=");
+            builder.append(methodMetrics.completed.get());
+            builder.append(" canceled=");
+            builder.append(methodMetrics.canceled.get());
+            builder.append(" failed=");
+            builder.append(methodMetrics.failed.get());
+            builder.append("\n  queue wait ");
+            appendHistogram(methodMetrics.queueWait, builder);
+            builder.append("\n  execution  ");
+            appendHistogram(methodMetrics.execution, builder);
+            builder.append("\n  building   ");
+            appendHistogram(methodMetrics.building, builder);
+            builder.append("\n  total      ");
+            appendHistogram(methodMetrics.total, builder);
+            builder.append("\n");
+        }
+        for (Map.Entry<Priority,PriorityScheduler.Statistics> entry : scheduler.getStatistics().entrySet())
+        {
+            PriorityScheduler.Statistics statistics = entry.getValue();
+            builder.append(entry.getKey().name());
+            builder.append(": queued=");
+            builder.append(statistics.queued);
+            builder.append(" running=");
+            builder.append(statistics.running);
+            builder.append(" started=");
+            builder.append(statistics.started);
+            builder.append(" averageWait=");
+            builder.append(statistics.getAverageWaitMillis());
+            builder.append(" maxWait=");
+            builder.append(statistics.maxWaitMillis);
+            builder.append("\n");
+        }
+        builder.append("Background yields: ");
+        builder.append(scheduler.getYieldCount());
+        builder.append("\nSuperseded: ");
+        builder.append(new TreeMap<>(supersedingRequests.getSupersededCounts()));
+        builder.append("\nDiagnostics: published=");
+        builder.append(diagnosticsPublisher.getPublishedCount());
+        builder.append(" diagnostics=");
+        builder.append(diagnosticsPublisher.getPublishedDiagnosticCount());
+        builder.append(" skipped=");
+        builder.append(diagnosticsPublisher.getSkippedCount());
+        builder.append("\nReal-time problems: checks=");
+        builder.append(realTimeCheckDelay.getCount());
+        builder.append("\n  edit to publish ");
+        appendHistogram(realTimeCheckDelay, builder);
+        builder.append("\n  check           ");
+        appendHistogram(realTimeCheckDuration, builder);
+        RealTimeCheckTiming lastTiming = lastRealTimeCheck;
+        if (lastTiming != null)
+        {
+            builder.append("\n  last: ");
+            builder.append(lastTiming.path);
+            builder.append(" edit to publish=");
+            builder.append(lastTiming.publishedTime - lastTiming.lastChangeTime);
+            builder.append(" check=");
+            builder.append(lastTiming.publishedTime - lastTiming.startedTime);
+        }
+        builder.append("\n");
+        return builder.toString();
+    }
+
+    private void reportIfNeeded()
+    {
+        long now = System.currentTimeMillis();
+        long lastTime = lastReportTime.get();
+        if ((now - lastTime) < REPORT_INTERVAL || finishedSinceLastReport.get() == 0)
+        {
+            return;
+        }
+        if (!lastReportTime.compareAndSet(lastTime, now))
+        {
+            //another thread is reporting
+            return;
+        }
+        finishedSinceLastReport.set(0);
+        System.err.print(formatReport());
+    }
+
+    private Map<String,Object> histogramToReport(LatencyHistogram histogram)
+    {
+        Map<String,Object> result = new LinkedHashMap<>();
+        result.put("count", histogram.getCount());
+        result.put("mean", toMillis(histogram.getMeanMicros()));
+        for (double percentile : PERCENTILES)
+        {
+            result.put("p" + (int) percentile, toMillis(histogram.getPercentileMicros(percentile)));
+        }
+        result.put("max", toMillis(histogram.getMaxMicros()));
+        return result;
+    }
+
+    private void appendHistogram(LatencyHistogram histogram, StringBuilder builder)
+    {
+        for (double percentile : PERCENTILES)
+        {
+            builder.append(toMillis(histogram.getPercentileMicros(percentile)));
+            builder.append("/");
+        }
+        builder.append(toMillis(histogram.getMaxMicros()));
+    }
+
+    private static double toMillis(long micros)
+    {
+        //round to tenths of a millisecond
+        return Math.round(micros / 100.0) / 10.0;
+    }
+
+    private static long nanosToMicros(long nanos)
+    {
+        return nanos / 1000;
+    }
+
+    private static long millisToMicros(long millis)
+    {
+        return millis * 1000;
+    }
+
+    private static class MethodMetrics
+    {
+        public LatencyHistogram queueWait = new LatencyHistogram();
+        public LatencyHistogram execution = new LatencyHistogram();
+        public LatencyHistogram building = new LatencyHistogram();
+        public LatencyHistogram total = new LatencyHistogram();
+        public AtomicLong completed = new AtomicLong();
+        public AtomicLong canceled = new AtomicLong();
+        public AtomicLong failed = new AtomicLong();
+    }
+
+    public class RequestTimer
+    {
+        private RequestTimer(MethodMetrics methodMetrics)
+        {
+            this.methodMetrics = methodMetrics;
+        }
+
+        private MethodMetrics methodMetrics;
+        private long receivedTime = System.nanoTime();
+        private volatile long startedTime = -1;
+        private long buildingStartTime = -1;
+        private long buildingNanos = 0;
+        private AtomicBoolean finished = new AtomicBoolean();
+
+        /**
+         * Should be called when the request is taken from the queue.
+         */
+        public void started()
+        {
+            startedTime = System.nanoTime();
+            methodMetrics.queueWait.record(nanosToMicros(startedTime - receivedTime));
+        }
+
+        /**
+         * Should be called after compilerWorkspace.startBuilding().
+         */
+        public void startBuilding()
+        {
+            buildingStartTime = System.nanoTime();
+        }
+
+        /**
+         * Should be called before compilerWorkspace.doneBuilding().
+         */
+        public void doneBuilding()
+        {
+            if (buildingStartTime == -1)
+            {
+                return;
+            }
+            buildingNanos += System.nanoTime() - buildingStartTime;
+            buildingStartTime = -1;
+        }
+
+        public void completed()
+        {
+            finish(methodMetrics.completed);
+        }
+
+        public void canceled()
+        {
+            finish(methodMetrics.canceled);
+        }
+
+        public void failed()
+        {
+            finish(methodMetrics.failed);
+        }
+
+        /**
+         * Records the outcome of the request when the future completes, if
+         * it hasn't been recorded already. A request that is canceled before
+         * it starts never runs, so it can only be counted this way.
+         */
+        public <T> CompletableFuture<T> track(CompletableFuture<T> future)
+        {
+            future.whenComplete((result, error) ->
+            {
+                if (error == null)
+                {
+                    completed();
+                    return;
+                }
+                if (error instanceof CompletionException && error.getCause() != null)
+                {
+                    error = error.getCause();
+                }
+                if (error instanceof CancellationException)
+                {
+                    canceled();
+                }
+                else
+                {
+                    failed();
+                }
+            });
+            return future;
+        }
+
+        private void finish(AtomicLong outcomeCount)
+        {
+            if (!finished.compareAndSet(false, true))
+            {
+                return;
+            }
+            long now = System.nanoTime();
+            outcomeCount.incrementAndGet();
+            if (startedTime != -1)
+            {
+                methodMetrics.execution.record(nanosToMicros(now - startedTime));
+                methodMetrics.building.record(nanosToMicros(buildingNanos));
+            }
+            methodMetrics.total.record(nanosToMicros(now - receivedTime));
+            finishedSinceLastReport.incrementAndGet();
+            reportIfNeeded();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.internal.scopes.ASProjectScope;
+import org.apache.royale.compiler.projects.ICompilerProject;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
+
+/**
+ * Stores metadata extracted from the scripts in SWC files, so that it
+ * doesn't need to be extracted again for the same SWC, even after the
+ * language server restarts. Currently, this is the path of the framework
+ * source file that each script was compiled from, which otherwise requires
+ * parsing the script's ABC bytes every time that a definition's location is
+ * needed.
+ *
+ * Each SWC's metadata is keyed by a hash of the SWC's path, modification
+ * time, and size, so a SWC that changes on disk doesn't use stale metadata,
+ * and the SWC itself never needs to be read to find its metadata. If the
+ * as3mxml.swcCacheDir system property is not set, metadata is stored in
+ * memory only.
+ *
+ * This doesn't reduce the time that the compiler spends reading each SWC's
+ * catalog and libraries when a project is created.
+ */
+public class SWCMetadataCache
+{
+    public static final String PROPERTY_CACHE_DIR = "as3mxml.swcCacheDir";
+
+    private static final String CACHE_FILE_EXTENSION = ".properties";
+    private static final String NO_DEBUG_SOURCE_FILE_PATH = "";
+    private static final int MAX_CACHE_FILES = 256;
+    private static final long SAVE_INTERVAL = 5000;
+    private static final long STALE_TEMP_FILE_AGE = 60 * 60 * 1000;
+
+    public SWCMetadataCache()
+    {
+        this(getDefaultCacheDirectory());
+    }
+
+    public SWCMetadataCache(Path cacheDirectory)
+    {
+        this.cacheDirectory = cacheDirectory;
+        pruneCacheDirectory();
+    }
+
+    private Path cacheDirectory;
+    private Map<Path,SWCMetadata> metadataByPath = new HashMap<>();
+
+    /**
+     * Like DefinitionUtils.getDefinitionDebugSourceFilePath(), but uses the
+     * cached result for definitions from SWC files.
+     */
+    public String getDefinitionDebugSourceFilePath(IDefinition definition, ICompilerProject project)
+    {
+        ASProjectScope projectScope = (ASProjectScope) project.getScope();
+        ICompilationUnit unit = projectScope.getCompilationUnitForDefinition(definition);
+        if (unit == null)
+        {
+            return null;
+        }
+        String scriptKey = getScriptKey(unit);
+        SWCMetadata metadata = null;
+        if (scriptKey != null)
+        {
+            metadata = getMetadata(Paths.get(unit.getAbsoluteFilename()));
+        }
+        if (metadata != null)
+        {
+            String cachedPath = metadata.getDebugSourceFilePath(scriptKey);
+            if (cachedPath != null)
+            {
+                if (NO_DEBUG_SOURCE_FILE_PATH.equals(cachedPath))
+                {
+                    return null;
+                }
+                return cachedPath;
+            }
+        }
+        String debugPath = null;
+        try
+        {
+            debugPath = DefinitionUtils.getCompilationUnitDebugSourceFilePath(unit);
+        }
+        catch (InterruptedException e)
+        {
+            //don't cache anything because we don't have a result
+            return null;
+        }
+        if (metadata != null)
+        {
+            metadata.setDebugSourceFilePath(scriptKey, debugPath != null ? debugPath : NO_DEBUG_SOURCE_FILE_PATH);
+            saveIfNeeded(metadata, false);
+        }
+        return debugPath;
+    }
+
+    /**
+     * Should be called when a SWC file is added, changed, or removed.
+     */
+    public synchronized void fileChanged(Path path)
+    {
+        SWCMetadata metadata = metadataByPath.remove(path);
+        if (metadata != null)
+        {
+            //the old metadata is still correct for the old contents, which
+            //may be restored later
+            saveIfNeeded(metadata, true);
+        }
+    }
+
+    /**
+     * Saves any metadata that hasn't been written to the cache directory yet.
+     */
+    public synchronized void flush()
+    {
+        for (SWCMetadata metadata : metadataByPath.values())
+        {
+            saveIfNeeded(metadata, true);
+        }
+    }
+
+    private SWCMetadata getMetadata(Path swcPath)
+    {
+        File swcFile = swcPath.toFile();
+        long lastModified = swcFile.lastModified();
+        if (lastModified == 0L)
+        {
+            //the file may have been deleted
+            return null;
+        }
+        long length = swcFile.length();
+        synchronized (this)
+        {
+            SWCMetadata metadata = metadataByPath.get(swcPath);
+            if (metadata != null && metadata.isFor(lastModified, length))
+            {
+                return metadata;
+            }
+        }
+        //don't hold the lock while reading the cache file so that requests
+        //for other SWCs don't need to wait
+        SWCMetadata newMetadata = new SWCMetadata(createKey(swcPath, lastModified, length), lastModified, length);
+        load(newMetadata);
+        synchronized (this)
+        {
+            SWCMetadata metadata = metadataByPath.get(swcPath);
+            if (metadata != null && metadata.isFor(lastModified, length))
+            {
+                //another thread loaded it first
+                return metadata;
+            }
+            metadataByPath.put(swcPath, newMetadata);
+            return newMetadata;
+        }
+    }
+
+    private String getScriptKey(ICompilationUnit unit)
+    {
+        if (!UnitType.SWC_UNIT.equals(unit.getCompilationUnitType()))
+        {
+            return null;
+        }
+        //a script's definitions come from the SWC's catalog, so this doesn't
+        //require its ABC bytes to be parsed
+        List<IDefinition> definitionPromises = unit.getDefinitionPromises();
+        if (definitionPromises.size() == 0)
+        {
+            return null;
+        }
+        return definitionPromises.get(0).getQualifiedName();
+    }
+
+    private void load(SWCMetadata metadata)
+    {
+        if (cacheDirectory == null)
+        {
+            return;
+        }
+        Path cacheFile = cacheDirectory.resolve(metadata.key + CACHE_FILE_EXTENSION);
+        if (!Files.exists(cacheFile))
+        {
+            return;
+        }
+        try (InputStream inputStream = Files.newInputStream(cacheFile))
+        {
+            metadata.debugSourceFilePaths.load(inputStream);
+            //the oldest cache files are pruned, so keep track of when this
+            //file was last used
+            cacheFile.toFile().setLastModified(System.currentTimeMillis());
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.err.println("Failed to read SWC metadata cache file: " + cacheFile);
+            metadata.debugSourceFilePaths.clear();
+        }
+    }
+
+    private void saveIfNeeded(SWCMetadata metadata, boolean force)
+    {
+        //hold the lock while writing so that an older snapshot of the
+        //metadata can't replace a newer one
+        synchronized (metadata)
+        {
+            if (!metadata.dirty)
+            {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (!force && (now - metadata.lastSaveTime) < SAVE_INTERVAL)
+            {
+                return;
+            }
+            metadata.dirty = false;
+            metadata.lastSaveTime = now;
+            if (cacheDirectory == null)
+            {
+                return;
+            }
+            Path cacheFile = cacheDirectory.resolve(metadata.key + CACHE_FILE_EXTENSION);
+            try
+            {
+                Files.createDirectories(cacheDirectory);
+                //write to a temporary file first so that another instance of
+                //the language server never reads a partially written file
+                Path tempFile = Files.createTempFile(cacheDirectory, metadata.key, null);
+                try (OutputStream outputStream = Files.newOutputStream(tempFile))
+                {
+                    metadata.debugSourceFilePaths.store(outputStream, null);
+                }
+                try
+                {
+                    Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (IOException e)
+            {
+                System.err.println("Failed to write SWC metadata cache file: " + cacheFile);
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private void pruneCacheDirectory()
+    {
+        if (cacheDirectory == null || !Files.isDirectory(cacheDirectory))
+        {
+            return;
+        }
+        List<File> cacheFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory))
+        {
+            for (Path path : stream)
+            {
+                File file = path.toFile();
+                if (!file.getName().endsWith(CACHE_FILE_EXTENSION))
+                {
+                    //temporary files are left behind if the language server
+                    //exits while saving. recent ones may belong to another
+                    //instance that is still saving.
+                    if ((System.currentTimeMillis() - file.lastModified()) > STALE_TEMP_FILE_AGE)
+                    {
+                        file.delete();
+                    }
+                    continue;
+                }
+                cacheFiles.add(file);
+            }
+        }
+        catch (IOException e)
+        {
+            return;
+        }
+        if (cacheFiles.size() <= MAX_CACHE_FILES)
+        {
+            return;
+        }
+        //delete the files that were used least recently
+        cacheFiles.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0, count = cacheFiles.size() - MAX_CACHE_FILES; i < count; i++)
+        {
+            cacheFiles.get(i).delete();
+        }
+    }
+
+    private static String createKey(Path path, long lastModified, long length)
+    {
+        MessageDigest digest = null;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            //every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        String identity = path.toAbsolutePath().toString() + "\n" + lastModified + "\n" + length;
+        digest.update(identity.getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private static Path getDefaultCacheDirectory()
+    {
+        String cacheDir = System.getProperty(PROPERTY_CACHE_DIR);
+        if (cacheDir == null || cacheDir.length() == 0)
+        {
+            return null;
+        }
+        return Paths.get(cacheDir);
+    }
+
+    private static class SWCMetadata
+    {
+        public SWCMetadata(String key, long lastModified, long length)
+        {
+            this.key = key;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        public final String key;
+        public final long lastModified;
+        public final long length;
+
+        public boolean isFor(long lastModified, long length)
+        {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+        /**
+         * Maps the first qualified name in each script to the path of the
+         * source file that the script was compiled from.
+         */
+        public Properties debugSourceFilePaths = new Properties();
+
+        public boolean dirty = false;
+        public long lastSaveTime = 0;
+
+        public synchronized String getDebugSourceFilePath(String scriptKey)
+        {
+            return debugSourceFilePaths.getProperty(scriptKey);
+        }
+
+        public synchronized void setDebugSourceFilePath(String scriptKey, String debugPath)
+        {
+            debugSourceFilePaths.setProperty(scriptKey, debugPath);
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.as3mxml.vscode.project.ILspProject;
+import com.as3mxml.vscode.project.WorkspaceFolderData;
+
+import org.apache.royale.compiler.config.Configuration;
+import org.apache.royale.compiler.internal.projects.RoyaleProjectConfigurator;
+
+/**
+ * A trie of path segments that contains the source paths, included sources,
+ * and root directories of all workspace folders. Finding which workspace
+ * folders own a file takes time proportional to the depth of the file's path
+ * instead of the number of source paths in all of the projects.
+ *
+ * An index is a snapshot. If any folder's project or configurator changes,
+ * isValid() returns false, and a new index should be built.
+ */
+public class SourcePathIndex
+{
+    public static SourcePathIndex build(List<WorkspaceFolderData> allFolderData)
+    {
+        SourcePathIndex result = new SourcePathIndex(allFolderData);
+        for (int i = 0; i < allFolderData.size(); i++)
+        {
+            WorkspaceFolderData folderData = allFolderData.get(i);
+            Path workspacePath = LanguageServerCompilerUtils.getPathFromLanguageServerURI(folderData.folder.getUri());
+            if (workspacePath != null)
+            {
+                result.getOrCreateNode(workspacePath).rootOwners.set(i);
+            }
+            ILspProject project = folderData.project;
+            if (project == null)
+            {
+                continue;
+            }
+            for (File sourcePath : project.getSourcePath())
+            {
+                result.getOrCreateNode(sourcePath.toPath()).sourceOwners.set(i);
+            }
+            RoyaleProjectConfigurator configurator = folderData.configurator;
+            if (configurator != null)
+            {
+                Configuration configuration = configurator.getConfiguration();
+                for (String includedSource : configuration.getIncludeSources())
+                {
+                    result.getOrCreateNode(Paths.get(includedSource)).sourceOwners.set(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    private SourcePathIndex(List<WorkspaceFolderData> allFolderData)
+    {
+        int count = allFolderData.size();
+        folders = allFolderData.toArray(new WorkspaceFolderData[count]);
+        projects = new ILspProject[count];
+        configurators = new RoyaleProjectConfigurator[count];
+        for (int i = 0; i < count; i++)
+        {
+            WorkspaceFolderData folderData = folders[i];
+            projects[i] = folderData.project;
+            configurators[i] = folderData.configurator;
+        }
+    }
+
+    private final WorkspaceFolderData[] folders;
+    private final ILspProject[] projects;
+    private final RoyaleProjectConfigurator[] configurators;
+    private final Map<Path,Node> roots = new HashMap<>();
+
+    /**
+     * Checks if the index was built from the same workspace folders, with the
+     * same projects and configurators, as the specified folders.
+     */
+    public boolean isValid(List<WorkspaceFolderData> allFolderData)
+    {
+        if (allFolderData.size() != folders.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < folders.length; i++)
+        {
+            WorkspaceFolderData folderData = allFolderData.get(i);
+            if (folderData != folders[i]
+                    || folderData.project != projects[i]
+                    || folderData.configurator != configurators[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the folders with a project that contains the file in one of its
+     * source paths or included sources.
+     */
+    public List<WorkspaceFolderData> getSourcePathOwners(Path path)
+    {
+        BitSet owners = new BitSet(folders.length);
+        visitPrefixes(path, owners, true);
+        return toFolderData(owners);
+    }
+
+    /**
+     * Returns the folders with a root directory that contains the file.
+     */
+    public List<WorkspaceFolderData> getWorkspaceRootOwners(Path path)
+    {
+        BitSet owners = new BitSet(folders.length);
+        visitPrefixes(path, owners, false);
+        return toFolderData(owners);
+    }
+
+    public boolean isInSourcePath(Path path, WorkspaceFolderData folderData)
+    {
+        for (int i = 0; i < folders.length; i++)
+        {
+            if (folders[i] == folderData)
+            {
+                BitSet owners = new BitSet(folders.length);
+                visitPrefixes(path, owners, true);
+                return owners.get(i);
+            }
+        }
+        return false;
+    }
+
+    private List<WorkspaceFolderData> toFolderData(BitSet owners)
+    {
+        List<WorkspaceFolderData> result = new ArrayList<>(owners.cardinality());
+        for (int i = owners.nextSetBit(0); i >= 0; i = owners.nextSetBit(i + 1))
+        {
+            result.add(folders[i]);
+        }
+        return result;
+    }
+
+    private void visitPrefixes(Path path, BitSet owners, boolean sourceOwners)
+    {
+        //Path.startsWith() only matches absolute paths with absolute paths and
+        //relative paths with relative paths, so relative paths use an empty
+        //path as their root
+        Node node = roots.get(getRootKey(path));
+        int nameCount = path.getNameCount();
+        int i = 0;
+        while (node != null)
+        {
+            owners.or(sourceOwners ? node.sourceOwners : node.rootOwners);
+            if (i == nameCount)
+            {
+                break;
+            }
+            //use the Path for each name as the key, instead of a String, so
+            //that names are compared the same way as Path.startsWith()
+            node = node.children.get(path.getName(i));
+            i++;
+        }
+    }
+
+    private Node getOrCreateNode(Path path)
+    {
+        Path rootKey = getRootKey(path);
+        Node node = roots.get(rootKey);
+        if (node == null)
+        {
+            node = new Node();
+            roots.put(rootKey, node);
+        }
+        int nameCount = path.getNameCount();
+        for (int i = 0; i < nameCount; i++)
+        {
+            Path name = path.getName(i);
+            Node child = node.children.get(name);
+            if (child == null)
+            {
+                child = new Node();
+                node.children.put(name, child);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private static Path getRootKey(Path path)
+    {
+        Path root = path.getRoot();
+        if (root == null)
+        {
+            return Paths.get("");
+        }
+        return root;
+    }
+
+    private static class Node
+    {
+        public Map<Path,Node> children = new HashMap<>();
+        public BitSet sourceOwners = new BitSet();
+        public BitSet rootOwners = new BitSet();
+    }
+}
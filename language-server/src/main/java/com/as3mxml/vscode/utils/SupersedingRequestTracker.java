@@ -0,0 +1,119 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+/**
+ * Keeps a generation counter for each combination of request method and
+ * document. When a new request arrives, any older request for the same
+ * method and document is considered superseded, and it will be canceled the
+ * next time that it checks for cancellation. For example, if the user types
+ * several characters quickly, only the last completion request needs a
+ * result.
+ *
+ * Only requests for the current position of the cursor should be tracked,
+ * like completion, hover, and signature help. Other requests for the same
+ * document may be for different positions or ranges, so an older request
+ * still needs its result.
+ */
+public class SupersedingRequestTracker
+{
+    private Map<String,AtomicLong> generations = new ConcurrentHashMap<>();
+    private Map<String,AtomicLong> supersededCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Should be called when a request is received, before it is queued. The
+     * document URI may be null for requests that aren't associated with a
+     * document.
+     */
+    public SupersedableRequest start(String method, String uri)
+    {
+        String key = uri == null ? method : method + " " + uri;
+        AtomicLong generation = generations.computeIfAbsent(key, k -> new AtomicLong());
+        return new SupersedableRequest(method, generation, generation.incrementAndGet());
+    }
+
+    /**
+     * Stops tracking requests for a document that has been closed.
+     */
+    public void documentClosed(String uri)
+    {
+        String suffix = " " + uri;
+        generations.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    /**
+     * Returns the number of requests for each method that exited early
+     * because a newer request superseded them.
+     */
+    public Map<String,Long> getSupersededCounts()
+    {
+        Map<String,Long> result = new HashMap<>();
+        for (Map.Entry<String,AtomicLong> entry : supersededCounts.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    public class SupersedableRequest
+    {
+        private SupersedableRequest(String method, AtomicLong generation, long requestGeneration)
+        {
+            this.method = method;
+            this.generation = generation;
+            this.requestGeneration = requestGeneration;
+        }
+
+        private String method;
+        private AtomicLong generation;
+        private long requestGeneration;
+        private boolean counted = false;
+
+        public boolean isSuperseded()
+        {
+            return generation.get() != requestGeneration;
+        }
+
+        /**
+         * Returns a cancel checker that cancels the request if the original
+         * checker is canceled, or if a newer request has superseded this one.
+         */
+        public CancelChecker createCancelChecker(CancelChecker cancelToken)
+        {
+            return () ->
+            {
+                cancelToken.checkCanceled();
+                if (isSuperseded())
+                {
+                    if (!counted)
+                    {
+                        counted = true;
+                        supersededCounts.computeIfAbsent(method, k -> new AtomicLong()).incrementAndGet();
+                    }
+                    throw new CancellationException();
+                }
+            };
+        }
+    }
+}
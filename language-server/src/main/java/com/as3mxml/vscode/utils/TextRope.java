@@ -0,0 +1,513 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+
+import org.eclipse.lsp4j.Position;
+
+/**
+ * An immutable rope that stores the text of an open document. Editing a
+ * rope returns a new rope that shares all unchanged nodes with the original,
+ * so a range edit takes O(log n) time instead of copying the whole document.
+ * Each node also counts its line breaks, which allows conversion between
+ * line numbers and offsets without scanning the text from the beginning.
+ */
+public class TextRope implements CharSequence
+{
+    private static final int MAX_LEAF_LENGTH = 512;
+
+    public static final TextRope EMPTY = new TextRope(new Leaf(""));
+
+    public static TextRope fromString(String text)
+    {
+        if (text == null || text.length() == 0)
+        {
+            return EMPTY;
+        }
+        TextRope result = new TextRope(build(text, 0, text.length()));
+        result.cachedString = text;
+        return result;
+    }
+
+    private TextRope(Node root)
+    {
+        this.root = root;
+    }
+
+    private final Node root;
+    private String cachedString;
+
+    public int length()
+    {
+        return root.length;
+    }
+
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= root.length)
+        {
+            throw new IndexOutOfBoundsException("Index out of range: " + index);
+        }
+        Node node = root;
+        while (node instanceof Concat)
+        {
+            Concat concat = (Concat) node;
+            if (index < concat.left.length)
+            {
+                node = concat.left;
+            }
+            else
+            {
+                index -= concat.left.length;
+                node = concat.right;
+            }
+        }
+        return ((Leaf) node).text.charAt(index);
+    }
+
+    public CharSequence subSequence(int start, int end)
+    {
+        return substring(start, end);
+    }
+
+    public String substring(int start, int end)
+    {
+        if (start < 0 || end > root.length || start > end)
+        {
+            throw new IndexOutOfBoundsException("Range out of bounds: " + start + ", " + end);
+        }
+        if (cachedString != null)
+        {
+            return cachedString.substring(start, end);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        appendRange(root, start, end, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Returns the full text. The result is cached, so the text is copied into
+     * a String at most once for each version of the document.
+     */
+    @Override
+    public String toString()
+    {
+        String result = cachedString;
+        if (result == null)
+        {
+            StringBuilder builder = new StringBuilder(root.length);
+            appendRange(root, 0, root.length, builder);
+            result = builder.toString();
+            cachedString = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a reader that walks the rope's nodes directly instead of
+     * copying the text.
+     */
+    public Reader createReader()
+    {
+        return new RopeReader(root);
+    }
+
+    public int getLineCount()
+    {
+        return root.lineBreaks + 1;
+    }
+
+    /**
+     * Returns the offset where the specified line starts. If the line is past
+     * the end of the document, returns the length of the document.
+     */
+    public int getLineStartOffset(int line)
+    {
+        if (line <= 0)
+        {
+            return 0;
+        }
+        if (line > root.lineBreaks)
+        {
+            return root.length;
+        }
+        //find the offset of the line break that ends the previous line
+        int lineBreaksToSkip = line;
+        int offset = 0;
+        Node node = root;
+        while (node instanceof Concat)
+        {
+            Concat concat = (Concat) node;
+            if (lineBreaksToSkip <= concat.left.lineBreaks)
+            {
+                node = concat.left;
+            }
+            else
+            {
+                lineBreaksToSkip -= concat.left.lineBreaks;
+                offset += concat.left.length;
+                node = concat.right;
+            }
+        }
+        String text = ((Leaf) node).text;
+        int index = -1;
+        for (int i = 0; i < lineBreaksToSkip; i++)
+        {
+            index = text.indexOf('\n', index + 1);
+        }
+        return offset + index + 1;
+    }
+
+    /**
+     * Returns the zero-based line that contains the specified offset.
+     */
+    public int getLineAtOffset(int offset)
+    {
+        if (offset <= 0)
+        {
+            return 0;
+        }
+        if (offset >= root.length)
+        {
+            return root.lineBreaks;
+        }
+        int line = 0;
+        Node node = root;
+        while (node instanceof Concat)
+        {
+            Concat concat = (Concat) node;
+            if (offset < concat.left.length)
+            {
+                node = concat.left;
+            }
+            else
+            {
+                line += concat.left.lineBreaks;
+                offset -= concat.left.length;
+                node = concat.right;
+            }
+        }
+        String text = ((Leaf) node).text;
+        for (int i = 0; i < offset; i++)
+        {
+            if (text.charAt(i) == '\n')
+            {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Converts a language server position to an offset. Matches the behavior
+     * of LanguageServerCompilerUtils.getOffsetFromPosition(), including
+     * clamping to the end of the document.
+     */
+    public int getOffsetFromPosition(Position position)
+    {
+        int offset = getLineStartOffset(position.getLine());
+        offset += position.getCharacter();
+        if (offset > root.length)
+        {
+            offset = root.length;
+        }
+        return offset;
+    }
+
+    /**
+     * Converts an offset to a language server position.
+     */
+    public Position getPositionFromOffset(int offset)
+    {
+        if (offset > root.length)
+        {
+            offset = root.length;
+        }
+        int line = getLineAtOffset(offset);
+        int character = offset - getLineStartOffset(line);
+        return new Position(line, character);
+    }
+
+    /**
+     * Returns a new rope with the text between start and end replaced.
+     */
+    public TextRope replace(int start, int end, String text)
+    {
+        if (start < 0 || end > root.length || start > end)
+        {
+            throw new IndexOutOfBoundsException("Range out of bounds: " + start + ", " + end);
+        }
+        Node[] beforeAndRest = split(root, start);
+        Node[] removedAndAfter = split(beforeAndRest[1], end - start);
+        Node result = beforeAndRest[0];
+        if (text != null && text.length() > 0)
+        {
+            result = join(result, build(text, 0, text.length()));
+        }
+        result = join(result, removedAndAfter[1]);
+        return new TextRope(result);
+    }
+
+    private static Node build(String text, int start, int end)
+    {
+        if (end - start <= MAX_LEAF_LENGTH)
+        {
+            return new Leaf(text.substring(start, end));
+        }
+        int middle = start + (end - start) / 2;
+        return new Concat(build(text, start, middle), build(text, middle, end));
+    }
+
+    private static void appendRange(Node node, int start, int end, StringBuilder builder)
+    {
+        if (start >= end)
+        {
+            return;
+        }
+        if (node instanceof Leaf)
+        {
+            builder.append(((Leaf) node).text, start, end);
+            return;
+        }
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length;
+        if (start < leftLength)
+        {
+            appendRange(concat.left, start, Math.min(end, leftLength), builder);
+        }
+        if (end > leftLength)
+        {
+            appendRange(concat.right, Math.max(start - leftLength, 0), end - leftLength, builder);
+        }
+    }
+
+    private static Node[] split(Node node, int offset)
+    {
+        if (offset <= 0)
+        {
+            return new Node[] { Leaf.EMPTY, node };
+        }
+        if (offset >= node.length)
+        {
+            return new Node[] { node, Leaf.EMPTY };
+        }
+        if (node instanceof Leaf)
+        {
+            String text = ((Leaf) node).text;
+            return new Node[] { new Leaf(text.substring(0, offset)), new Leaf(text.substring(offset)) };
+        }
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length;
+        if (offset < leftLength)
+        {
+            Node[] result = split(concat.left, offset);
+            return new Node[] { result[0], join(result[1], concat.right) };
+        }
+        if (offset > leftLength)
+        {
+            Node[] result = split(concat.right, offset - leftLength);
+            return new Node[] { join(concat.left, result[0]), result[1] };
+        }
+        return new Node[] { concat.left, concat.right };
+    }
+
+    /**
+     * Concatenates two nodes, keeping the tree balanced. Small leaves are
+     * merged with their neighbors so that typing one character at a time
+     * doesn't fragment the tree.
+     */
+    private static Node join(Node left, Node right)
+    {
+        if (left.length == 0)
+        {
+            return right;
+        }
+        if (right.length == 0)
+        {
+            return left;
+        }
+        if (left instanceof Leaf && right instanceof Leaf)
+        {
+            if (left.length + right.length <= MAX_LEAF_LENGTH)
+            {
+                return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+            }
+            return new Concat(left, right);
+        }
+        if (left.depth > right.depth + 1 || (right instanceof Leaf && right.length < MAX_LEAF_LENGTH))
+        {
+            Concat concat = (Concat) left;
+            return balance(concat.left, join(concat.right, right));
+        }
+        if (right.depth > left.depth + 1 || (left instanceof Leaf && left.length < MAX_LEAF_LENGTH))
+        {
+            Concat concat = (Concat) right;
+            return balance(join(left, concat.left), concat.right);
+        }
+        return new Concat(left, right);
+    }
+
+    private static Node balance(Node left, Node right)
+    {
+        if (left.depth > right.depth + 1)
+        {
+            Concat concat = (Concat) left;
+            if (concat.left.depth >= concat.right.depth)
+            {
+                return new Concat(concat.left, new Concat(concat.right, right));
+            }
+            Concat inner = (Concat) concat.right;
+            return new Concat(new Concat(concat.left, inner.left), new Concat(inner.right, right));
+        }
+        if (right.depth > left.depth + 1)
+        {
+            Concat concat = (Concat) right;
+            if (concat.right.depth >= concat.left.depth)
+            {
+                return new Concat(new Concat(left, concat.left), concat.right);
+            }
+            Concat inner = (Concat) concat.left;
+            return new Concat(new Concat(left, inner.left), new Concat(inner.right, concat.right));
+        }
+        return new Concat(left, right);
+    }
+
+    private static abstract class Node
+    {
+        public int length;
+        public int lineBreaks;
+        public int depth;
+    }
+
+    private static class Leaf extends Node
+    {
+        public static final Leaf EMPTY = new Leaf("");
+
+        public Leaf(String text)
+        {
+            this.text = text;
+            this.length = text.length();
+            this.depth = 0;
+            int count = 0;
+            for (int i = 0; i < length; i++)
+            {
+                if (text.charAt(i) == '\n')
+                {
+                    count++;
+                }
+            }
+            this.lineBreaks = count;
+        }
+
+        public final String text;
+    }
+
+    private static class Concat extends Node
+    {
+        public Concat(Node left, Node right)
+        {
+            this.left = left;
+            this.right = right;
+            this.length = left.length + right.length;
+            this.lineBreaks = left.lineBreaks + right.lineBreaks;
+            this.depth = Math.max(left.depth, right.depth) + 1;
+        }
+
+        public final Node left;
+        public final Node right;
+    }
+
+    private static class RopeReader extends Reader
+    {
+        public RopeReader(Node root)
+        {
+            stack.push(root);
+        }
+
+        private ArrayDeque<Node> stack = new ArrayDeque<>();
+        private String current;
+        private int currentIndex;
+        private boolean closed = false;
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!ensureCurrent())
+            {
+                return -1;
+            }
+            return current.charAt(currentIndex++);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException
+        {
+            if (length == 0)
+            {
+                return 0;
+            }
+            if (!ensureCurrent())
+            {
+                return -1;
+            }
+            int count = Math.min(length, current.length() - currentIndex);
+            current.getChars(currentIndex, currentIndex + count, buffer, offset);
+            currentIndex += count;
+            return count;
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+            stack.clear();
+            current = null;
+        }
+
+        private boolean ensureCurrent() throws IOException
+        {
+            if (closed)
+            {
+                throw new IOException("Reader is closed");
+            }
+            if (current != null && currentIndex < current.length())
+            {
+                return true;
+            }
+            while (!stack.isEmpty())
+            {
+                Node node = stack.pop();
+                if (node instanceof Concat)
+                {
+                    Concat concat = (Concat) node;
+                    stack.push(concat.right);
+                    stack.push(concat.left);
+                }
+                else if (node.length > 0)
+                {
+                    current = ((Leaf) node).text;
+                    currentIndex = 0;
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+    }
+}
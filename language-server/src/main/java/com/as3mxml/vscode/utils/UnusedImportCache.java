@@ -0,0 +1,151 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.as3mxml.vscode.compiler.problems.UnusedImportProblem;
+import com.as3mxml.vscode.project.ILspProject;
+
+import org.apache.royale.compiler.problems.ICompilerProblem;
+import org.apache.royale.compiler.tree.as.IASNode;
+import org.apache.royale.compiler.tree.as.IImportNode;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.requests.IOutgoingDependenciesRequestResult;
+
+/**
+ * Stores the imports and the qualified names of the dependencies of each
+ * compilation unit, so that unused imports may be found quickly enough to
+ * check for them while the user is typing.
+ *
+ * The imports are found again only when the unit has a new syntax tree, and
+ * the dependencies are requested again only when the unit's outgoing
+ * dependencies have been built again. If neither has changed, the previous
+ * problems are returned. Nothing here keeps a syntax tree or a compilation
+ * unit in memory.
+ */
+public class UnusedImportCache
+{
+    private Map<ICompilationUnit,Entry> entries = new WeakHashMap<>();
+
+    /**
+     * Should be called when the project is recreated.
+     */
+    public synchronized void invalidateAll()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Adds a problem for each import in the syntax tree of the unit that
+     * none of the unit's dependencies require. The outgoing dependencies
+     * request must have completed.
+     *
+     * If functionBodiesPopulated is false, imports inside function bodies
+     * that the compiler skipped are not found. Parsing those bodies for
+     * every real-time check would be too expensive.
+     */
+    public void findUnusedImportProblems(ICompilationUnit unit, IASNode ast, boolean functionBodiesPopulated,
+            IOutgoingDependenciesRequestResult dependenciesResult, ILspProject project, List<ICompilerProblem> problems)
+    {
+        Entry entry = null;
+        synchronized (this)
+        {
+            entry = entries.get(unit);
+        }
+        //imports found without the function bodies may be incomplete
+        boolean sameAST = entry != null && entry.ast.get() == ast
+                && (entry.functionBodiesPopulated || !functionBodiesPopulated);
+        boolean sameDependencies = entry != null && entry.dependenciesResult.get() == dependenciesResult;
+        if (sameAST && sameDependencies)
+        {
+            problems.addAll(entry.unusedImportProblems);
+            return;
+        }
+
+        List<UnusedImportProblem> importProblems = null;
+        if (sameAST)
+        {
+            importProblems = entry.importProblems;
+        }
+        else
+        {
+            List<IImportNode> importNodes = ASTUtils.findImportNodes(ast);
+            importProblems = new ArrayList<>(importNodes.size());
+            for (IImportNode importNode : importNodes)
+            {
+                //the problem stores only the location, so it can be created
+                //now and reused if the import becomes unused later
+                importProblems.add(new UnusedImportProblem(importNode));
+            }
+        }
+        Set<String> requiredImports = null;
+        if (sameDependencies)
+        {
+            requiredImports = entry.requiredImports;
+        }
+        else
+        {
+            requiredImports = project.getQNamesOfDependencies(unit);
+        }
+
+        List<UnusedImportProblem> unusedImportProblems = new ArrayList<>();
+        for (UnusedImportProblem importProblem : importProblems)
+        {
+            if (!ASTUtils.isImportRequired(importProblem.importName, requiredImports))
+            {
+                unusedImportProblems.add(importProblem);
+            }
+        }
+        boolean entryFunctionBodiesPopulated = sameAST ? entry.functionBodiesPopulated : functionBodiesPopulated;
+        Entry newEntry = new Entry(ast, entryFunctionBodiesPopulated, importProblems, dependenciesResult,
+                requiredImports, unusedImportProblems);
+        synchronized (this)
+        {
+            entries.put(unit, newEntry);
+        }
+        problems.addAll(unusedImportProblems);
+    }
+
+    private static class Entry
+    {
+        public Entry(IASNode ast, boolean functionBodiesPopulated, List<UnusedImportProblem> importProblems,
+                IOutgoingDependenciesRequestResult dependenciesResult, Set<String> requiredImports,
+                List<UnusedImportProblem> unusedImportProblems)
+        {
+            this.ast = new WeakReference<>(ast);
+            this.functionBodiesPopulated = functionBodiesPopulated;
+            this.importProblems = importProblems;
+            this.dependenciesResult = new WeakReference<>(dependenciesResult);
+            this.requiredImports = requiredImports;
+            this.unusedImportProblems = unusedImportProblems;
+        }
+
+        //the syntax tree and dependencies are compared by identity, and they
+        //are replaced when the unit is built again
+        public WeakReference<IASNode> ast;
+        public boolean functionBodiesPopulated;
+        public List<UnusedImportProblem> importProblems;
+        public WeakReference<IOutgoingDependenciesRequestResult> dependenciesResult;
+        public Set<String> requiredImports;
+        public List<UnusedImportProblem> unusedImportProblems;
+    }
+}
@@ -15,8 +15,6 @@ limitations under the License.
 */
 package com.as3mxml.vscode.utils;
 
-import java.io.IOException;
-import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -69,11 +67,14 @@ public class WorkspaceFolderManager
     private List<WorkspaceFolder> workspaceFolders = new ArrayList<>();
     private Map<WorkspaceFolder, WorkspaceFolderData> workspaceFolderToData = new HashMap<>();
     private FileTracker fileTracker;
+    private SWCMetadataCache swcMetadataCache;
     private WorkspaceFolderData fallbackFolderData;
+    private volatile SourcePathIndex sourcePathIndex;
     
-    public WorkspaceFolderManager(FileTracker fileTracker)
+    public WorkspaceFolderManager(FileTracker fileTracker, SWCMetadataCache swcMetadataCache)
     {
         this.fileTracker = fileTracker;
+        this.swcMetadataCache = swcMetadataCache;
     }
 
     public List<WorkspaceFolder> getWorkspaceFolders()
@@ -130,58 +131,31 @@ public class WorkspaceFolderManager
 
     public WorkspaceFolderData getWorkspaceFolderDataForSourceFile(Path path)
     {
+        SourcePathIndex sourcePathIndex = getSourcePathIndex();
         //first try to find the path in an existing project
-        WorkspaceFolderData fallback = null;
-        for (WorkspaceFolderData folderData : workspaceFolderToData.values())
+        List<WorkspaceFolderData> sourcePathOwners = sourcePathIndex.getSourcePathOwners(path);
+        if (sourcePathOwners.size() > 0)
         {
-            ILspProject project = folderData.project;
-            if (project == null)
-            {
-                continue;
-            }
-            String uri = folderData.folder.getUri();
-            Path workspacePath = LanguageServerCompilerUtils.getPathFromLanguageServerURI(uri);
-            if (workspacePath != null && SourcePathUtils.isInProjectSourcePath(path, project, folderData.configurator))
+            List<WorkspaceFolderData> workspaceRootOwners = sourcePathIndex.getWorkspaceRootOwners(path);
+            for (WorkspaceFolderData folderData : sourcePathOwners)
             {
-                if(path.startsWith(workspacePath))
+                if (workspaceRootOwners.contains(folderData))
                 {
                     //if the source path is inside the workspace folder, it's a
                     //perfect match
                     return folderData;
                 }
-                //if path is in the source path, but not inside the workspace
-                //folder, save it as possible result for later. in other words,
-                //we always prefer a workspace that contains the file, so we'll
-                //check the other workspaces before using the fallback.
-                if (fallback == null)
-                {
-                    fallback = folderData;
-                }
             }
-        }
-        //we found the path in a project's source path, but not inside any the
-        //workspace folders
-        if (fallback != null)
-        {
-            return fallback;
+            //we found the path in a project's source path, but not inside any of
+            //the workspace folders. we always prefer a workspace that
+            //contains the file, but there isn't one.
+            return sourcePathOwners.get(0);
         }
         //if none of the existing projects worked, try a folder where a project
         //hasn't been created yet
-        for (WorkspaceFolderData folderData : workspaceFolderToData.values())
+        for (WorkspaceFolderData folderData : sourcePathIndex.getWorkspaceRootOwners(path))
         {
-            ILspProject project = folderData.project;
-            if (project != null)
-            {
-                //if there's already a project, there's nothing to create later
-                continue;
-            }
-            String uri = folderData.folder.getUri();
-            Path workspacePath = LanguageServerCompilerUtils.getPathFromLanguageServerURI(uri);
-            if (workspacePath == null)
-            {
-                continue;
-            }
-            if (path.startsWith(workspacePath))
+            if (folderData.project == null)
             {
                 return folderData;
             }
@@ -190,6 +164,24 @@ public class WorkspaceFolderManager
         return fallbackFolderData;
     }
 
+    /**
+     * Checks if a file is in the source path or included sources of the
+     * specified folder's project.
+     */
+    public boolean isInProjectSourcePath(Path path, WorkspaceFolderData folderData)
+    {
+        if (folderData == null || folderData.project == null)
+        {
+            return false;
+        }
+        if (folderData == fallbackFolderData)
+        {
+            //the fallback folder isn't included in the index
+            return SourcePathUtils.isInProjectSourcePath(path, folderData.project, folderData.configurator);
+        }
+        return getSourcePathIndex().isInSourcePath(path, folderData);
+    }
+
     public IASNode getOffsetNode(Path path, int currentOffset, WorkspaceFolderData folderData)
     {
         IncludeFileData includeFileData = folderData.includedFiles.get(path.toString());
@@ -198,7 +190,7 @@ public class WorkspaceFolderManager
             path = Paths.get(includeFileData.parentPath);
         }
         ILspProject project = folderData.project;
-        if (!SourcePathUtils.isInProjectSourcePath(path, project, folderData.configurator))
+        if (!isInProjectSourcePath(path, folderData))
         {
             //the path must be in the workspace or source-path
             return null;
@@ -211,7 +203,7 @@ public class WorkspaceFolderManager
             return null;
         }
 
-        IASNode ast = ASTUtils.getCompilationUnitAST(unit);
+        IASNode ast = folderData.memoryGovernor.getAST(unit);
         if (ast == null)
         {
             return null;
@@ -324,7 +316,7 @@ public class WorkspaceFolderManager
             return null;
         }
         ILspProject project = folderData.project;
-        if (!SourcePathUtils.isInProjectSourcePath(path, project, folderData.configurator))
+        if (!isInProjectSourcePath(path, folderData))
         {
             //the path must be in the workspace or source-path
             return null;
@@ -365,24 +357,16 @@ public class WorkspaceFolderManager
 
     public List<WorkspaceFolderData> getAllWorkspaceFolderDataForSourceFile(Path path)
     {
+        SourcePathIndex sourcePathIndex = getSourcePathIndex();
         List<WorkspaceFolderData> result = new ArrayList<>();
-        for (WorkspaceFolderData folderData : workspaceFolderToData.values())
+        for (WorkspaceFolderData folderData : sourcePathIndex.getWorkspaceRootOwners(path))
         {
-            ILspProject project = folderData.project;
-            if (project == null)
-            {
-                String folderUri = folderData.folder.getUri();
-                Path workspacePath = LanguageServerCompilerUtils.getPathFromLanguageServerURI(folderUri);
-                if (path.startsWith(workspacePath))
-                {
-                    result.add(folderData);
-                }
-            }
-            else if (SourcePathUtils.isInProjectSourcePath(path, project, folderData.configurator))
+            if (folderData.project == null)
             {
                 result.add(folderData);
             }
         }
+        result.addAll(sourcePathIndex.getSourcePathOwners(path));
         return result;
     }
 
@@ -415,7 +399,7 @@ public class WorkspaceFolderManager
 
     public Location getLocationFromDefinition(IDefinition definition, ILspProject project)
     {
-        String sourcePath = LanguageServerCompilerUtils.getSourcePathFromDefinition(definition, project);
+        String sourcePath = LanguageServerCompilerUtils.getSourcePathFromDefinition(definition, project, swcMetadataCache);
         if (sourcePath == null)
         {
             //we can't find where the source code for this symbol is located
@@ -452,7 +436,7 @@ public class WorkspaceFolderManager
 
     public Range definitionToRange(IDefinition definition, ILspProject project)
     {
-        String sourcePath = LanguageServerCompilerUtils.getSourcePathFromDefinition(definition, project);
+        String sourcePath = LanguageServerCompilerUtils.getSourcePathFromDefinition(definition, project, swcMetadataCache);
         if (sourcePath == null)
         {
             //we can't find where the source code for this symbol is located
@@ -486,30 +470,16 @@ public class WorkspaceFolderManager
                 //this is not ideal, but MXML variable definitions may not have a
                 //node associated with them, so we need to figure this out from the
                 //offset instead of a pre-calculated line and column -JT
-                Reader definitionReader = fileTracker.getReader(definitionPath);
-                if (definitionReader == null)
+                LineIndex lineIndex = fileTracker.getLineIndex(definitionPath);
+                if (lineIndex == null)
                 {
                     //we might get here if it's from a SWC, but the associated
                     //source file is missing.
                     return null;
                 }
-                else
-                {
-                    try
-                    {
-                        LanguageServerCompilerUtils.getPositionFromOffset(definitionReader, definition.getNameStart(), start);
-                        end.setLine(start.getLine());
-                        end.setCharacter(start.getCharacter());
-                    }
-                    finally
-                    {
-                        try
-                        {
-                            definitionReader.close();
-                        }
-                        catch(IOException e) {}
-                    }
-                }
+                lineIndex.getPositionFromOffset(definition.getNameStart(), start);
+                end.setLine(start.getLine());
+                end.setCharacter(start.getCharacter());
             }
             else
             {
@@ -633,7 +603,7 @@ public class WorkspaceFolderManager
             {
                 //if it's a framework SWC, we're going to attempt to resolve
                 //the source file 
-                String debugPath = DefinitionUtils.getDefinitionDebugSourceFilePath(definition, folderData.project);
+                String debugPath = swcMetadataCache.getDefinitionDebugSourceFilePath(definition, folderData.project);
                 if (debugPath != null)
                 {
                     definitionPath = debugPath;
@@ -678,27 +648,16 @@ public class WorkspaceFolderManager
                 return;
             }
 
-            Reader reader = fileTracker.getReader(resolvedPath);
-            if (reader == null)
+            LineIndex lineIndex = fileTracker.getLineIndex(resolvedPath);
+            if (lineIndex == null)
             {
                 //we can't get the code at all
                 return;
             }
 
-            try
-            {
-                Position position = LanguageServerCompilerUtils.getPositionFromOffset(reader, nameOffset);
-                nameLine = position.getLine();
-                nameColumn = position.getCharacter();
-            }
-            finally
-            {
-                try
-                {
-                    reader.close();
-                }
-                catch(IOException e) {}
-            }
+            Position position = lineIndex.getPositionFromOffset(nameOffset);
+            nameLine = position.getLine();
+            nameColumn = position.getCharacter();
         }
         if (nameLine == -1 || nameColumn == -1)
         {
@@ -717,4 +676,26 @@ public class WorkspaceFolderManager
         location.setRange(range);
         result.add(location);
     }
-}
\ No newline at end of file
+
+    private SourcePathIndex getSourcePathIndex()
+    {
+        List<WorkspaceFolderData> allFolderData = new ArrayList<>(workspaceFolders.size());
+        for (WorkspaceFolder folder : workspaceFolders)
+        {
+            WorkspaceFolderData folderData = workspaceFolderToData.get(folder);
+            if (folderData != null)
+            {
+                allFolderData.add(folderData);
+            }
+        }
+        SourcePathIndex result = sourcePathIndex;
+        if (result == null || !result.isValid(allFolderData))
+        {
+            //a project was created, deleted, or reconfigured, or the workspace
+            //folders changed
+            result = SourcePathIndex.build(allFolderData);
+            sourcePathIndex = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.as3mxml.vscode.project.ILspProject;
+
+import org.apache.royale.compiler.definitions.IDefinition;
+import org.apache.royale.compiler.definitions.IFunctionDefinition;
+import org.apache.royale.compiler.definitions.IPackageDefinition;
+import org.apache.royale.compiler.definitions.ITypeDefinition;
+import org.apache.royale.compiler.definitions.IVariableDefinition;
+import org.apache.royale.compiler.internal.scopes.ASProjectScope.DefinitionPromise;
+import org.apache.royale.compiler.scopes.IASScope;
+import org.apache.royale.compiler.units.ICompilationUnit;
+import org.apache.royale.compiler.units.ICompilationUnit.UnitType;
+
+/**
+ * Caches the symbols defined in each compilation unit, so that a workspace
+ * symbol query doesn't need to resolve every definition promise in every SWC
+ * or wait for the file scope of every source file.
+ *
+ * Symbols for a unit are collected the first time that the unit is queried.
+ * The symbols of each project are also kept in one list, which is built
+ * again only after a source file changes or units are added or removed.
+ * Changed source files must be passed to invalidateFile(), and added or
+ * removed units to unitsAddedOrRemoved(). Projects that are recreated are
+ * dropped on the next query.
+ */
+public class WorkspaceSymbolIndex
+{
+    private Map<ILspProject,ProjectSymbols> symbolsByProject = new IdentityHashMap<>();
+    private Set<Path> invalidatedPaths = ConcurrentHashMap.newKeySet();
+    private volatile boolean unitsChanged = false;
+
+    /**
+     * Marks the symbols from a file as out of date. May be called from any
+     * thread.
+     */
+    public void invalidateFile(Path path)
+    {
+        if (path == null)
+        {
+            return;
+        }
+        invalidatedPaths.add(path);
+    }
+
+    /**
+     * Should be called when compilation units are added to or removed from
+     * the projects. May be called from any thread.
+     */
+    public void unitsAddedOrRemoved()
+    {
+        unitsChanged = true;
+    }
+
+    /**
+     * Returns the symbols from all compilation units in the specified
+     * projects. The result must not be modified. Must be called between
+     * startBuilding() and doneBuilding().
+     */
+    public synchronized List<Entry> getEntries(List<ILspProject> projects)
+    {
+        boolean rebuildAll = unitsChanged;
+        unitsChanged = false;
+        removeInvalidatedFiles();
+
+        Map<ILspProject,ProjectSymbols> newSymbolsByProject = new IdentityHashMap<>();
+        for (ILspProject project : projects)
+        {
+            if (newSymbolsByProject.containsKey(project))
+            {
+                continue;
+            }
+            ProjectSymbols projectSymbols = symbolsByProject.get(project);
+            Collection<ICompilationUnit> units = project.getCompilationUnits();
+            if (projectSymbols == null)
+            {
+                projectSymbols = new ProjectSymbols();
+            }
+            if (rebuildAll || projectSymbols.entries == null || projectSymbols.unitCount != units.size())
+            {
+                projectSymbols.update(units, project);
+            }
+            newSymbolsByProject.put(project, projectSymbols);
+        }
+        //projects that no longer exist are dropped here too
+        symbolsByProject = newSymbolsByProject;
+        if (newSymbolsByProject.size() == 1)
+        {
+            //the most common case doesn't require a copy
+            return newSymbolsByProject.values().iterator().next().entries;
+        }
+        List<Entry> result = new ArrayList<>();
+        for (ProjectSymbols projectSymbols : newSymbolsByProject.values())
+        {
+            result.addAll(projectSymbols.entries);
+        }
+        return result;
+    }
+
+    private void removeInvalidatedFiles()
+    {
+        if (invalidatedPaths.isEmpty())
+        {
+            return;
+        }
+        Set<Path> paths = new HashSet<>();
+        for (Path path : invalidatedPaths)
+        {
+            invalidatedPaths.remove(path);
+            paths.add(path);
+        }
+        for (ProjectSymbols projectSymbols : symbolsByProject.values())
+        {
+            if (projectSymbols.unitSymbols.values().removeIf(symbols -> symbols.path != null && paths.contains(symbols.path)))
+            {
+                projectSymbols.entries = null;
+            }
+        }
+    }
+
+    private UnitSymbols collectUnitSymbols(ICompilationUnit unit, ILspProject project)
+    {
+        UnitType unitType = unit.getCompilationUnitType();
+        if (UnitType.SWC_UNIT.equals(unitType))
+        {
+            List<Entry> entries = new ArrayList<>();
+            for (IDefinition definition : unit.getDefinitionPromises())
+            {
+                if (definition instanceof DefinitionPromise)
+                {
+                    //we won't be able to detect what type of definition
+                    //this is without getting the actual definition from the
+                    //promise.
+                    DefinitionPromise promise = (DefinitionPromise) definition;
+                    definition = promise.getActualDefinition();
+                }
+                if (definition == null || definition.isImplicit())
+                {
+                    continue;
+                }
+                entries.add(new Entry(definition, project, definition.getQualifiedName()));
+            }
+            //SWC units don't need to be invalidated by path because a changed
+            //SWC causes the project to be recreated
+            return new UnitSymbols(null, entries);
+        }
+        else if (UnitType.AS_UNIT.equals(unitType) || UnitType.MXML_UNIT.equals(unitType))
+        {
+            IASScope[] scopes;
+            try
+            {
+                scopes = unit.getFileScopeRequest().get().getScopes();
+            }
+            catch (Exception e)
+            {
+                //try again on the next query
+                return null;
+            }
+            List<Entry> entries = new ArrayList<>();
+            for (IASScope scope : scopes)
+            {
+                collectSymbolsInScope(scope, null, project, entries);
+            }
+            Path path = Paths.get(unit.getAbsoluteFilename());
+            return new UnitSymbols(path, entries);
+        }
+        return new UnitSymbols(null, Collections.emptyList());
+    }
+
+    private void collectSymbolsInScope(IASScope scope, ITypeDefinition containingType, ILspProject project, List<Entry> entries)
+    {
+        Collection<IDefinition> definitions = scope.getAllLocalDefinitions();
+        for (IDefinition definition : definitions)
+        {
+            if (definition instanceof IPackageDefinition)
+            {
+                IPackageDefinition packageDefinition = (IPackageDefinition) definition;
+                IASScope packageScope = packageDefinition.getContainedScope();
+                collectSymbolsInScope(packageScope, null, project, entries);
+            }
+            else if (definition instanceof ITypeDefinition)
+            {
+                ITypeDefinition typeDefinition = (ITypeDefinition) definition;
+                if (!definition.isImplicit())
+                {
+                    entries.add(new Entry(definition, project, definition.getQualifiedName()));
+                }
+                IASScope typeScope = typeDefinition.getContainedScope();
+                collectSymbolsInScope(typeScope, typeDefinition, project, entries);
+            }
+            else if (definition instanceof IFunctionDefinition
+                    || definition instanceof IVariableDefinition)
+            {
+                if (definition.isImplicit())
+                {
+                    continue;
+                }
+                String duplicateKey = null;
+                if (containingType != null)
+                {
+                    //members of the same type in multiple projects
+                    duplicateKey = containingType.getQualifiedName() + "/" + definition.getQualifiedName();
+                }
+                entries.add(new Entry(definition, project, duplicateKey));
+            }
+        }
+    }
+
+    private class ProjectSymbols
+    {
+        public Map<ICompilationUnit,UnitSymbols> unitSymbols = new IdentityHashMap<>();
+
+        //null if a unit's symbols were removed since the list was built
+        public List<Entry> entries;
+
+        //-1 if the symbols of a unit couldn't be collected
+        public int unitCount = -1;
+
+        public void update(Collection<ICompilationUnit> units, ILspProject project)
+        {
+            Map<ICompilationUnit,UnitSymbols> newUnitSymbols = new IdentityHashMap<>();
+            List<Entry> newEntries = new ArrayList<>();
+            boolean complete = true;
+            for (ICompilationUnit unit : units)
+            {
+                if (unit == null)
+                {
+                    continue;
+                }
+                UnitSymbols symbols = unitSymbols.get(unit);
+                if (symbols == null)
+                {
+                    symbols = collectUnitSymbols(unit, project);
+                    if (symbols == null)
+                    {
+                        //try again on the next query
+                        complete = false;
+                        continue;
+                    }
+                }
+                newUnitSymbols.put(unit, symbols);
+                newEntries.addAll(symbols.entries);
+            }
+            unitSymbols = newUnitSymbols;
+            entries = Collections.unmodifiableList(newEntries);
+            unitCount = complete ? units.size() : -1;
+        }
+    }
+
+    private static class UnitSymbols
+    {
+        public UnitSymbols(Path path, List<Entry> entries)
+        {
+            this.path = path;
+            this.entries = entries;
+        }
+
+        public final Path path;
+        public final List<Entry> entries;
+    }
+
+    public static class Entry
+    {
+        public Entry(IDefinition definition, ILspProject project, String duplicateKey)
+        {
+            this.definition = definition;
+            this.project = project;
+            this.duplicateKey = duplicateKey;
+            this.qualifiedName = definition.getQualifiedName();
+            this.lowerCaseQualifiedName = qualifiedName.toLowerCase();
+            this.lowerCaseBaseName = definition.getBaseName().toLowerCase();
+        }
+
+        public final IDefinition definition;
+        public final ILspProject project;
+
+        /**
+         * Entries with the same key are listed once, even if they appear in
+         * multiple projects. Types (including all definitions from SWCs) use
+         * their qualified name, and members use the qualified names of both
+         * the member and its type. Null if the entry is never a duplicate.
+         */
+        public final String duplicateKey;
+
+        public final String qualifiedName;
+        public final String lowerCaseQualifiedName;
+        public final String lowerCaseBaseName;
+    }
+}
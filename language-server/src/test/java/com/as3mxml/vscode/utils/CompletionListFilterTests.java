@@ -0,0 +1,140 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CompletionListFilterTests
+{
+	private static final Path PATH = Paths.get("Test.as").toAbsolutePath();
+
+	//--- score
+
+	@Test
+	void testScoreNoMatch()
+	{
+		Assertions.assertEquals(-1, CompletionListFilter.score("spx", "Sprite"),
+			"CompletionListFilter.score() matched text without all characters.");
+		Assertions.assertEquals(-1, CompletionListFilter.score("tirpS", "Sprite"),
+			"CompletionListFilter.score() matched characters in the wrong order.");
+	}
+
+	@Test
+	void testScorePrefixBeforeSubsequence()
+	{
+		Assertions.assertTrue(CompletionListFilter.score("spr", "Sprite") > CompletionListFilter.score("spr", "SimpleButtonProxy"),
+			"CompletionListFilter.score() did not rank a prefix match above a subsequence match.");
+	}
+
+	@Test
+	void testScoreWordStart()
+	{
+		Assertions.assertTrue(CompletionListFilter.score("gB", "getBounds") > CompletionListFilter.score("gB", "globalB"),
+			"CompletionListFilter.score() did not rank a match at the start of a word higher.");
+	}
+
+	//--- filter
+
+	@Test
+	void testFilterShortList()
+	{
+		CompletionListFilter filter = new CompletionListFilter();
+		filter.setMaxItems(10);
+		CompletionList list = createList(5);
+		CompletionList result = filter.filter(createSnapshot("", 1), 0, "", list);
+		Assertions.assertSame(list, result,
+			"CompletionListFilter.filter() changed a list that was short enough.");
+		Assertions.assertNull(filter.filterCandidates(createSnapshot("i", 2), 0, "i"),
+			"CompletionListFilter.filterCandidates() returned a list without candidates.");
+	}
+
+	@Test
+	void testFilterLongList()
+	{
+		CompletionListFilter filter = new CompletionListFilter();
+		filter.setMaxItems(10);
+		CompletionList result = filter.filter(createSnapshot("item1", 1), 0, "item1", createList(100));
+		Assertions.assertTrue(result.isIncomplete(),
+			"CompletionListFilter.filter() did not mark a limited list as incomplete.");
+		Assertions.assertEquals(10, result.getItems().size(),
+			"CompletionListFilter.filter() returned incorrect number of items.");
+		Assertions.assertEquals("item1", result.getItems().get(0).getLabel(),
+			"CompletionListFilter.filter() did not put the best match first.");
+	}
+
+	@Test
+	void testFilterCandidatesWithLongerPrefix()
+	{
+		CompletionListFilter filter = new CompletionListFilter();
+		filter.setMaxItems(10);
+		filter.filter(createSnapshot("item;", 1), 0, "item", createList(100));
+		CompletionList result = filter.filterCandidates(createSnapshot("item9;", 2), 0, "item9");
+		Assertions.assertNotNull(result,
+			"CompletionListFilter.filterCandidates() did not reuse the candidates for a longer prefix.");
+		Assertions.assertEquals(10, result.getItems().size(),
+			"CompletionListFilter.filterCandidates() returned incorrect number of items.");
+		Assertions.assertNull(filter.filterCandidates(createSnapshot("ite;", 3), 0, "ite"),
+			"CompletionListFilter.filterCandidates() reused the candidates for a shorter prefix.");
+	}
+
+	@Test
+	void testFilterCandidatesWithSamePrefix()
+	{
+		CompletionListFilter filter = new CompletionListFilter();
+		filter.setMaxItems(10);
+		filter.filter(createSnapshot("item;", 1), 0, "item", createList(100));
+		Assertions.assertNull(filter.filterCandidates(createSnapshot("item;", 2), 0, "item"),
+			"CompletionListFilter.filterCandidates() reused the candidates when nothing was typed.");
+	}
+
+	@Test
+	void testFilterCandidatesAfterOtherEdit()
+	{
+		CompletionListFilter filter = new CompletionListFilter();
+		filter.setMaxItems(10);
+		filter.filter(createSnapshot("item;ab", 1), 0, "item", createList(100));
+		//something else was typed after the identifier too
+		Assertions.assertNull(filter.filterCandidates(createSnapshot("item9;abc", 2), 0, "item9"),
+			"CompletionListFilter.filterCandidates() reused the candidates after an edit outside the identifier.");
+	}
+
+	private DocumentSnapshot createSnapshot(String text, int version)
+	{
+		return new DocumentSnapshot(PATH, TextRope.fromString(text), version);
+	}
+
+	private CompletionList createList(int count)
+	{
+		List<CompletionItem> items = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			CompletionItem item = new CompletionItem();
+			item.setLabel("item" + i);
+			items.add(item);
+		}
+		CompletionList list = new CompletionList();
+		list.setItems(items);
+		return list;
+	}
+}
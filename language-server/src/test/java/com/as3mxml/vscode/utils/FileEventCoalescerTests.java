@@ -0,0 +1,149 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FileEventCoalescerTests
+{
+	private static final Path PATH = Paths.get("src", "Test.as").toAbsolutePath();
+	private static final Path OTHER_PATH = Paths.get("src", "Other.as").toAbsolutePath();
+	private static final String URI = PATH.toUri().toString();
+	private static final String OTHER_URI = OTHER_PATH.toUri().toString();
+
+	//--- drain
+
+	@Test
+	void testCreatedThenChanged()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Created, false, "a");
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(1, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for created and changed file.");
+		assertEvent(events.get(0), URI, FileChangeType.Created);
+	}
+
+	@Test
+	void testCreatedThenDeleted()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Created, false, "a");
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		Assertions.assertEquals(0, coalescer.drain().size(),
+			"FileEventCoalescer.drain() returned events for file that was created and deleted.");
+	}
+
+	@Test
+	void testChangedThenDeleted()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(1, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for changed and deleted file.");
+		assertEvent(events.get(0), URI, FileChangeType.Deleted);
+	}
+
+	@Test
+	void testDeletedThenCreatedSameFile()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		coalescer.add(PATH, FileChangeType.Created, false, "a");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(1, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for file recreated with same identity.");
+		assertEvent(events.get(0), URI, FileChangeType.Changed);
+	}
+
+	@Test
+	void testDeletedThenCreatedDifferentFile()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		coalescer.add(PATH, FileChangeType.Created, false, "b");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(2, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for file replaced by different file.");
+		assertEvent(events.get(0), URI, FileChangeType.Deleted);
+		assertEvent(events.get(1), URI, FileChangeType.Created);
+	}
+
+	@Test
+	void testDeletedThenCreatedUnknownIdentity()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		coalescer.add(PATH, FileChangeType.Created, false, "a");
+		coalescer.add(PATH, FileChangeType.Changed, false, "a");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(2, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for recreated file without previous identity.");
+		assertEvent(events.get(0), URI, FileChangeType.Deleted);
+		assertEvent(events.get(1), URI, FileChangeType.Created);
+	}
+
+	@Test
+	void testDeletedThenCreatedDirectory()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(PATH, FileChangeType.Changed, true, "a");
+		coalescer.add(PATH, FileChangeType.Deleted, false, null);
+		coalescer.add(PATH, FileChangeType.Created, true, "a");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(2, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for recreated directory.");
+		assertEvent(events.get(0), URI, FileChangeType.Deleted);
+		assertEvent(events.get(1), URI, FileChangeType.Created);
+	}
+
+	@Test
+	void testOrderOfFirstChange()
+	{
+		FileEventCoalescer coalescer = new FileEventCoalescer();
+		coalescer.add(OTHER_PATH, FileChangeType.Changed, false, "b");
+		coalescer.add(PATH, FileChangeType.Created, false, "a");
+		coalescer.add(OTHER_PATH, FileChangeType.Changed, false, "b");
+		List<FileEvent> events = coalescer.drain();
+		Assertions.assertEquals(2, events.size(),
+			"FileEventCoalescer.drain() returned incorrect number of events for two paths.");
+		assertEvent(events.get(0), OTHER_URI, FileChangeType.Changed);
+		assertEvent(events.get(1), URI, FileChangeType.Created);
+		Assertions.assertTrue(coalescer.isEmpty(),
+			"FileEventCoalescer.drain() did not clear pending changes.");
+	}
+
+	private void assertEvent(FileEvent event, String uri, FileChangeType changeType)
+	{
+		Assertions.assertEquals(uri, event.getUri(),
+			"FileEventCoalescer.drain() returned event with incorrect URI.");
+		Assertions.assertEquals(changeType, event.getType(),
+			"FileEventCoalescer.drain() returned event with incorrect type.");
+	}
+}
@@ -0,0 +1,93 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.eclipse.lsp4j.Position;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LineIndexTests
+{
+	//--- getOffsetFromPosition
+
+	@Test
+	void testGetOffsetFromPosition()
+	{
+		LineIndex lineIndex = LineIndex.fromText("abc\ndef\r\nghi");
+		Assertions.assertEquals(5, lineIndex.getOffsetFromPosition(new Position(1, 1)),
+			"LineIndex.getOffsetFromPosition() returned incorrect offset.");
+		Assertions.assertEquals(10, lineIndex.getOffsetFromPosition(new Position(2, 1)),
+			"LineIndex.getOffsetFromPosition() returned incorrect offset after CRLF line ending.");
+	}
+
+	@Test
+	void testGetOffsetFromPositionAfterEnd()
+	{
+		LineIndex lineIndex = LineIndex.fromText("a\nb");
+		Assertions.assertEquals(3, lineIndex.getOffsetFromPosition(new Position(5, 0)),
+			"LineIndex.getOffsetFromPosition() returned incorrect offset for line after end.");
+		Assertions.assertEquals(3, lineIndex.getOffsetFromPosition(new Position(1, 10)),
+			"LineIndex.getOffsetFromPosition() returned incorrect offset for character after end.");
+	}
+
+	//--- getPositionFromOffset
+
+	@Test
+	void testGetPositionFromOffset() throws IOException
+	{
+		LineIndex lineIndex = LineIndex.fromReader(new StringReader("abc\ndef\nghi"));
+		Position result = lineIndex.getPositionFromOffset(9);
+		Assertions.assertEquals(2, result.getLine(),
+			"LineIndex.getPositionFromOffset() returned incorrect line.");
+		Assertions.assertEquals(1, result.getCharacter(),
+			"LineIndex.getPositionFromOffset() returned incorrect character.");
+	}
+
+	@Test
+	void testGetPositionFromOffsetAtLineStart()
+	{
+		LineIndex lineIndex = LineIndex.fromText("abc\n\ndef");
+		Position result = lineIndex.getPositionFromOffset(5);
+		Assertions.assertEquals(2, result.getLine(),
+			"LineIndex.getPositionFromOffset() returned incorrect line.");
+		Assertions.assertEquals(0, result.getCharacter(),
+			"LineIndex.getPositionFromOffset() returned incorrect character.");
+	}
+
+	//--- fromRope
+
+	@Test
+	void testFromRopeMatchesFromText()
+	{
+		String text = "abc\ndef\r\n\nghi";
+		TextRope rope = TextRope.fromString("abc\nghi").replace(4, 4, "def\r\n\n");
+		LineIndex expected = LineIndex.fromText(text);
+		LineIndex lineIndex = LineIndex.fromRope(rope);
+		Assertions.assertEquals(expected.getLineCount(), lineIndex.getLineCount(),
+			"LineIndex.fromRope() returned incorrect line count.");
+		for (int offset = 0; offset <= text.length(); offset++)
+		{
+			Position position = expected.getPositionFromOffset(offset);
+			Assertions.assertEquals(position, lineIndex.getPositionFromOffset(offset),
+				"LineIndex.fromRope() returned incorrect position for offset " + offset + ".");
+			Assertions.assertEquals(offset, lineIndex.getOffsetFromPosition(position),
+				"LineIndex.fromRope() returned incorrect offset for offset " + offset + ".");
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+Copyright 2016-2019 Bowler Hat LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.as3mxml.vscode.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.eclipse.lsp4j.Position;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TextRopeTests
+{
+	private static String createText(int lineCount)
+	{
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < lineCount; i++)
+		{
+			builder.append("\tvar line");
+			builder.append(i);
+			builder.append(":int = ");
+			builder.append(i);
+			builder.append(";\n");
+		}
+		return builder.toString();
+	}
+
+	//--- replace
+
+	@Test
+	void testReplaceInsert()
+	{
+		TextRope rope = TextRope.fromString("package {}");
+		TextRope result = rope.replace(9, 9, "\n");
+		Assertions.assertEquals("package {\n}", result.toString(),
+			"TextRope.replace() returned incorrect text.");
+		Assertions.assertEquals("package {}", rope.toString(),
+			"TextRope.replace() incorrectly modified the original rope.");
+	}
+
+	@Test
+	void testReplaceDelete()
+	{
+		TextRope rope = TextRope.fromString("package com.example {}");
+		TextRope result = rope.replace(8, 20, "");
+		Assertions.assertEquals("package {}", result.toString(),
+			"TextRope.replace() returned incorrect text.");
+	}
+
+	@Test
+	void testReplaceManyEditsInLargeText()
+	{
+		String text = createText(2000);
+		TextRope rope = TextRope.fromString(text);
+		StringBuilder expected = new StringBuilder(text);
+		for (int i = 0; i < 500; i++)
+		{
+			int offset = (i * 7919) % expected.length();
+			expected.replace(offset, offset + 1, "ab\n");
+			rope = rope.replace(offset, offset + 1, "ab\n");
+		}
+		Assertions.assertEquals(expected.toString(), rope.toString(),
+			"TextRope.replace() returned incorrect text after many edits.");
+		Assertions.assertEquals(expected.length(), rope.length(),
+			"TextRope.length() returned incorrect length after many edits.");
+	}
+
+	//--- getOffsetFromPosition
+
+	@Test
+	void testGetOffsetFromPosition()
+	{
+		TextRope rope = TextRope.fromString(createText(2000));
+		String text = rope.toString();
+		int expected = 0;
+		for (int i = 0; i < 1500; i++)
+		{
+			expected = text.indexOf('\n', expected) + 1;
+		}
+		Assertions.assertEquals(expected + 4, rope.getOffsetFromPosition(new Position(1500, 4)),
+			"TextRope.getOffsetFromPosition() returned incorrect offset.");
+	}
+
+	@Test
+	void testGetOffsetFromPositionAfterEnd()
+	{
+		TextRope rope = TextRope.fromString("a\nb");
+		Assertions.assertEquals(3, rope.getOffsetFromPosition(new Position(5, 0)),
+			"TextRope.getOffsetFromPosition() returned incorrect offset for line after end.");
+		Assertions.assertEquals(3, rope.getOffsetFromPosition(new Position(1, 10)),
+			"TextRope.getOffsetFromPosition() returned incorrect offset for character after end.");
+	}
+
+	//--- getPositionFromOffset
+
+	@Test
+	void testGetPositionFromOffset()
+	{
+		TextRope rope = TextRope.fromString("abc\ndef\nghi");
+		Position result = rope.getPositionFromOffset(9);
+		Assertions.assertEquals(2, result.getLine(),
+			"TextRope.getPositionFromOffset() returned incorrect line.");
+		Assertions.assertEquals(1, result.getCharacter(),
+			"TextRope.getPositionFromOffset() returned incorrect character.");
+	}
+
+	//--- createReader
+
+	@Test
+	void testCreateReader() throws IOException
+	{
+		String text = createText(1000);
+		TextRope rope = TextRope.fromString(text).replace(100, 200, "");
+		StringBuilder builder = new StringBuilder();
+		try (Reader reader = rope.createReader())
+		{
+			int next = -1;
+			while ((next = reader.read()) != -1)
+			{
+				builder.append((char) next);
+			}
+		}
+		Assertions.assertEquals(text.substring(0, 100) + text.substring(200), builder.toString(),
+			"TextRope.createReader() returned incorrect text.");
+	}
+}
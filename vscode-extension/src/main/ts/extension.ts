@@ -55,6 +55,7 @@ let editorSDKHome: string;
 let javaExecutablePath: string;
 let frameworkSDKHome: string;
 let sdkStatusBarItem: vscode.StatusBarItem;
+let preWarmStatusBarItem: vscode.StatusBarItem = null;
 let sourcePathView: vscode.TreeView<ActionScriptSourcePath> = null;
 let sourcePathDataProvider: ActionScriptSourcePathDataProvider = null;
 let actionScriptTaskProvider: ActionScriptTaskProvider = null;
@@ -115,6 +116,25 @@ function updateSDKStatusBarItem()
 	sdkStatusBarItem.text = sdkShortName;
 }
 
+function updatePreWarmStatusBarItem(message: string)
+{
+	if(!message)
+	{
+		if(preWarmStatusBarItem)
+		{
+			preWarmStatusBarItem.dispose();
+			preWarmStatusBarItem = null;
+		}
+		return;
+	}
+	if(!preWarmStatusBarItem)
+	{
+		preWarmStatusBarItem = vscode.window.createStatusBarItem(vscode.StatusBarAlignment.Left);
+		preWarmStatusBarItem.show();
+	}
+	preWarmStatusBarItem.text = "$(sync~spin) " + message;
+}
+
 function restartServer()
 {
 	if(!savedLanguageClient)
@@ -466,6 +486,12 @@ function startClient()
 			{
 				args.unshift("-Droyalelib=" + path.join(frameworkSDKHome, "frameworks"));
 			}
+			if(savedContext.globalStoragePath)
+			{
+				//metadata extracted from SWC files is saved here so that it
+				//doesn't need to be extracted again after a restart
+				args.unshift("-Das3mxml.swcCacheDir=" + path.join(savedContext.globalStoragePath, "swc-cache"));
+			}
 			let primaryWorkspaceFolder: vscode.WorkspaceFolder = null;
 			if(vscode.workspace.workspaceFolders !== undefined)
 			{
@@ -496,6 +522,10 @@ function startClient()
 				{
 					logCompilerShellOutput(null, false, true);
 				});
+				savedLanguageClient.onNotification("as3mxml/preWarmProgress", (message: string) =>
+				{
+					updatePreWarmStatusBarItem(message);
+				});
 				if(pendingQuickCompileAndDebug)
 				{
 					vscode.commands.executeCommand("as3mxml.quickCompileAndDebug");